@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.bench;
+
+import com.opentext.otag.service.context.AWConfig;
+import com.opentext.otag.service.context.AWConfigFactory;
+
+/**
+ * Fixed service configuration so clients can be built outside of a deployed service.
+ */
+public class BenchmarkConfigFactory extends AWConfigFactory {
+
+    public static final String APP_NAME = "benchmark-service";
+    public static final String APP_KEY = "benchmark-app-key";
+    public static final String GATEWAY_URL = "http://localhost:8080/gateway";
+
+    private final AWConfig config = new AWConfig() {
+        @Override
+        public String getAppName() {
+            return APP_NAME;
+        }
+
+        @Override
+        public String getAppKey() {
+            return APP_KEY;
+        }
+
+        @Override
+        public String getGatewayUrl() {
+            return GATEWAY_URL;
+        }
+
+        @Override
+        public String getPersistenceContext() {
+            return "OTAG";
+        }
+    };
+
+    @Override
+    public AWConfig getConfig() {
+        return config;
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.opentext.otag.sdk.bench.BenchmarkConfigFactory;
+import com.opentext.otag.sdk.bus.SdkEventKeys;
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+import com.opentext.otag.sdk.types.v3.api.error.APIException;
+import com.opentext.otag.sdk.types.v3.settings.Setting;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request building, response handling and typed extraction costs of the service clients.
+ * HTTP calls are answered by a client filter and SDK calls by a zero latency
+ * {@link LoopbackGateway}, so nothing leaves the JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientRequestBenchmark {
+
+    private static final String SETTING_KEY = "benchmark.setting";
+    private static final String POST_URL = BenchmarkConfigFactory.GATEWAY_URL + "/v3/benchmark";
+    private static final String ERROR_BODY = "{\"key\":\"not.found\",\"errorMessage\":\"No such thing\"}";
+
+    private LoopbackGateway gateway;
+    private SettingsClient settingsClient;
+
+    private WebTarget postTarget;
+    private Entity<Map<String, String>> postEntity;
+
+    private MultivaluedMap<String, Object> requestHeaders;
+    private MultivaluedMap<String, Object> responseHeaders;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> setting = new HashMap<>();
+        setting.put("key", SETTING_KEY);
+        setting.put("value", "42");
+        setting.put("type", "integer");
+        setting.put("displayName", "Benchmark setting");
+        gateway = new LoopbackGateway();
+        gateway.endpoint(SdkEventKeys.SETTINGS_GET_SETTING).respondWith(setting);
+        gateway.install();
+
+        Client restClient = ClientBuilder.newClient()
+                .register(JacksonJsonProvider.class)
+                .register((ClientRequestFilter) requestContext -> requestContext.abortWith(
+                        Response.ok("{\"success\":true}", MediaType.APPLICATION_JSON_TYPE)
+                                .header("Content-Length", 16)
+                                .build()));
+        settingsClient = new SettingsClient(restClient, new BenchmarkConfigFactory());
+
+        postTarget = settingsClient.getTarget(POST_URL);
+        Map<String, String> postBody = new HashMap<>();
+        postBody.put("name", "benchmark");
+        postEntity = Entity.json(postBody);
+
+        requestHeaders = settingsClient.getSDKRequestHeaders("benchmark-otag-token");
+        responseHeaders = new MultivaluedHashMap<>();
+        responseHeaders.add("Content-Type", MediaType.APPLICATION_JSON);
+        responseHeaders.add("Content-Length", ERROR_BODY.length());
+        responseHeaders.add("Cache-Control", "no-cache");
+        responseHeaders.add("Cache-Control", "no-store");
+    }
+
+    @TearDown
+    public void tearDown() {
+        gateway.close();
+    }
+
+    @Benchmark
+    public MultivaluedMap<String, Object> sdkRequestHeaders() {
+        return settingsClient.getSDKRequestHeaders("benchmark-otag-token");
+    }
+
+    @Benchmark
+    public SDKResponse processGenericPost() {
+        return settingsClient.processGenericPost(POST_URL, postTarget, postEntity, requestHeaders);
+    }
+
+    @Benchmark
+    public APIException processErrorResponse() {
+        return settingsClient.processFailureResponse(POST_URL, requestHeaders, 404, ERROR_BODY, responseHeaders);
+    }
+
+    @Benchmark
+    public Setting typedSdkResponse() {
+        return settingsClient.getSetting(SETTING_KEY);
+    }
+
+}
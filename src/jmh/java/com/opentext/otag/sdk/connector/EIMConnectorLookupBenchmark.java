@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.connector;
+
+import com.opentext.otag.sdk.bench.BenchmarkConfigFactory;
+import com.opentext.otag.sdk.bus.SdkEventKeys;
+import com.opentext.otag.sdk.client.v3.ServiceClient;
+import com.opentext.otag.sdk.client.v3.SettingsClient;
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v3.sdk.EIMConnector;
+import com.opentext.otag.sdk.types.v3.sdk.EIMConnectors;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of finding a connector by name and version, both against a list we already hold
+ * and including the trip through the SDK to fetch the connector list, compared with the
+ * indexed {@link EIMConnectorDirectory}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EIMConnectorLookupBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int connectorCount;
+
+    private LoopbackGateway gateway;
+    private ServiceClient serviceClient;
+    private List<EIMConnector> connectors;
+    private EIMConnectorDirectory directory;
+    private String lastConnectorName;
+
+    @Setup
+    public void setUp() {
+        List<Map<String, Object>> connectorList = new ArrayList<>();
+        for (int i = 0; i < connectorCount; i++) {
+            Map<String, Object> connector = new HashMap<>();
+            connector.put("connectorName", "connector-" + i);
+            connector.put("connectorVersion", "16.2");
+            connector.put("connectionUrl", "http://backend-" + i + ".example.com/api");
+            connector.put("connectionUrlSettingKey", "connector-" + i + ".url");
+            connectorList.add(connector);
+        }
+        Map<String, Object> body = Collections.singletonMap("connectors", connectorList);
+        gateway = new LoopbackGateway();
+        gateway.endpoint(SdkEventKeys.GET_EIM_CONNECTORS).respondWith(body);
+        gateway.install();
+
+        Client restClient = ClientBuilder.newClient();
+        BenchmarkConfigFactory configFactory = new BenchmarkConfigFactory();
+        serviceClient = new ServiceClient(restClient, configFactory);
+        connectors = LoopbackGateway.getMapper().convertValue(body, EIMConnectors.class).getConnectors();
+
+        directory = new EIMConnectorDirectory(serviceClient, new SettingsClient(restClient, configFactory));
+        directory.refresh();
+        // look for the last connector, the worst case for a scan
+        lastConnectorName = "connector-" + (connectorCount - 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        gateway.close();
+    }
+
+    @Benchmark
+    public Optional<EIMConnector> lookupInList() {
+        return scan(connectors);
+    }
+
+    @Benchmark
+    public Optional<EIMConnector> fetchAndLookup() {
+        return scan(serviceClient.getEIMConnectors().getConnectors());
+    }
+
+    @Benchmark
+    public Optional<EIMConnector> directoryLookup() {
+        return directory.find(lastConnectorName, "16.2");
+    }
+
+    /**
+     * The linear scan connectors were found with before the directory.
+     */
+    private Optional<EIMConnector> scan(List<EIMConnector> available) {
+        return available.stream()
+                .filter(connector ->
+                        Objects.equals(lastConnectorName, connector.getConnectorName()) &&
+                                Objects.equals("16.2", connector.getConnectorVersion()))
+                .findFirst();
+    }
+
+}
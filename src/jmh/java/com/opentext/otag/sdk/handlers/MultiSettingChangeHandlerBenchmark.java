@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch cost of {@link AbstractMultiSettingChangeHandler#handle} and
+ * {@link AbstractConcurrentMultiSettingChangeHandler#handle} as the number of
+ * registered keys grows, for messages that do and do not have a handler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiSettingChangeHandlerBenchmark {
+
+    @Param({"1", "16", "256"})
+    public int handlerCount;
+
+    private AbstractMultiSettingChangeHandler handler;
+    private AbstractConcurrentMultiSettingChangeHandler concurrentHandler;
+
+    private SettingsChangeMessage handledMessage;
+    private SettingsChangeMessage unhandledMessage;
+
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws Exception {
+        this.blackhole = blackhole;
+
+        handler = new AbstractMultiSettingChangeHandler() {
+            @Override
+            public Set<String> getSettingKeys() {
+                return handlers.keySet();
+            }
+        };
+        concurrentHandler = new AbstractConcurrentMultiSettingChangeHandler() {
+        };
+        for (int i = 0; i < handlerCount; i++) {
+            handler.addHandler("benchmark.setting." + i, message -> this.blackhole.consume(message.getNewValue()));
+            concurrentHandler.subscribe("benchmark.setting." + i,
+                    message -> this.blackhole.consume(message.getNewValue()));
+        }
+        // a pattern subscription, so delivery pays for the prefix lookups too
+        concurrentHandler.subscribe("benchmark.other.*", message -> this.blackhole.consume(message.getKey()));
+
+        handledMessage = settingChange("benchmark.setting." + (handlerCount - 1), "changed");
+        unhandledMessage = settingChange("benchmark.unknown", "ignored");
+    }
+
+    @Benchmark
+    public void handledSetting() {
+        handler.handle(handledMessage);
+    }
+
+    @Benchmark
+    public void unhandledSetting() {
+        handler.handle(unhandledMessage);
+    }
+
+    @Benchmark
+    public void concurrentHandledSetting() {
+        concurrentHandler.handle(handledMessage);
+    }
+
+    @Benchmark
+    public void concurrentUnhandledSetting() {
+        concurrentHandler.handle(unhandledMessage);
+    }
+
+    private static SettingsChangeMessage settingChange(String key, String newValue) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("key", key);
+        message.put("newValue", newValue);
+        return LoopbackGateway.getMapper().convertValue(message, SettingsChangeMessage.class);
+    }
+
+}
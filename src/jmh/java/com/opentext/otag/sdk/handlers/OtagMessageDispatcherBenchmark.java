@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v3.OtagServiceEvent;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivering a setting change through the {@link OtagMessageDispatcher} index versus
+ * offering it to every registered handler in turn, as the handler count grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OtagMessageDispatcherBenchmark {
+
+    @Param({"1", "64", "1024"})
+    public int handlerCount;
+
+    private OtagMessageDispatcher dispatcher;
+    private List<SettingChangeHandler> handlers;
+
+    private SettingsChangeMessage message;
+
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+
+        dispatcher = new OtagMessageDispatcher();
+        handlers = new ArrayList<>(handlerCount);
+        for (int i = 0; i < handlerCount; i++) {
+            String settingKey = "benchmark.setting." + i;
+            SettingChangeHandler handler = new AbstractSettingChangeHandler() {
+                @Override
+                public String getSettingKey() {
+                    return settingKey;
+                }
+
+                @Override
+                public void onSettingChanged(SettingsChangeMessage message) {
+                    OtagMessageDispatcherBenchmark.this.blackhole.consume(message.getNewValue());
+                }
+            };
+            handlers.add(handler);
+            dispatcher.register(handler);
+        }
+
+        Map<String, Object> change = new HashMap<>();
+        change.put("event", OtagServiceEvent.SETTING_CHANGED);
+        change.put("key", "benchmark.setting." + (handlerCount / 2));
+        change.put("newValue", "changed");
+        message = LoopbackGateway.getMapper().convertValue(change, SettingsChangeMessage.class);
+    }
+
+    @Benchmark
+    public int indexed() {
+        return dispatcher.dispatch(message);
+    }
+
+    @Benchmark
+    public void linearScan() {
+        for (SettingChangeHandler handler : handlers) {
+            if (handler.handles(message.getEvent()))
+                handler.handle(message);
+        }
+    }
+
+}
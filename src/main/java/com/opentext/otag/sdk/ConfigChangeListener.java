@@ -0,0 +1,24 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk;
+
+import com.opentext.otag.service.context.AWConfig;
+
+/**
+ * Told when the service's deployment config (Gateway URL, app key, ...) changes.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see ServiceConfigProvider#addListener(ConfigChangeListener)
+ */
+@FunctionalInterface
+public interface ConfigChangeListener {
+
+    /**
+     * @param previous the config we were using
+     * @param current  the newly loaded config
+     */
+    void onConfigChanged(AWConfig previous, AWConfig current);
+
+}
@@ -4,11 +4,38 @@ import com.opentext.otag.sdk.bus.SdkEventBusLog;
 import com.opentext.otag.sdk.bus.SdkQueueCallbackManager;
 import com.opentext.otag.sdk.bus.SdkQueueEvent;
 import com.opentext.otag.sdk.bus.SdkQueueManager;
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
 import com.opentext.otag.service.context.AWConfig;
-import com.opentext.otag.service.context.AWConfigFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SdkEventCallbackHandler {
 
+    /**
+     * Default maximum number of threads collecting SDK responses, each one waits on a
+     * single outstanding request.
+     */
+    public static final int DEFAULT_RESPONSE_THREADS = 64;
+
+    /**
+     * Default number of asynchronous SDK calls that may queue for a response thread.
+     */
+    public static final int DEFAULT_RESPONSE_QUEUE_CAPACITY = 1024;
+
     private static final Object lock = new Object();
 
     /**
@@ -16,6 +43,31 @@ public class SdkEventCallbackHandler {
      */
     private static volatile SdkQueueCallbackManager callbackManager;
 
+    /**
+     * Transport SDK requests travel over, the SDK event bus unless a stand-in has been installed.
+     */
+    private static volatile SdkEventTransport transport = new BusTransport();
+
+    /**
+     * Collects the responses for asynchronous SDK calls, so the threads that issue them
+     * (request threads for instance) do not have to wait around for the Gateway.
+     */
+    private static volatile ExecutorService responseExecutor;
+
+    private static volatile int responseThreads = DEFAULT_RESPONSE_THREADS;
+    private static volatile int responseQueueCapacity = DEFAULT_RESPONSE_QUEUE_CAPACITY;
+
+    /**
+     * Interrupts callers that have waited past their deadline for a response.
+     */
+    private static volatile ScheduledThreadPoolExecutor deadlineTimer;
+
+    /**
+     * The SDK event ids we have registered with the callback manager and are still
+     * waiting on, mapped to the time (nanos) they were registered.
+     */
+    private static final Map<String, Long> outstandingRequests = new ConcurrentHashMap<>();
+
     public static SdkQueueCallbackManager getSdkCallbackMgr() {
         if (callbackManager == null) {
             synchronized (lock) {
@@ -27,9 +79,199 @@ public class SdkEventCallbackHandler {
         return callbackManager;
     }
 
+    /**
+     * The executor asynchronous SDK calls are sent and collected on. It runs at most
+     * {@link #getResponseThreads()} threads, which are released after a minute idle, and
+     * queues up to {@link #getResponseQueueCapacity()} further tasks in submission order.
+     * Work submitted beyond that is rejected with a {@link RejectedExecutionException},
+     * which the SDK clients report by failing the future they returned.
+     *
+     * @return SDK response executor
+     */
+    public static ExecutorService getSdkResponseExecutor() {
+        if (responseExecutor == null) {
+            synchronized (lock) {
+                if (responseExecutor == null)
+                    responseExecutor = newResponseExecutor(responseThreads, responseQueueCapacity);
+            }
+        }
+
+        return responseExecutor;
+    }
+
+    /**
+     * Size the SDK response executor. An executor already in use is replaced, tasks it
+     * has accepted still run.
+     *
+     * @param maxThreads    maximum number of response threads
+     * @param queueCapacity number of tasks that may wait for a thread
+     * @see #getSdkResponseExecutor()
+     */
+    public static void configureSdkResponseExecutor(int maxThreads, int queueCapacity) {
+        if (maxThreads < 1 || queueCapacity < 0)
+            throw new IllegalArgumentException("Response executor needs at least one thread and " +
+                    "a queue capacity of zero or more");
+
+        ExecutorService previous;
+        synchronized (lock) {
+            responseThreads = maxThreads;
+            responseQueueCapacity = queueCapacity;
+            previous = responseExecutor;
+            responseExecutor = null;
+        }
+
+        if (previous != null)
+            previous.shutdown();
+    }
+
+    public static int getResponseThreads() {
+        return responseThreads;
+    }
+
+    public static int getResponseQueueCapacity() {
+        return responseQueueCapacity;
+    }
+
+    public static SdkEventTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Replace the transport SDK requests are sent over, for example with an in-process
+     * Gateway stand-in for load testing or benchmarking.
+     *
+     * @param sdkEventTransport transport to use
+     */
+    public static void setTransport(SdkEventTransport sdkEventTransport) {
+        transport = Objects.requireNonNull(sdkEventTransport);
+    }
+
+    /**
+     * Go back to sending SDK requests over the SDK event bus.
+     */
+    public static void resetTransport() {
+        transport = new BusTransport();
+    }
+
+    /**
+     * Register interest in the response to an SDK event, this must be done before the
+     * event is sent.
+     *
+     * @param sdkEventIdentifier SDK event id
+     */
+    public static void prepareForResponse(String sdkEventIdentifier) {
+        transport.prepareForResponse(sdkEventIdentifier);
+        outstandingRequests.put(sdkEventIdentifier, System.nanoTime());
+    }
+
+    /**
+     * Send an SDK event we have prepared for to the Gateway.
+     *
+     * @param sdkEvent SDK request event
+     */
+    public static void sendEvent(SdkQueueEvent sdkEvent) {
+        transport.send(sdkEvent);
+    }
+
+    /**
+     * Stop tracking an SDK event we will no longer wait for, used when the event could
+     * not be sent for instance. The transport is told to drop the reply, see
+     * {@link SdkEventTransport#cancel(String)}.
+     *
+     * @param sdkEventIdentifier SDK event id
+     */
+    public static void abandonResponse(String sdkEventIdentifier) {
+        try {
+            transport.cancel(sdkEventIdentifier);
+        } finally {
+            outstandingRequests.remove(sdkEventIdentifier);
+        }
+    }
+
+    /**
+     * Wait for the response to an SDK event we have previously prepared for.
+     *
+     * @param sdkEventIdentifier SDK event id
+     * @param timeoutMillis      how long we are prepared to wait, zero or less waits indefinitely
+     * @return the Gateway's reply
+     * @throws InterruptedException if the waiting thread was interrupted
+     * @throws TimeoutException     if no response arrived before the deadline
+     */
+    public static SdkReply awaitResponse(String sdkEventIdentifier, long timeoutMillis)
+            throws InterruptedException, TimeoutException {
+        boolean answered = false;
+        try {
+            SdkReply reply;
+            if (timeoutMillis <= 0) {
+                reply = transport.getResponseForEvent(sdkEventIdentifier);
+            } else {
+                reply = awaitResponseWithin(sdkEventIdentifier, timeoutMillis);
+            }
+            answered = true;
+            return reply;
+        } finally {
+            if (answered) {
+                outstandingRequests.remove(sdkEventIdentifier);
+            } else {
+                // timed out, interrupted or failed, the reply will never be collected
+                abandonResponse(sdkEventIdentifier);
+            }
+        }
+    }
+
+    private static SdkReply awaitResponseWithin(String sdkEventIdentifier, long timeoutMillis)
+            throws InterruptedException, TimeoutException {
+        DeadlineAlarm alarm = new DeadlineAlarm(Thread.currentThread());
+        ScheduledFuture<?> scheduledAlarm = getDeadlineTimer()
+                .schedule(alarm, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            return transport.getResponseForEvent(sdkEventIdentifier);
+        } catch (InterruptedException e) {
+            if (alarm.disarm())
+                throw new TimeoutException("No response received for SDK event " + sdkEventIdentifier +
+                        " within " + timeoutMillis + "ms");
+            throw e;
+        } finally {
+            scheduledAlarm.cancel(false);
+            alarm.disarm();
+        }
+    }
+
+    /**
+     * The number of SDK requests that are still waiting on a response from the Gateway.
+     *
+     * @return outstanding request count
+     */
+    public static int getOutstandingRequestCount() {
+        return outstandingRequests.size();
+    }
+
+    private static ScheduledThreadPoolExecutor getDeadlineTimer() {
+        if (deadlineTimer == null) {
+            synchronized (lock) {
+                if (deadlineTimer == null) {
+                    ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                            new SdkThreadFactory("otag-sdk-deadline-"));
+                    timer.setRemoveOnCancelPolicy(true);
+                    deadlineTimer = timer;
+                }
+            }
+        }
+
+        return deadlineTimer;
+    }
+
+    private static ExecutorService newResponseExecutor(int maxThreads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                queueCapacity > 0 ? new LinkedBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                new SdkThreadFactory("otag-sdk-response-"), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private static SdkQueueCallbackManager initCallbackMgr() {
         // load data from web.xml about our name and tenancy
-        AWConfig appConfig = AWConfigFactory.defaultFactory().getConfig();
+        AWConfig appConfig = ServiceConfigProvider.getInstance().getConfig();
         String ctx = appConfig.getPersistenceContext();
         String name = appConfig.getAppName();
 
@@ -40,4 +282,115 @@ public class SdkEventCallbackHandler {
         return callbackManager;
     }
 
+    /**
+     * Default transport, the SDK event bus shared with the Gateway.
+     */
+    private static class BusTransport implements SdkEventTransport {
+
+        @Override
+        public void prepareForResponse(String sdkEventIdentifier) {
+            getSdkCallbackMgr().prepareForResponse(sdkEventIdentifier);
+        }
+
+        @Override
+        public void send(SdkQueueEvent sdkEvent) {
+            SdkQueueManager.sendEventToGateway(sdkEvent);
+        }
+
+        @Override
+        public SdkReply getResponseForEvent(String sdkEventIdentifier) throws InterruptedException {
+            return new BusReply(getSdkCallbackMgr().getResponseForEvent(sdkEventIdentifier));
+        }
+
+        /**
+         * The SDK callback manager has no way to deregister an event id, it only lets
+         * go of one when its reply has been collected. A cancelled request stays
+         * registered there until the service stops, all we can do is stop tracking it.
+         */
+        @Override
+        public void cancel(String sdkEventIdentifier) {
+            // nothing to tell the callback manager
+        }
+    }
+
+    /**
+     * Reply delivered as a response event on the SDK event bus.
+     */
+    private static class BusReply implements SdkReply {
+
+        private final SdkQueueEvent responseEvent;
+
+        BusReply(SdkQueueEvent responseEvent) {
+            this.responseEvent = responseEvent;
+        }
+
+        @Override
+        public SDKResponse getSdkResponse() {
+            return responseEvent.getSdkResponse();
+        }
+
+        @Override
+        public <T> Optional<T> getBody(Class<T> type) {
+            return SdkQueueEvent.extractBodyFromResponse(responseEvent, type);
+        }
+    }
+
+    /**
+     * Interrupts a thread waiting on an SDK response once its deadline passes. Disarming
+     * the alarm guarantees it will not interrupt the thread afterwards, and clears an
+     * interrupt it may already have delivered.
+     */
+    private static class DeadlineAlarm implements Runnable {
+
+        private final Thread waiter;
+        private boolean armed = true;
+        private boolean fired = false;
+
+        DeadlineAlarm(Thread waiter) {
+            this.waiter = waiter;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (armed) {
+                fired = true;
+                waiter.interrupt();
+            }
+        }
+
+        /**
+         * @return true if the alarm went off
+         */
+        synchronized boolean disarm() {
+            if (armed) {
+                armed = false;
+                // swallow our own interrupt if the response beat it to the waiter
+                if (fired)
+                    Thread.interrupted();
+            }
+            return fired;
+        }
+    }
+
+    /**
+     * Daemon thread factory, SDK threads should never hold up the shutdown of the
+     * host web container.
+     */
+    public static class SdkThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final String prefix;
+
+        public SdkThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
 }
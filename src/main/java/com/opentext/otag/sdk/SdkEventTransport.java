@@ -0,0 +1,51 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk;
+
+import com.opentext.otag.sdk.bus.SdkQueueEvent;
+
+/**
+ * Carries SDK request events to the Gateway and hands back its replies. Services use the
+ * SDK event bus, which is the default; an in-process stand-in can be installed via
+ * {@link SdkEventCallbackHandler#setTransport(SdkEventTransport)} to exercise the SDK
+ * clients without a Gateway.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public interface SdkEventTransport {
+
+    /**
+     * Register interest in the reply to an event, called before the event is sent.
+     *
+     * @param sdkEventIdentifier SDK event id
+     */
+    void prepareForResponse(String sdkEventIdentifier);
+
+    /**
+     * Send a request event to the Gateway.
+     *
+     * @param sdkEvent SDK request event
+     */
+    void send(SdkQueueEvent sdkEvent);
+
+    /**
+     * Wait for the reply to an event we prepared for. Implementations must respond to
+     * interruption, it is how SDK request deadlines are enforced.
+     *
+     * @param sdkEventIdentifier SDK event id
+     * @return the Gateway's reply
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    SdkReply getResponseForEvent(String sdkEventIdentifier) throws InterruptedException;
+
+    /**
+     * Withdraw interest in the reply to an event, called when it could not be sent or the
+     * caller gave up waiting for it. A reply that arrives afterwards should be dropped.
+     *
+     * @param sdkEventIdentifier SDK event id
+     */
+    void cancel(String sdkEventIdentifier);
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk;
+
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+
+import java.util.Optional;
+
+/**
+ * The Gateway's reply to an SDK request, as handed back by an {@link SdkEventTransport}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public interface SdkReply {
+
+    /**
+     * @return the SDK response, may be null if the Gateway did not supply one
+     */
+    SDKResponse getSdkResponse();
+
+    /**
+     * Extract the reply body as the supplied type.
+     *
+     * @param type expected body type
+     * @param <T>  body type
+     * @return the body, empty if there was none
+     */
+    <T> Optional<T> getBody(Class<T> type);
+
+    /**
+     * The error the Gateway reported, if the request failed.
+     *
+     * @return error, empty for successful replies
+     */
+    default Optional<Throwable> getError() {
+        SDKResponse sdkResponse = getSdkResponse();
+        if (sdkResponse != null && !sdkResponse.isSuccess() &&
+                sdkResponse.getResponseBody() instanceof Throwable)
+            return Optional.of((Throwable) sdkResponse.getResponseBody());
+
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk;
+
+import com.opentext.otag.service.context.AWConfig;
+import com.opentext.otag.service.context.AWConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the service's deployment config (management.properties) once and shares it with
+ * everything in the SDK that needs it, instead of each client re-reading the file.
+ * <p>
+ * When the config file can be found on the file system it is watched, and reloaded when
+ * it changes. A reload swaps the shared config in one step and then tells the registered
+ * {@link ConfigChangeListener}s, so a new Gateway URL or app key reaches the clients
+ * without a service restart. The config instances we hand out are never modified, a
+ * reload always produces a new one.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public final class ServiceConfigProvider {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceConfigProvider.class);
+
+    private static final String MANAGEMENT_PROPERTIES = "management.properties";
+
+    /**
+     * Time we allow a change to settle, editors and deployers tend to write a file in bursts.
+     */
+    private static final long SETTLE_MILLIS = 250;
+
+    private static final ServiceConfigProvider INSTANCE = new ServiceConfigProvider();
+
+    private volatile AWConfigFactory source = AWConfigFactory.defaultFactory();
+    private volatile AWConfig config;
+
+    /**
+     * Listeners are held weakly so short lived clients do not leak through us.
+     */
+    private final Set<ConfigChangeListener> listeners = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private Thread watcher;
+    private WatchService watchService;
+
+    private final AWConfigFactory factory = new AWConfigFactory() {
+        @Override
+        public AWConfig getConfig() {
+            return ServiceConfigProvider.this.getConfig();
+        }
+    };
+
+    private ServiceConfigProvider() {
+    }
+
+    public static ServiceConfigProvider getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the current deployment config, loaded on first use
+     */
+    public AWConfig getConfig() {
+        if (config == null) {
+            synchronized (this) {
+                if (config == null) {
+                    config = source.getConfig();
+                    watchDefaultLocation();
+                }
+            }
+        }
+
+        return config;
+    }
+
+    /**
+     * @return a config factory that serves the shared config, for the service clients
+     */
+    public AWConfigFactory asFactory() {
+        return factory;
+    }
+
+    /**
+     * Replace where config is loaded from, the next {@link #getConfig()} loads from it.
+     *
+     * @param configFactory config source
+     */
+    public synchronized void setSource(AWConfigFactory configFactory) {
+        source = Objects.requireNonNull(configFactory);
+        config = null;
+    }
+
+    /**
+     * Register for config changes. Listeners are weakly referenced, keep a reference to
+     * yours for as long as it should be told about changes.
+     *
+     * @param listener change listener
+     */
+    public void addListener(ConfigChangeListener listener) {
+        synchronized (listeners) {
+            listeners.add(Objects.requireNonNull(listener));
+        }
+    }
+
+    public void removeListener(ConfigChangeListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Load the config again now, telling listeners if it changed. An incomplete config
+     * (no app key or Gateway URL, e.g. the file is mid-write) is ignored.
+     *
+     * @return the current config
+     */
+    public AWConfig reload() {
+        AWConfig previous;
+        AWConfig current;
+        synchronized (this) {
+            previous = config;
+            current = source.getConfig();
+            if (current == null || current.getAppKey() == null || current.getGatewayUrl() == null) {
+                LOG.warn("Ignoring incomplete service config, keeping the config we have");
+                return previous;
+            }
+            if (previous != null && sameConfig(previous, current))
+                return previous;
+            config = current;
+        }
+
+        if (previous != null) {
+            LOG.info("Service config changed, Gateway URL is now " + current.getGatewayUrl());
+            List<ConfigChangeListener> toNotify;
+            synchronized (listeners) {
+                toNotify = new ArrayList<>(listeners);
+            }
+            for (ConfigChangeListener listener : toNotify) {
+                try {
+                    listener.onConfigChanged(previous, current);
+                } catch (RuntimeException e) {
+                    LOG.error("Config change listener failed", e);
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Watch the supplied file and reload the config when it changes. Replaces any file
+     * we were already watching.
+     *
+     * @param configFile the management.properties file
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public synchronized void watch(Path configFile) throws IOException {
+        stopWatching();
+
+        Path file = configFile.toAbsolutePath();
+        Path directory = file.getParent();
+        WatchService service = FileSystems.getDefault().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watchService = service;
+        watcher = new SdkEventCallbackHandler.SdkThreadFactory("otag-config-watcher-")
+                .newThread(() -> watchLoop(service, file.getFileName()));
+        watcher.start();
+        LOG.info("Watching " + file + " for service config changes");
+    }
+
+    /**
+     * Stop watching the config file, if we were.
+     */
+    public synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close config watch service - " + e.getMessage());
+            }
+            watchService = null;
+            watcher = null;
+        }
+    }
+
+    private void watchLoop(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = containsFile(key, fileName);
+                key.reset();
+                if (!changed)
+                    continue;
+
+                // let the burst of writes finish, swallowing the events it raises
+                WatchKey next;
+                while ((next = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    next.pollEvents();
+                    next.reset();
+                }
+
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // we have been told to stop
+        }
+    }
+
+    private static boolean containsFile(WatchKey key, Path fileName) {
+        boolean found = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context()))
+                found = true;
+        }
+        return found;
+    }
+
+    /**
+     * Start watching the management.properties file if it lives on the file system
+     * where we can see it, i.e. our class path.
+     */
+    private void watchDefaultLocation() {
+        if (watcher != null)
+            return;
+
+        URL resource = Thread.currentThread().getContextClassLoader() != null
+                ? Thread.currentThread().getContextClassLoader().getResource(MANAGEMENT_PROPERTIES)
+                : ServiceConfigProvider.class.getClassLoader().getResource(MANAGEMENT_PROPERTIES);
+        if (resource == null || !"file".equals(resource.getProtocol())) {
+            LOG.debug("Unable to locate " + MANAGEMENT_PROPERTIES + " on the file system, config will not be reloaded");
+            return;
+        }
+
+        try {
+            watch(Paths.get(resource.toURI()));
+        } catch (IOException | URISyntaxException e) {
+            LOG.warn("Unable to watch " + resource + " for service config changes - " + e.getMessage());
+        }
+    }
+
+    private static boolean sameConfig(AWConfig a, AWConfig b) {
+        return Objects.equals(a.getAppName(), b.getAppName()) &&
+                Objects.equals(a.getAppKey(), b.getAppKey()) &&
+                Objects.equals(a.getGatewayUrl(), b.getGatewayUrl()) &&
+                Objects.equals(a.getPersistenceContext(), b.getPersistenceContext());
+    }
+
+}
@@ -0,0 +1,347 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, thread-safe cache whose entries expire a fixed time after they were loaded.
+ * <ul>
+ * <li>Lookups for absent keys are coalesced, concurrent callers asking for the same key
+ * share a single load</li>
+ * <li>A load that produces null can be cached as a negative result, with its own
+ * (usually shorter) time to live</li>
+ * <li>When the cache grows past its maximum size expired entries are dropped first,
+ * followed by those closest to expiry</li>
+ * </ul>
+ * Failed loads are never cached, the failure is passed to every caller waiting on
+ * that load. Invalidating a key also detaches a load in progress for it, the callers
+ * already waiting get its result but it is not cached, as it may predate the change
+ * that prompted the invalidation.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class ExpiringCache<K, V> {
+
+    /**
+     * When we have to evict we trim the cache back to this fraction of its maximum size,
+     * so we are not evicting on every subsequent insert.
+     */
+    private static final double EVICTION_LOW_WATER_MARK = 0.9;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize           maximum number of entries to hold
+     * @param ttlMillis         how long a loaded value is kept for
+     * @param negativeTtlMillis how long a null (not found) result is kept for, zero or less to not
+     *                          cache null results at all
+     */
+    public ExpiringCache(int maxSize, long ttlMillis, long negativeTtlMillis) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        if (ttlMillis < 1)
+            throw new IllegalArgumentException("ttlMillis must be at least 1");
+
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, negativeTtlMillis));
+    }
+
+    /**
+     * Get the value for a key, loading it if we do not hold a live entry.
+     *
+     * @param key    key
+     * @param loader function used to load a missing value on the calling thread, may return null
+     * @return the cached or loaded value (possibly null)
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return get(key, loader, 0, null);
+    }
+
+    /**
+     * Get the value for a key, loading it if we do not hold a live entry. A caller that
+     * joins a load already in progress waits no longer than its own deadline for it, the
+     * load is left running for whoever started it.
+     *
+     * @param key           key
+     * @param loader        function used to load a missing value on the calling thread, may return null
+     * @param timeoutMillis how long to wait on another caller's load, zero or less to wait for as long
+     *                      as it takes
+     * @param onTimeout     produces the exception thrown when that wait runs out, expected to be
+     *                      the one the loader itself throws when it runs out of time
+     * @return the cached or loaded value (possibly null)
+     */
+    public V get(K key, Function<? super K, ? extends V> loader, long timeoutMillis,
+                 Function<TimeoutException, ? extends RuntimeException> onTimeout) {
+        Entry<V> entry = liveEntry(key);
+        if (entry != null)
+            return entry.value;
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, load);
+        if (existing != null)
+            return await(existing, timeoutMillis, onTimeout);
+
+        try {
+            V value = loader.apply(key);
+            completeLoad(key, load, value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loading.remove(key, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #get(Object, Function)}.
+     *
+     * @param key    key
+     * @param loader function that starts loading a missing value
+     * @return future cached or loaded value (possibly null)
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, CompletableFuture<V>> loader) {
+        Entry<V> entry = liveEntry(key);
+        if (entry != null)
+            return CompletableFuture.completedFuture(entry.value);
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, load);
+        if (existing != null)
+            return existing;
+
+        try {
+            loader.apply(key).whenComplete((value, err) -> {
+                if (err != null) {
+                    loading.remove(key, load);
+                    load.completeExceptionally(err);
+                } else {
+                    completeLoad(key, load, value);
+                }
+            });
+        } catch (RuntimeException e) {
+            loading.remove(key, load);
+            load.completeExceptionally(e);
+        }
+
+        return load;
+    }
+
+    /**
+     * Get the cached value for a key without loading it.
+     *
+     * @param key key
+     * @return the value, or null if there is no live entry (or a negative entry)
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = liveEntry(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public void put(K key, V value) {
+        store(key, value);
+    }
+
+    /**
+     * Drop the entry for a key, and detach any load in progress for it.
+     *
+     * @param key key
+     */
+    public void invalidate(K key) {
+        // loads first, so a load completing concurrently either stores before we
+        // clear the entry or finds itself detached and does not store at all
+        loading.remove(key);
+        entries.remove(key);
+    }
+
+    /**
+     * Drop every entry whose key matches, and detach any loads in progress for them.
+     *
+     * @param keyMatcher key predicate
+     */
+    public void invalidateIf(Predicate<? super K> keyMatcher) {
+        loading.keySet().removeIf(keyMatcher);
+        entries.keySet().removeIf(keyMatcher);
+    }
+
+    /**
+     * Drop every entry, and detach all loads in progress.
+     */
+    public void invalidateAll() {
+        loading.clear();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the fraction of lookups served from the cache, 0 if there have been none
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpiringCache{" +
+                "size=" + size() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", loads=" + getLoadCount() +
+                ", evictions=" + getEvictionCount() +
+                '}';
+    }
+
+    private Entry<V> liveEntry(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (!entry.isExpired(System.nanoTime())) {
+                hits.increment();
+                return entry;
+            }
+            entries.remove(key, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void completeLoad(K key, CompletableFuture<V> load, V value) {
+        loads.increment();
+        // only store while the load is still registered, an invalidation detaches it, and
+        // store before we stop coalescing so later callers find the entry
+        loading.computeIfPresent(key, (k, current) -> {
+            if (current != load)
+                return current;
+            store(key, value);
+            return null;
+        });
+        load.complete(value);
+    }
+
+    private void store(K key, V value) {
+        long ttl = value != null ? ttlNanos : negativeTtlNanos;
+        if (ttl <= 0)
+            return;
+
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttl));
+        if (entries.size() > maxSize)
+            evict();
+    }
+
+    private void evict() {
+        // one evicting thread is plenty, everyone else carries on
+        if (!evicting.compareAndSet(false, true))
+            return;
+
+        try {
+            long now = System.nanoTime();
+            entries.entrySet().removeIf(e -> {
+                boolean expired = e.getValue().isExpired(now);
+                if (expired)
+                    evictions.increment();
+                return expired;
+            });
+
+            int target = (int) (maxSize * EVICTION_LOW_WATER_MARK);
+            int excess = entries.size() - target;
+            if (excess > 0) {
+                List<Map.Entry<K, Entry<V>>> candidates = new ArrayList<>(entries.entrySet());
+                candidates.sort(Comparator.comparingLong(e -> e.getValue().expiresAt));
+                for (int i = 0; i < excess && i < candidates.size(); i++) {
+                    Map.Entry<K, Entry<V>> candidate = candidates.get(i);
+                    if (entries.remove(candidate.getKey(), candidate.getValue()))
+                        evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load, long timeoutMillis,
+                               Function<TimeoutException, ? extends RuntimeException> onTimeout) {
+        try {
+            if (timeoutMillis <= 0 || onTimeout == null)
+                return load.join();
+            return load.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (CompletionException | ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new CompletionException(cause);
+        } catch (TimeoutException e) {
+            throw onTimeout.apply(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+}
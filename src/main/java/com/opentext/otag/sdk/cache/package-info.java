@@ -0,0 +1,5 @@
+/**
+ * This package contains the small, bounded in-memory caches the SDK clients use to
+ * keep the Gateway off the critical path of frequently repeated lookups.
+ */
+package com.opentext.otag.sdk.cache;
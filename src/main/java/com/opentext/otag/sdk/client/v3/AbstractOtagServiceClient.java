@@ -5,11 +5,14 @@ package com.opentext.otag.sdk.client.v3;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.opentext.otag.sdk.ConfigChangeListener;
 import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.SdkReply;
+import com.opentext.otag.sdk.ServiceConfigProvider;
 import com.opentext.otag.sdk.bus.SdkEventBusLog;
 import com.opentext.otag.sdk.bus.SdkQueueEvent;
-import com.opentext.otag.sdk.bus.SdkQueueManager;
+import com.opentext.otag.sdk.metrics.EndpointMetrics;
+import com.opentext.otag.sdk.metrics.SdkMetrics;
 import com.opentext.otag.sdk.types.v3.ErrorResponseWrapper;
 import com.opentext.otag.sdk.types.v3.api.SDKCallInfo;
 import com.opentext.otag.sdk.types.v3.api.SDKResponse;
@@ -19,17 +22,31 @@ import com.opentext.otag.service.context.AWConfig;
 import com.opentext.otag.service.context.AWConfigFactory;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * This class provides the base implementation for an AppWorks Service REST client.
@@ -40,7 +57,13 @@ import java.util.Map;
  * A Service client implementation's methods tend to return null, empty collections or false
  * when they fail depending on the type of action they are performing. Exceptions are logged at
  * the ERROR level. The service clients make use of the Jersey implementation of the standard
- * JAX-RS {@link Client}, and use the Jackson library for JSON marshalling.
+ * JAX-RS {@link Client}, and use the Jackson library for JSON marshalling. Unless given a
+ * client of their own, they share a single pooled {@link SharedHttpTransport}.
+ * <p>
+ * Calls made over the SDK event bus are offered in blocking and non-blocking
+ * ({@link CompletableFuture} based) flavours, the latter do not hold the calling
+ * thread while the Gateway processes the request. Every such call is recorded in the
+ * {@link SdkMetrics} for its endpoint.
  *
  * @author Rhys Evans rhyse@opentext.com
  * @version 16.2
@@ -55,26 +78,47 @@ public class AbstractOtagServiceClient {
     private static final String OTAGTOKEN_HEADER = "otagtoken";
 
     /**
-     * Jersey client used to facilitate communications with the OTAG service endpoints.
+     * Default time we are prepared to wait for the Gateway to respond to an SDK request,
+     * zero, we wait indefinitely unless a deadline is set via
+     * {@link #setRequestTimeoutMillis(long)} or passed to the call.
+     */
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 0L;
+
+    /**
+     * Jersey client used to facilitate communications with the OTAG service endpoints,
+     * null to use the {@link SharedHttpTransport} client current at the time of each call.
      */
     protected Client restClient;
 
     /**
      * Shared secret, between Gateway and the AppWorks service.
      */
-    protected String appKey;
+    protected volatile String appKey;
 
     /**
      * Unique name of the app.
      */
-    protected String appName;
+    protected volatile String appName;
 
     protected String persistenceContext = "OTAG";
 
     /**
      * URL we should use for Gateway service APIs.
      */
-    private String managingOtagUrl;
+    private volatile String managingOtagUrl;
+
+    /**
+     * Deadline applied to SDK requests made by this client, zero or less means we wait
+     * indefinitely for the Gateway.
+     */
+    private volatile long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+
+    /**
+     * How much call detail successful requests keep.
+     */
+    private volatile DiagnosticsMode diagnosticsMode = DiagnosticsMode.FULL;
+
+    private volatile int diagnosticsSampleRate = 100;
 
     /**
      * A factory used to configure how the {@link AWConfig} instances
@@ -83,6 +127,11 @@ public class AbstractOtagServiceClient {
      */
     private AWConfigFactory configurationLoaderFactory;
 
+    /**
+     * Picks up deployment config changes, we hold the only strong reference to it.
+     */
+    private final ConfigChangeListener configListener = (previous, current) -> refreshConfig();
+
     /**
      * Used to resolve JSON responses into our SDK types.
      */
@@ -95,10 +144,10 @@ public class AbstractOtagServiceClient {
      * to understand how we should be communicating with our managing Gateway instance.
      */
     public AbstractOtagServiceClient() {
-        configurationLoaderFactory = AWConfigFactory.defaultFactory();
-        restClient = ClientBuilder.newClient().register(JacksonJsonProvider.class);
+        configurationLoaderFactory = ServiceConfigProvider.getInstance().asFactory();
         // read config from deployment meta-data file created by managing service
         setConfig();
+        ServiceConfigProvider.getInstance().addListener(configListener);
     }
 
     /**
@@ -113,6 +162,7 @@ public class AbstractOtagServiceClient {
         this.configurationLoaderFactory = configurationLoaderFactory;
 
         setConfig();
+        ServiceConfigProvider.getInstance().addListener(configListener);
     }
 
     public String getAppName() {
@@ -149,8 +199,28 @@ public class AbstractOtagServiceClient {
         this.managingOtagUrl = managingOtagUrl;
     }
 
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    /**
+     * Set the default deadline for SDK requests made by this client. Requests that
+     * are not answered in time fail with a {@link SdkRequestTimeoutException}.
+     *
+     * @param requestTimeoutMillis timeout in milliseconds, zero or less to wait indefinitely
+     */
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    /**
+     * @return the client this one was given, or else the shared transport's client, which
+     * is looked up every time so a {@link SharedHttpTransport#shutdown()} does not leave
+     * us holding a closed one
+     */
     public Client getRestClient() {
-        return restClient;
+        Client injected = restClient;
+        return injected != null ? injected : SharedHttpTransport.getClient();
     }
 
     // overwrite REST client for testing purposes
@@ -185,7 +255,7 @@ public class AbstractOtagServiceClient {
     }
 
     protected WebTarget getTarget(String registerUrl) {
-        return restClient.target(UrlPathUtil.getBaseUrl(registerUrl))
+        return getRestClient().target(UrlPathUtil.getBaseUrl(registerUrl))
                 .path(UrlPathUtil.getPath(registerUrl));
     }
 
@@ -205,6 +275,34 @@ public class AbstractOtagServiceClient {
         return HTTP_ERROR_STATUS_CODES.contains(status);
     }
 
+    public DiagnosticsMode getDiagnosticsMode() {
+        return diagnosticsMode;
+    }
+
+    /**
+     * Set how much call detail successful requests carry in their {@link SDKCallInfo},
+     * failures always carry full detail.
+     *
+     * @param diagnosticsMode diagnostics mode
+     */
+    public void setDiagnosticsMode(DiagnosticsMode diagnosticsMode) {
+        this.diagnosticsMode = Objects.requireNonNull(diagnosticsMode);
+    }
+
+    public int getDiagnosticsSampleRate() {
+        return diagnosticsSampleRate;
+    }
+
+    /**
+     * @param diagnosticsSampleRate in {@link DiagnosticsMode#SAMPLED} mode capture one in
+     *                              this many successful calls
+     */
+    public void setDiagnosticsSampleRate(int diagnosticsSampleRate) {
+        if (diagnosticsSampleRate < 1)
+            throw new IllegalArgumentException("Sample rate must be positive");
+        this.diagnosticsSampleRate = diagnosticsSampleRate;
+    }
+
     /**
      * Perform a POST via the SDK that results in a boolean outcome.
      *
@@ -225,6 +323,27 @@ public class AbstractOtagServiceClient {
                 .post(requestEntity);
 
         int responseStatus = response.getStatus();
+        DiagnosticsMode mode = diagnosticsMode;
+        if (mode == DiagnosticsMode.SAMPLED)
+            mode = ThreadLocalRandom.current().nextInt(diagnosticsSampleRate) == 0
+                    ? DiagnosticsMode.FULL : DiagnosticsMode.OFF;
+
+        // failures always need the body, so only successes take the cheaper routes
+        if (!isErrorStatus(responseStatus)) {
+            if (mode == DiagnosticsMode.OFF) {
+                discardEntity(response);
+                return new SDKResponse(true, new SDKCallInfo(requestUrl, Collections.emptyMap(),
+                        responseStatus, Collections.emptyMap(), null));
+            } else if (mode == DiagnosticsMode.LAZY) {
+                // take the bytes now so the connection goes back to the pool, decoding can wait
+                MultivaluedMap<String, Object> responseHeaders = response.getHeaders();
+                Charset charset = charsetOf(response);
+                byte[] responseBody = readEntityBytes(response);
+                return new LazyCallInfoResponse(requestUrl, requestHeaders, responseStatus, responseHeaders,
+                        responseBody, charset, this::toHashMap);
+            }
+        }
+
         String responseBody = response.readEntity(String.class);
         MultivaluedMap<String, Object> responseHeaders = response.getHeaders();
         validateResponse(requestUrl, requestHeaders, responseStatus, responseBody, responseHeaders);
@@ -233,6 +352,49 @@ public class AbstractOtagServiceClient {
                 toHashMap(responseHeaders), responseBody));
     }
 
+    /**
+     * Read and drop a response body we have no use for, so the connection can be reused.
+     */
+    private static void discardEntity(Response response) {
+        try {
+            if (response.hasEntity()) {
+                try (InputStream entityStream = response.readEntity(InputStream.class)) {
+                    byte[] buffer = new byte[4096];
+                    while (entityStream.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            }
+        } catch (IOException ignore) {
+            // the connection will not be reused, nothing else to do
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Read a response body as bytes and close the response, releasing its connection.
+     *
+     * @return the body, null if there was none
+     */
+    private static byte[] readEntityBytes(Response response) {
+        try {
+            return response.hasEntity() ? response.readEntity(byte[].class) : null;
+        } finally {
+            response.close();
+        }
+    }
+
+    private static Charset charsetOf(Response response) {
+        MediaType mediaType = response.getMediaType();
+        String charset = mediaType != null ? mediaType.getParameters().get(MediaType.CHARSET_PARAMETER) : null;
+        try {
+            return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
     private Map<String, Object> toHashMap(MultivaluedMap<String, Object>  multivaluedMap) {
         Map<String, Object> map = new HashMap<>();
         if (multivaluedMap == null) {
@@ -261,46 +423,253 @@ public class AbstractOtagServiceClient {
     }
 
     protected SDKResponse sendSdkEventAndGetResponse(SdkQueueEvent sdkEvt) {
+        return sendSdkEventAndGetResponse(sdkEvt, requestTimeoutMillis);
+    }
+
+    /**
+     * Send an SDK event to the Gateway and wait for its response.
+     *
+     * @param sdkEvt        SDK request event
+     * @param timeoutMillis per-call deadline, overriding the client default, zero or less waits indefinitely
+     * @return SDK response
+     * @throws SdkRequestTimeoutException if the Gateway does not respond in time
+     * @throws APIException               if the Gateway returns an error
+     */
+    protected SDKResponse sendSdkEventAndGetResponse(SdkQueueEvent sdkEvt, long timeoutMillis) {
+        return timed(sdkEvt, () -> {
+            String sdkEventIdentifier = dispatchSdkEvent(sdkEvt);
+            return checkSdkResponse(awaitSdkResponse(sdkEvt, sdkEventIdentifier, timeoutMillis));
+        });
+    }
+
+    /**
+     * Send an SDK event to the Gateway and wait for its reply, leaving it to the caller to
+     * decide what an error reply means.
+     *
+     * @param sdkEvt SDK request event
+     * @return the Gateway's reply
+     * @throws SdkRequestTimeoutException if the Gateway does not respond in time
+     */
+    protected SdkReply sendSdkEventAndGetReply(SdkQueueEvent sdkEvt) {
+        long timeoutMillis = requestTimeoutMillis;
+        return timed(sdkEvt, () -> awaitSdkResponse(sdkEvt, dispatchSdkEvent(sdkEvt), timeoutMillis));
+    }
+
+    protected <T> T sendSdkEventAndGetTypedResponse(SdkQueueEvent sdkEvt, Class<T> type) {
+        return sendSdkEventAndGetTypedResponse(sdkEvt, type, requestTimeoutMillis);
+    }
+
+    /**
+     * Send an SDK event to the Gateway and wait for a typed response body.
+     *
+     * @param sdkEvt        SDK request event
+     * @param type          expected response body type
+     * @param timeoutMillis per-call deadline, overriding the client default, zero or less waits indefinitely
+     * @param <T>           response body type
+     * @return the response body, or null if there was none
+     * @throws SdkRequestTimeoutException if the Gateway does not respond in time
+     */
+    protected <T> T sendSdkEventAndGetTypedResponse(SdkQueueEvent sdkEvt, Class<T> type, long timeoutMillis) {
+        return timed(sdkEvt, () -> {
+            String sdkEventIdentifier = dispatchSdkEvent(sdkEvt);
+            return awaitSdkResponse(sdkEvt, sdkEventIdentifier, timeoutMillis).getBody(type).orElse(null);
+        });
+    }
+
+    /**
+     * Non-blocking version of {@link #sendSdkEventAndGetResponse(SdkQueueEvent)}. The event is
+     * sent to the Gateway and its reply collected on the SDK response executor, so the caller
+     * is free to carry on (or compose further calls). Failures, including a full executor, are
+     * reported through the future rather than thrown.
+     *
+     * @param sdkEvt SDK request event
+     * @return future that completes with the SDK response, or exceptionally with an {@link APIException}
+     */
+    protected CompletableFuture<SDKResponse> sendSdkEventAsync(SdkQueueEvent sdkEvt) {
+        return sendSdkEventAsync(sdkEvt, requestTimeoutMillis);
+    }
+
+    /**
+     * Non-blocking version of {@link #sendSdkEventAndGetResponse(SdkQueueEvent, long)}.
+     *
+     * @param sdkEvt        SDK request event
+     * @param timeoutMillis per-call deadline, measured from this call
+     * @return future that completes with the SDK response, or exceptionally with an {@link APIException}
+     */
+    protected CompletableFuture<SDKResponse> sendSdkEventAsync(SdkQueueEvent sdkEvt, long timeoutMillis) {
+        long sentAt = System.nanoTime();
+        return timedAsync(sdkEvt, sdkEventIdentifier -> checkSdkResponse(awaitSdkResponse(sdkEvt,
+                sdkEventIdentifier, remainingMillis(sentAt, timeoutMillis))));
+    }
+
+    /**
+     * Non-blocking version of {@link #sendSdkEventAndGetTypedResponse(SdkQueueEvent, Class)}.
+     *
+     * @param sdkEvt SDK request event
+     * @param type   expected response body type
+     * @param <T>    response body type
+     * @return future that completes with the response body (null if there was none), or
+     * exceptionally with an {@link APIException}
+     */
+    protected <T> CompletableFuture<T> sendSdkEventAsync(SdkQueueEvent sdkEvt, Class<T> type) {
+        return sendSdkEventAsync(sdkEvt, type, requestTimeoutMillis);
+    }
+
+    /**
+     * Non-blocking version of {@link #sendSdkEventAndGetTypedResponse(SdkQueueEvent, Class, long)}.
+     *
+     * @param sdkEvt        SDK request event
+     * @param type          expected response body type
+     * @param timeoutMillis per-call deadline, measured from this call
+     * @param <T>           response body type
+     * @return future that completes with the response body (null if there was none), or
+     * exceptionally with an {@link APIException}
+     */
+    protected <T> CompletableFuture<T> sendSdkEventAsync(SdkQueueEvent sdkEvt, Class<T> type, long timeoutMillis) {
+        long sentAt = System.nanoTime();
+        return timedAsync(sdkEvt, sdkEventIdentifier -> awaitSdkResponse(sdkEvt, sdkEventIdentifier,
+                remainingMillis(sentAt, timeoutMillis)).getBody(type).orElse(null));
+    }
+
+    /**
+     * Non-blocking version of {@link #sendSdkEventAndGetReply(SdkQueueEvent)}.
+     *
+     * @param sdkEvt SDK request event
+     * @return future that completes with the Gateway's reply
+     */
+    protected CompletableFuture<SdkReply> sendSdkEventForReplyAsync(SdkQueueEvent sdkEvt) {
+        long sentAt = System.nanoTime();
+        long timeoutMillis = requestTimeoutMillis;
+        return timedAsync(sdkEvt, sdkEventIdentifier -> awaitSdkResponse(sdkEvt, sdkEventIdentifier,
+                remainingMillis(sentAt, timeoutMillis)));
+    }
+
+    /**
+     * Wait for an SDK future to complete, unwrapping the failure it completed with.
+     *
+     * @param future SDK future
+     * @param <T>    result type
+     * @return the future's result
+     * @throws APIException if the future failed
+     */
+    protected static <T> T await(CompletableFuture<T> future) {
         try {
-            String sdkEventIdentifier = sdkEvt.getSdkEventIdentifier();
-
-            SdkEventBusLog.info("Sending SDK request from service " + sdkEvt.getSdkEventIdentifier());
-            SdkEventBusLog.info("SDK event id for new request to "  + sdkEvt.getSdkRequest().getEndpointId() +
-                            " was " + sdkEventIdentifier);
-
-            SdkEventCallbackHandler.getSdkCallbackMgr().prepareForResponse(sdkEventIdentifier);
-            SdkQueueManager.sendEventToGateway(sdkEvt);
-            SdkQueueEvent responseForEvent = SdkEventCallbackHandler.getSdkCallbackMgr()
-                    .getResponseForEvent(sdkEventIdentifier);
-            SDKResponse sdkResponse = responseForEvent.getSdkResponse();
-
-            if (sdkResponse != null && !sdkResponse.isSuccess()) {
-                Object responseBody = sdkResponse.getResponseBody();
-                if (responseBody instanceof Throwable) {
-                    Throwable asErr = (Throwable) responseBody;
-                    throw new APIException("SDK error response received - " + asErr.getMessage(), asErr);
-                }
-            }
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new APIException("SDK request failed - " + cause.getMessage(), cause);
+        }
+    }
 
-            return sdkResponse;
-        } catch (InterruptedException e) {
-            throw new APIException("SDK client was interrupted waiting for response from sdk", e);
+    /**
+     * Make a blocking SDK call, recording it against the endpoint's {@link SdkMetrics}.
+     */
+    private <T> T timed(SdkQueueEvent sdkEvt, Supplier<T> call) {
+        EndpointMetrics metrics = SdkMetrics.getInstance().endpoint(sdkEvt.getSdkRequest().getEndpointId());
+        long start = metrics.begin();
+        try {
+            T result = call.get();
+            metrics.end(start, null);
+            return result;
+        } catch (RuntimeException | Error e) {
+            metrics.end(start, e);
+            throw e;
         }
     }
 
-    protected <T> T sendSdkEventAndGetTypedResponse(SdkQueueEvent sdkEvt, Class<T> type) {
+    /**
+     * Send an SDK event and collect its reply on the SDK response executor, recording the
+     * call against the endpoint's {@link SdkMetrics} once it completes. Nothing is thrown
+     * to the caller, failures to send (or to get the call onto the executor) complete the
+     * returned future exceptionally.
+     *
+     * @param sdkEvt     SDK request event
+     * @param awaitReply collects the reply given the event id
+     * @param <T>        result type
+     * @return future result
+     */
+    private <T> CompletableFuture<T> timedAsync(SdkQueueEvent sdkEvt, Function<String, T> awaitReply) {
+        EndpointMetrics metrics = SdkMetrics.getInstance().endpoint(sdkEvt.getSdkRequest().getEndpointId());
+        long start = metrics.begin();
+
+        CompletableFuture<T> reply;
+        try {
+            reply = CompletableFuture.supplyAsync(() -> awaitReply.apply(dispatchSdkEvent(sdkEvt)),
+                    SdkEventCallbackHandler.getSdkResponseExecutor());
+        } catch (RejectedExecutionException e) {
+            reply = new CompletableFuture<>();
+            reply.completeExceptionally(new APIException("Too many SDK requests outstanding, request to " +
+                    sdkEvt.getSdkRequest().getEndpointId() + " was rejected", e));
+        }
+
+        reply.whenComplete((result, err) ->
+                metrics.end(start, err instanceof CompletionException ? err.getCause() : err));
+        return reply;
+    }
+
+    /**
+     * Register interest in the response to the supplied event and send it to the Gateway.
+     *
+     * @param sdkEvt SDK request event
+     * @return the identifier we can use to collect the response
+     */
+    private String dispatchSdkEvent(SdkQueueEvent sdkEvt) {
+        String sdkEventIdentifier = sdkEvt.getSdkEventIdentifier();
+
+        SdkEventBusLog.info("Sending SDK request from service " + sdkEvt.getSdkEventIdentifier());
+        SdkEventBusLog.info("SDK event id for new request to "  + sdkEvt.getSdkRequest().getEndpointId() +
+                " was " + sdkEventIdentifier);
+
+        SdkEventCallbackHandler.prepareForResponse(sdkEventIdentifier);
+        try {
+            SdkEventCallbackHandler.sendEvent(sdkEvt);
+        } catch (RuntimeException e) {
+            SdkEventCallbackHandler.abandonResponse(sdkEventIdentifier);
+            throw e;
+        }
+
+        return sdkEventIdentifier;
+    }
+
+    private SdkReply awaitSdkResponse(SdkQueueEvent sdkEvt, String sdkEventIdentifier, long timeoutMillis) {
         try {
-            String sdkEventIdentifier = sdkEvt.getSdkEventIdentifier();
-            SdkEventCallbackHandler.getSdkCallbackMgr().prepareForResponse(sdkEventIdentifier);
-            SdkQueueManager.sendEventToGateway(sdkEvt);
-            SdkQueueEvent responseForEvent = SdkEventCallbackHandler.getSdkCallbackMgr()
-                    .getResponseForEvent(sdkEventIdentifier);
-            return SdkQueueEvent.extractBodyFromResponse(responseForEvent, type).orElse(null);
+            return SdkEventCallbackHandler.awaitResponse(sdkEventIdentifier, timeoutMillis);
+        } catch (TimeoutException e) {
+            throw new SdkRequestTimeoutException(sdkEvt.getSdkRequest().getEndpointId(), timeoutMillis, e);
         } catch (InterruptedException e) {
-            throw new APIException("client was interrupted waiting for response from sdk", e);
+            throw new APIException("SDK client was interrupted waiting for response from sdk", e);
         }
     }
 
+    /**
+     * Work out how much of a deadline is left, we never return zero for a deadline that
+     * was set as that would mean "wait forever".
+     */
+    private static long remainingMillis(long startNanos, long timeoutMillis) {
+        if (timeoutMillis <= 0)
+            return timeoutMillis;
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return Math.max(1, timeoutMillis - elapsedMillis);
+    }
+
+    /**
+     * @param reply the Gateway's reply
+     * @return the SDK response it carries
+     * @throws APIException if the Gateway replied with an error
+     */
+    protected SDKResponse checkSdkResponse(SdkReply reply) {
+        Optional<Throwable> error = reply.getError();
+        if (error.isPresent()) {
+            Throwable asErr = error.get();
+            throw new APIException("SDK error response received - " + asErr.getMessage(), asErr);
+        }
+
+        return reply.getSdkResponse();
+    }
+
     private void setConfig() {
         AWConfig appWorksConfig = configurationLoaderFactory.getConfig();
         appName = appWorksConfig.getAppName();
@@ -313,6 +682,20 @@ public class AbstractOtagServiceClient {
                     "initialised correctly by the Gateway");
     }
 
+    /**
+     * Pick up a reloaded deployment config, values set explicitly on this client are
+     * replaced by those in the new config.
+     */
+    private void refreshConfig() {
+        AWConfig appWorksConfig = configurationLoaderFactory.getConfig();
+        if (appWorksConfig == null || appWorksConfig.getAppKey() == null || appWorksConfig.getGatewayUrl() == null)
+            return;
+
+        appName = appWorksConfig.getAppName();
+        appKey = appWorksConfig.getAppKey();
+        managingOtagUrl = appWorksConfig.getGatewayUrl();
+    }
+
     /**
      * Process a non 200 status API response. The supplied details are packaged in the
      * status relevant {@link APIException} type, and a {@link SDKCallInfo} instance
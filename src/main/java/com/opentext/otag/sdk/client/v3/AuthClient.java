@@ -5,6 +5,9 @@ package com.opentext.otag.sdk.client.v3;
 
 import com.opentext.otag.sdk.bus.SdkEventKeys;
 import com.opentext.otag.sdk.bus.SdkQueueEvent;
+import com.opentext.otag.sdk.cache.ExpiringCache;
+import com.opentext.otag.sdk.connector.EIMConnectorService;
+import com.opentext.otag.sdk.handlers.AuthHandlerDescriptors;
 import com.opentext.otag.sdk.handlers.AuthRequestHandler;
 import com.opentext.otag.sdk.types.v3.api.SDKResponse;
 import com.opentext.otag.sdk.types.v3.api.error.APIException;
@@ -15,7 +18,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * AppWorks Deployments Service API client designed to work with the auth mechanism the
@@ -24,6 +39,10 @@ import java.util.Objects;
  * <p>
  * There is also functionality to allow you to retrieve information about users you already
  * know about, and to register {@link AuthRequestHandler}s if your service contains any.
+ * <p>
+ * Token to user resolution can optionally be cached, see {@link #enableUserCache}, which
+ * takes the Gateway off the critical path for requests that present a token we have
+ * recently seen.
  *
  * @author Rhys Evans rhyse@opentext.com
  * @version 16.2
@@ -36,6 +55,28 @@ public class AuthClient extends AbstractOtagServiceClient {
 
     public static final String ID_SERVICE_PATH = OTAG_DEPLOYMENTS_SERVICE_PATH + "auth/";
 
+    /**
+     * Most lookups a bulk call keeps in flight at once. The rest wait their turn, so a
+     * large batch cannot fill the shared response executor and have its own lookups (or
+     * anyone else's) rejected.
+     */
+    private static final int MAX_CONCURRENT_LOOKUPS = 16;
+
+    /**
+     * Optional cache of otagtoken to user, null when caching is switched off.
+     */
+    private volatile ExpiringCache<String, AuthorizedUser> userCache;
+
+    /**
+     * Optional cache of username to OTDS group membership, null when caching is switched off.
+     */
+    private volatile ExpiringCache<String, GroupMembership> groupCache;
+
+    /**
+     * Optional cache of username to profile, null when caching is switched off.
+     */
+    private volatile ExpiringCache<String, UserProfile> profileCache;
+
     public AuthClient() {
         super();
     }
@@ -54,11 +95,82 @@ public class AuthClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public AuthorizedUser getUserForToken(String otagToken) {
-        SdkQueueEvent getUserEvt = SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.AUTH_GET_TOKEN_FOR_USER, otagToken),
-                getAppName(), getPersistenceContext());
+        return getUserForToken(otagToken, getRequestTimeoutMillis());
+    }
+
+    /**
+     * Get the user for the supplied otagToken, waiting no longer than the supplied deadline.
+     *
+     * @param otagToken     otag token
+     * @param timeoutMillis deadline for this call, overrides the client default
+     * @return a user
+     * @throws SdkRequestTimeoutException if the Gateway does not respond in time
+     * @throws APIException               if a non 200 response is received
+     */
+    public AuthorizedUser getUserForToken(String otagToken, long timeoutMillis) {
+        ExpiringCache<String, AuthorizedUser> cache = userCache;
+        if (cache != null && otagToken != null)
+            return cache.get(otagToken, token -> sendSdkEventAndGetTypedResponse(
+                    getUserForTokenEvent(token), AuthorizedUser.class, timeoutMillis), timeoutMillis,
+                    timedOut -> new SdkRequestTimeoutException(SdkEventKeys.AUTH_GET_TOKEN_FOR_USER,
+                            timeoutMillis, timedOut));
+
+        return sendSdkEventAndGetTypedResponse(getUserForTokenEvent(otagToken), AuthorizedUser.class,
+                timeoutMillis);
+    }
+
+    /**
+     * Non-blocking version of {@link #getUserForToken(String)}.
+     *
+     * @param otagToken otag token
+     * @return future user
+     */
+    public CompletableFuture<AuthorizedUser> getUserForTokenAsync(String otagToken) {
+        ExpiringCache<String, AuthorizedUser> cache = userCache;
+        if (cache != null && otagToken != null)
+            return cache.getAsync(otagToken,
+                    token -> sendSdkEventAsync(getUserForTokenEvent(token), AuthorizedUser.class));
+
+        return sendSdkEventAsync(getUserForTokenEvent(otagToken), AuthorizedUser.class);
+    }
 
-        return sendSdkEventAndGetTypedResponse(getUserEvt, AuthorizedUser.class);
+    /**
+     * Switch on caching of token to user lookups. Concurrent lookups for the same token
+     * are coalesced into a single Gateway request, and tokens the Gateway does not
+     * recognise are remembered for the (usually shorter) negative time to live.
+     * Calling this again replaces the current cache.
+     *
+     * @param maxSize           maximum number of tokens to remember
+     * @param ttlMillis         how long a resolved user is cached for
+     * @param negativeTtlMillis how long an unknown token is remembered for, zero or less to
+     *                          always ask the Gateway about unknown tokens
+     */
+    public void enableUserCache(int maxSize, long ttlMillis, long negativeTtlMillis) {
+        userCache = new ExpiringCache<>(maxSize, ttlMillis, negativeTtlMillis);
+    }
+
+    public void disableUserCache() {
+        userCache = null;
+    }
+
+    /**
+     * Get the token to user cache, which exposes hit rate and other statistics.
+     *
+     * @return the cache, or null if caching is switched off
+     */
+    public ExpiringCache<String, AuthorizedUser> getUserCache() {
+        return userCache;
+    }
+
+    /**
+     * Forget what we know about a token, a logout for instance.
+     *
+     * @param otagToken otag token
+     */
+    public void invalidateToken(String otagToken) {
+        ExpiringCache<String, AuthorizedUser> cache = userCache;
+        if (cache != null && otagToken != null)
+            cache.invalidate(otagToken);
     }
 
     /**
@@ -70,14 +182,113 @@ public class AuthClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public UserGroupIdList getUsersGroupIds(User user) {
+        return sendSdkEventAndGetTypedResponse(getUsersGroupIdsEvent(user), UserGroupIdList.class);
+    }
+
+    /**
+     * Non-blocking version of {@link #getUsersGroupIds(User)}.
+     *
+     * @param user user
+     * @return future group ids
+     */
+    public CompletableFuture<UserGroupIdList> getUsersGroupIdsAsync(User user) {
+        return sendSdkEventAsync(getUsersGroupIdsEvent(user), UserGroupIdList.class);
+    }
+
+    /**
+     * OTDS based auth only! Get the OTDS groups the supplied user belongs to, in a form that
+     * supports quick membership checks. Served from the group cache if it is switched on.
+     *
+     * @param user user
+     * @return group membership, empty if the user's groups could not be resolved
+     * @throws APIException if a non 200 response is received
+     * @see #enableGroupCache(int, long)
+     */
+    public GroupMembership getGroupMembership(User user) {
+        return await(getGroupMembershipAsync(user));
+    }
+
+    /**
+     * Non-blocking version of {@link #getGroupMembership(User)}.
+     *
+     * @param user user
+     * @return future group membership
+     */
+    public CompletableFuture<GroupMembership> getGroupMembershipAsync(User user) {
+        ExpiringCache<String, GroupMembership> cache = groupCache;
+        if (cache == null)
+            return getUsersGroupIdsAsync(user).thenApply(GroupMembership::of);
+
         Objects.requireNonNull(user);
         Objects.requireNonNull(user.getUserName());
 
-        SdkQueueEvent getUserGroupsIds = SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.AUTH_LIST_GROUP_USER_IDS, user.getUserName()),
-                getAppName(), getPersistenceContext());
+        // unresolved groups load as null so we do not cache them
+        return cache.getAsync(user.getUserName(),
+                userName -> getUsersGroupIdsAsync(user)
+                        .thenApply(groupIds -> groupIds != null ? GroupMembership.of(groupIds) : null))
+                .thenApply(membership -> membership != null ? membership : GroupMembership.EMPTY);
+    }
 
-        return sendSdkEventAndGetTypedResponse(getUserGroupsIds, UserGroupIdList.class);
+    /**
+     * OTDS based auth only! Resolve the group membership of many users at once. Users held in
+     * the group cache are served from memory, the rest are requested from the Gateway
+     * concurrently rather than one after the other, a bounded number at a time.
+     *
+     * @param users users
+     * @return group membership keyed by username, in the order the users were supplied
+     * @throws APIException if any of the lookups fail
+     */
+    public Map<String, GroupMembership> getUsersGroupIds(Collection<User> users) {
+        Objects.requireNonNull(users);
+
+        Map<String, User> distinctUsers = new LinkedHashMap<>();
+        for (User user : users) {
+            Objects.requireNonNull(user);
+            distinctUsers.putIfAbsent(user.getUserName(), user);
+        }
+
+        Map<String, CompletableFuture<GroupMembership>> lookups =
+                boundedLookups(distinctUsers, this::getGroupMembershipAsync);
+
+        Map<String, GroupMembership> memberships = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<GroupMembership>> lookup : lookups.entrySet())
+            memberships.put(lookup.getKey(), await(lookup.getValue()));
+
+        return memberships;
+    }
+
+    /**
+     * Switch on caching of user group membership. Calling this again replaces the current cache.
+     *
+     * @param maxSize   maximum number of users to remember
+     * @param ttlMillis how long a user's membership is cached for
+     */
+    public void enableGroupCache(int maxSize, long ttlMillis) {
+        groupCache = new ExpiringCache<>(maxSize, ttlMillis, 0);
+    }
+
+    public void disableGroupCache() {
+        groupCache = null;
+    }
+
+    /**
+     * Get the group membership cache, which exposes hit rate and other statistics.
+     *
+     * @return the cache, or null if caching is switched off
+     */
+    public ExpiringCache<String, GroupMembership> getGroupCache() {
+        return groupCache;
+    }
+
+    /**
+     * Forget what we know about a user's groups, use this when you know they have changed.
+     *
+     * @param userName username
+     */
+    public void invalidateGroupMembership(String userName) {
+        ExpiringCache<String, GroupMembership> cache = groupCache;
+        if (cache != null && userName != null)
+            cache.invalidate(userName);
     }
 
     /**
@@ -88,11 +299,104 @@ public class AuthClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public UserProfile getUserProfie(String userName) {
-        SdkQueueEvent getUserGroupsIds = SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.AUTH_GET_USER_PROFILE, userName),
-                getAppName(), getPersistenceContext());
+        ExpiringCache<String, UserProfile> cache = profileCache;
+        if (cache != null && userName != null)
+            return cache.get(userName,
+                    name -> sendSdkEventAndGetTypedResponse(getUserProfileEvent(name), UserProfile.class));
+
+        return sendSdkEventAndGetTypedResponse(getUserProfileEvent(userName), UserProfile.class);
+    }
+
+    /**
+     * Non-blocking version of {@link #getUserProfie(String)}.
+     *
+     * @param userName username
+     * @return future user profile, completes with null if no such user exists
+     */
+    public CompletableFuture<UserProfile> getUserProfileAsync(String userName) {
+        ExpiringCache<String, UserProfile> cache = profileCache;
+        if (cache != null && userName != null)
+            return cache.getAsync(userName,
+                    name -> sendSdkEventAsync(getUserProfileEvent(name), UserProfile.class));
 
-        return sendSdkEventAndGetTypedResponse(getUserGroupsIds, UserProfile.class);
+        return sendSdkEventAsync(getUserProfileEvent(userName), UserProfile.class);
+    }
+
+    /**
+     * Get the profiles for many users at once. Profiles held in the profile cache are served
+     * from memory, the rest are requested from the Gateway concurrently, a bounded number at a time.
+     *
+     * @param userNames usernames
+     * @return profiles keyed by username, in the order supplied, users without a profile are omitted
+     * @throws APIException if any of the lookups fail
+     * @see #enableProfileCache(int, long)
+     */
+    public Map<String, UserProfile> getUserProfiles(Collection<String> userNames) {
+        return await(getUserProfilesAsync(userNames));
+    }
+
+    /**
+     * Non-blocking version of {@link #getUserProfiles(Collection)}.
+     *
+     * @param userNames usernames
+     * @return future profiles keyed by username
+     */
+    public CompletableFuture<Map<String, UserProfile>> getUserProfilesAsync(Collection<String> userNames) {
+        Objects.requireNonNull(userNames);
+
+        Map<String, String> distinctNames = new LinkedHashMap<>();
+        for (String userName : userNames) {
+            if (userName != null)
+                distinctNames.putIfAbsent(userName, userName);
+        }
+
+        Map<String, CompletableFuture<UserProfile>> lookups =
+                boundedLookups(distinctNames, this::getUserProfileAsync);
+
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[lookups.size()]))
+                .thenApply(done -> {
+                    Map<String, UserProfile> profiles = new LinkedHashMap<>();
+                    for (Map.Entry<String, CompletableFuture<UserProfile>> lookup : lookups.entrySet()) {
+                        UserProfile profile = lookup.getValue().join();
+                        if (profile != null)
+                            profiles.put(lookup.getKey(), profile);
+                    }
+                    return profiles;
+                });
+    }
+
+    /**
+     * Switch on caching of user profiles. Calling this again replaces the current cache.
+     *
+     * @param maxSize   maximum number of profiles to remember
+     * @param ttlMillis how long a profile is cached for
+     */
+    public void enableProfileCache(int maxSize, long ttlMillis) {
+        profileCache = new ExpiringCache<>(maxSize, ttlMillis, 0);
+    }
+
+    public void disableProfileCache() {
+        profileCache = null;
+    }
+
+    /**
+     * Get the profile cache, which exposes hit rate and other statistics.
+     *
+     * @return the cache, or null if caching is switched off
+     */
+    public ExpiringCache<String, UserProfile> getProfileCache() {
+        return profileCache;
+    }
+
+    /**
+     * Forget a cached user profile, use this when you know it has changed.
+     *
+     * @param userName username
+     */
+    public void invalidateUserProfile(String userName) {
+        ExpiringCache<String, UserProfile> cache = profileCache;
+        if (cache != null && userName != null)
+            cache.invalidate(userName);
     }
 
     /**
@@ -106,12 +410,188 @@ public class AuthClient extends AbstractOtagServiceClient {
      * @see com.opentext.otag.sdk.handlers.AuthRequestHandler
      */
     public SDKResponse registerAuthHandlers(RegisterAuthHandlersRequest request) {
-        SdkQueueEvent registerHandlerEvt = SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.AUTH_REGISTER_AUTH_HANDLERS, request),
+        return sendSdkEventAndGetResponse(registerAuthHandlersEvent(request));
+    }
+
+    /**
+     * Non-blocking version of {@link #registerAuthHandlers(RegisterAuthHandlersRequest)}.
+     *
+     * @param request handler registration request
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> registerAuthHandlersAsync(RegisterAuthHandlersRequest request) {
+        return sendSdkEventAsync(registerAuthHandlersEvent(request));
+    }
+
+    /**
+     * Register a set of auth handlers with the Gateway in a single request, without waiting
+     * on any back-end. Handlers are registered with the descriptors available now, see
+     * {@link AuthHandlerDescriptors#describe(AuthRequestHandler)}. If some of them are still
+     * having their OTDS resource id resolved in the background, the whole set is registered
+     * again once those lookups are done, provided at least one of them found its id.
+     *
+     * @param handlers auth handlers, handlers of the same class are registered once
+     * @return future sdk response to the first registration
+     * @see AuthHandlerDescriptors
+     */
+    public CompletableFuture<SDKResponse> registerAuthHandlersAsync(Collection<? extends AuthRequestHandler> handlers) {
+        Objects.requireNonNull(handlers);
+
+        Map<Class<?>, AuthHandler> described = new LinkedHashMap<>();
+        Map<AuthRequestHandler, CompletableFuture<AuthHandler>> resolving = new LinkedHashMap<>();
+        for (AuthRequestHandler handler : handlers) {
+            if (handler == null || described.containsKey(handler.getClass()))
+                continue;
+            described.put(handler.getClass(), AuthHandlerDescriptors.describe(handler));
+            if (handler.resolveUsernamesViaOtdsResource() && !AuthHandlerDescriptors.isDescribed(handler))
+                resolving.put(handler, AuthHandlerDescriptors.describeAsync(handler));
+        }
+
+        CompletableFuture<SDKResponse> registered =
+                registerAuthHandlersAsync(new RegisterAuthHandlersRequest(new LinkedHashSet<>(described.values())));
+
+        if (!resolving.isEmpty()) {
+            // wait for the first registration too, so it cannot land after the second
+            List<CompletableFuture<?>> pending = new ArrayList<>(resolving.values());
+            pending.add(registered);
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                    .whenComplete((done, error) -> registerResolvedAuthHandlers(described, resolving));
+        }
+
+        return registered;
+    }
+
+    /**
+     * Register the auth handlers of all of the supplied EIM connectors in a single request.
+     *
+     * @param connectors EIM connectors, those without an auth handler are ignored
+     * @return future sdk response to the first registration
+     * @see #registerAuthHandlersAsync(Collection)
+     */
+    public CompletableFuture<SDKResponse> registerConnectorAuthHandlersAsync(
+            Collection<? extends EIMConnectorService> connectors) {
+        Objects.requireNonNull(connectors);
+        List<AuthRequestHandler> handlers = connectors.stream()
+                .filter(Objects::nonNull)
+                .map(EIMConnectorService::getAuthHandler)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return registerAuthHandlersAsync(handlers);
+    }
+
+    /**
+     * Start a lookup per input, keeping no more than {@link #MAX_CONCURRENT_LOOKUPS} of
+     * them in flight. Each lookup that finishes starts the next one waiting.
+     *
+     * @param inputs lookup inputs by key, in the order they should be started
+     * @param lookup starts the lookup for one input
+     * @return future results by key, in input order
+     */
+    private static <K, I, V> Map<K, CompletableFuture<V>> boundedLookups(Map<K, I> inputs,
+                                                                        Function<I, CompletableFuture<V>> lookup) {
+        Map<K, CompletableFuture<V>> results = new LinkedHashMap<>();
+        Deque<Map.Entry<I, CompletableFuture<V>>> waiting = new ArrayDeque<>();
+        for (Map.Entry<K, I> input : inputs.entrySet()) {
+            CompletableFuture<V> result = new CompletableFuture<>();
+            results.put(input.getKey(), result);
+            waiting.add(new AbstractMap.SimpleImmutableEntry<>(input.getValue(), result));
+        }
+
+        for (int i = 0; i < MAX_CONCURRENT_LOOKUPS; i++)
+            startNextLookup(waiting, lookup);
+
+        return results;
+    }
+
+    private static <I, V> void startNextLookup(Deque<Map.Entry<I, CompletableFuture<V>>> waiting,
+                                               Function<I, CompletableFuture<V>> lookup) {
+        // loop rather than recurse while lookups complete straight away, cache hits for example
+        while (true) {
+            Map.Entry<I, CompletableFuture<V>> next;
+            synchronized (waiting) {
+                next = waiting.poll();
+            }
+            if (next == null)
+                return;
+
+            CompletableFuture<V> result = next.getValue();
+            CompletableFuture<V> started;
+            try {
+                started = lookup.apply(next.getKey());
+            } catch (RuntimeException e) {
+                started = new CompletableFuture<>();
+                started.completeExceptionally(e);
+            }
+
+            if (!started.isDone()) {
+                started.whenComplete((value, err) -> {
+                    complete(result, value, err);
+                    startNextLookup(waiting, lookup);
+                });
+                return;
+            }
+            started.whenComplete((value, err) -> complete(result, value, err));
+        }
+    }
+
+    private static <V> void complete(CompletableFuture<V> result, V value, Throwable err) {
+        if (err != null) {
+            result.completeExceptionally(err);
+        } else {
+            result.complete(value);
+        }
+    }
+
+    private SdkQueueEvent getUserForTokenEvent(String otagToken) {
+        return SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.AUTH_GET_TOKEN_FOR_USER, otagToken),
+                getAppName(), getPersistenceContext());
+    }
+
+    private SdkQueueEvent getUsersGroupIdsEvent(User user) {
+        Objects.requireNonNull(user);
+        Objects.requireNonNull(user.getUserName());
+
+        return SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.AUTH_LIST_GROUP_USER_IDS, user.getUserName()),
                 getAppName(), getPersistenceContext());
+    }
 
-        return sendSdkEventAndGetResponse(registerHandlerEvt);
+    private SdkQueueEvent getUserProfileEvent(String userName) {
+        return SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.AUTH_GET_USER_PROFILE, userName),
+                getAppName(), getPersistenceContext());
+    }
 
+    /**
+     * Follow up registration of a batch, swapping in the descriptors whose OTDS resource id
+     * has now been resolved.
+     */
+    private void registerResolvedAuthHandlers(Map<Class<?>, AuthHandler> described,
+                                              Map<AuthRequestHandler, CompletableFuture<AuthHandler>> resolving) {
+        Map<Class<?>, AuthHandler> updated = new LinkedHashMap<>(described);
+        boolean resolved = false;
+        for (Map.Entry<AuthRequestHandler, CompletableFuture<AuthHandler>> entry : resolving.entrySet()) {
+            AuthRequestHandler handler = entry.getKey();
+            if (AuthHandlerDescriptors.isDescribed(handler)) {
+                updated.put(handler.getClass(), AuthHandlerDescriptors.describe(handler));
+                resolved = true;
+            } else {
+                LOG.warn("No OTDS resource id for auth handler " + handler.getClass().getName() +
+                        ", it stays registered without one");
+            }
+        }
+        if (!resolved)
+            return;
+
+        registerAuthHandlersAsync(new RegisterAuthHandlersRequest(new LinkedHashSet<>(updated.values())))
+                .whenComplete((response, error) -> {
+                    if (error != null)
+                        LOG.warn("Failed to register auth handlers with their OTDS resource ids - " +
+                                error.getMessage());
+                });
+    }
+
+    private SdkQueueEvent registerAuthHandlersEvent(RegisterAuthHandlersRequest request) {
+        return SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.AUTH_REGISTER_AUTH_HANDLERS, request),
+                getAppName(), getPersistenceContext());
     }
 
     private String getManagementPath(String appName) {
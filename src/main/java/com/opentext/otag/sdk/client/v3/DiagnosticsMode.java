@@ -0,0 +1,43 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.types.v3.api.SDKCallInfo;
+
+/**
+ * How much {@link SDKCallInfo} detail a client keeps about calls that succeed. Failed
+ * calls always carry full detail in the {@link com.opentext.otag.sdk.types.v3.api.error.APIException}
+ * they raise.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see AbstractOtagServiceClient#setDiagnosticsMode(DiagnosticsMode)
+ */
+public enum DiagnosticsMode {
+
+    /**
+     * Capture the headers and body of every call, the default.
+     */
+    FULL,
+
+    /**
+     * Keep hold of the call details but only build the call info when it is asked for. The
+     * response body is read as bytes and the connection released straight away, decoding the
+     * body and copying the headers waits until the call info is first asked for.
+     */
+    LAZY,
+
+    /**
+     * Capture full detail for one in every N calls, see
+     * {@link AbstractOtagServiceClient#setDiagnosticsSampleRate(int)}.
+     */
+    SAMPLED,
+
+    /**
+     * Successful calls carry call info with just the request URL and response status, no
+     * headers or body are captured.
+     */
+    OFF
+
+}
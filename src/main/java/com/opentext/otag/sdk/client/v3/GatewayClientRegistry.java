@@ -3,13 +3,30 @@
  */
 package com.opentext.otag.sdk.client.v3;
 
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.ServiceConfigProvider;
 import com.opentext.otag.sdk.handlers.AWServiceContextHandler;
 import com.opentext.otag.sdk.handlers.AWServiceStartupComplete;
+import com.opentext.otag.service.context.AWConfig;
+import com.opentext.otag.service.context.AWConfigFactory;
 import com.opentext.otag.service.context.components.AWComponent;
 import com.opentext.otag.service.context.components.AWComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.client.Client;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
 /**
  * Convenience class to gain access to the full suite of AppWorks Deployments Service API clients.
  * <p>
@@ -19,6 +36,10 @@ import org.slf4j.LoggerFactory;
  * {@link AWComponentContext}, use:
  * <p>
  * {@link AWComponentContext#getComponent(Class)}
+ * <p>
+ * The deployment config is read once and shared by all of the clients, see
+ * {@link ServiceConfigProvider}. Each client is created the first time it is asked for,
+ * use {@link #init(boolean)} to create them all up front (in parallel) instead.
  *
  * @author Rhys Evans rhyse@opentext.com
  * @version 16.2
@@ -29,16 +50,34 @@ import org.slf4j.LoggerFactory;
 public class GatewayClientRegistry implements AWComponent {
 
     private static final Logger LOG = LoggerFactory.getLogger(GatewayClientRegistry.class);
-    private static GatewayClientRegistry instance;
-    private AuthClient authClient;
-    private MailClient mailClient;
-    private NotificationsClient notificationsClient;
-    private RuntimesClient runtimesClient;
-    private ServiceClient serviceClient;
-    private SettingsClient settingsClient;
-    private TrustedProviderClient trustedProviderClient;
+    private static volatile GatewayClientRegistry instance;
+
+    /**
+     * Config factory handing every client the shared deployment config.
+     */
+    private final AWConfigFactory configFactory = ServiceConfigProvider.getInstance().asFactory();
+
+    /**
+     * How long each client took to construct, keyed by client name.
+     */
+    private final Map<String, Long> constructionTimes = new ConcurrentHashMap<>();
+
+    private final List<LazyClient<?>> clients = new ArrayList<>();
+
+    private final LazyClient<AuthClient> authClient = lazy("AuthClient", AuthClient::new);
+    private final LazyClient<MailClient> mailClient = lazy("MailClient", MailClient::new);
+    private final LazyClient<NotificationsClient> notificationsClient =
+            lazy("NotificationsClient", NotificationsClient::new);
+    private final LazyClient<RuntimesClient> runtimesClient = lazy("RuntimesClient", RuntimesClient::new);
+    private final LazyClient<ServiceClient> serviceClient = lazy("ServiceClient", ServiceClient::new);
+    private final LazyClient<SettingsClient> settingsClient = lazy("SettingsClient", SettingsClient::new);
+    private final LazyClient<TrustedProviderClient> trustedProviderClient =
+            lazy("TrustedProviderClient", TrustedProviderClient::new);
+
     /**
-     * Private singleton constructor, initialises all of our services.
+     * Private singleton constructor, reads the deployment config the clients share. The
+     * clients themselves are created on first use, see {@link #warmUp()} to create them
+     * up front.
      *
      * @throws IllegalStateException if called before the Gateway is ready or the app finds its deployment
      *                               area to be in an invalid state
@@ -46,65 +85,145 @@ public class GatewayClientRegistry implements AWComponent {
     private GatewayClientRegistry() {
         LOG.info("Initializing Gateway Service clients ...");
 
-        LOG.info("Creating AuthClient");
-        authClient = new AuthClient();
-        LOG.info("Creating MailClient");
-        mailClient = new MailClient();
-        LOG.info("Creating NotificationClient");
-        notificationsClient = new NotificationsClient();
-        LOG.info("Creating RuntimesClient");
-        runtimesClient = new RuntimesClient();
-        LOG.info("Creating ServiceClient");
-        serviceClient = new ServiceClient();
-        LOG.info("Creating SettingsClient");
-        settingsClient = new SettingsClient();
-        LOG.info("Creating TrustedProviderClient");
-        trustedProviderClient = new TrustedProviderClient();
+        AWConfig config = ServiceConfigProvider.getInstance().getConfig();
+        if (config == null || config.getAppKey() == null || config.getGatewayUrl() == null)
+            throw new IllegalStateException("Unable to resolve local " +
+                    "management.properties file. The deployment area has not been " +
+                    "initialised correctly by the Gateway");
 
         // once initialised add a reference to the AppWorks context
         AWComponentContext.add(this);
     }
 
     public static GatewayClientRegistry init() {
-        if (instance == null)
-            instance = new GatewayClientRegistry();
+        if (instance == null) {
+            synchronized (GatewayClientRegistry.class) {
+                if (instance == null)
+                    instance = new GatewayClientRegistry();
+            }
+        }
         return instance;
     }
 
+    /**
+     * Initialise the registry, optionally creating all of the clients straight away.
+     *
+     * @param warmUp true to create the clients now, in parallel, rather than on first use
+     * @return the registry
+     */
+    public static GatewayClientRegistry init(boolean warmUp) {
+        GatewayClientRegistry registry = init();
+        if (warmUp)
+            registry.warmUp();
+        return registry;
+    }
+
     private static GatewayClientRegistry instance() {
         if (instance == null)
             throw new IllegalStateException("Please init() before using the services");
         return instance;
     }
 
+    /**
+     * Create any clients that have not been created yet, in parallel, waiting until they
+     * are all ready.
+     *
+     * @throws RuntimeException the first failure a client hit during construction
+     */
+    public void warmUp() {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(clients.size(),
+                new SdkEventCallbackHandler.SdkThreadFactory("otag-client-warm-up-"));
+        try {
+            CompletableFuture.allOf(clients.stream()
+                    .map(client -> CompletableFuture.runAsync(client::get, pool))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+
+        LOG.info("Gateway Service clients ready in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+    }
+
+    /**
+     * @return construction time in milliseconds of each client created so far, keyed by client name
+     */
+    public Map<String, Long> getConstructionTimes() {
+        Map<String, Long> times = new TreeMap<>();
+        constructionTimes.forEach((name, nanos) -> times.put(name, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        return times;
+    }
+
     // service methods
 
     public AuthClient getAuthClient() {
-        return instance().authClient;
+        return instance().authClient.get();
     }
 
     public MailClient getMailClient() {
-        return instance().mailClient;
+        return instance().mailClient.get();
     }
 
     public NotificationsClient getNotificationsClient() {
-        return instance().notificationsClient;
+        return instance().notificationsClient.get();
     }
 
     public RuntimesClient getRuntimesClient() {
-        return instance().runtimesClient;
+        return instance().runtimesClient.get();
     }
 
     public ServiceClient getServiceClient() {
-        return instance().serviceClient;
+        return instance().serviceClient.get();
     }
 
     public SettingsClient getSettingsClient() {
-        return instance().settingsClient;
+        return instance().settingsClient.get();
     }
 
     public TrustedProviderClient getTrustedProviderClient() {
-        return instance().trustedProviderClient;
+        return instance().trustedProviderClient.get();
+    }
+
+    private <T extends AbstractOtagServiceClient> LazyClient<T> lazy(
+            String name, BiFunction<Client, AWConfigFactory, T> constructor) {
+        LazyClient<T> client = new LazyClient<>(name, constructor);
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * A client that is created, once, on first use.
+     */
+    private class LazyClient<T extends AbstractOtagServiceClient> {
+
+        private final String name;
+        private final BiFunction<Client, AWConfigFactory, T> constructor;
+        private volatile T client;
+
+        LazyClient(String name, BiFunction<Client, AWConfigFactory, T> constructor) {
+            this.name = name;
+            this.constructor = constructor;
+        }
+
+        T get() {
+            if (client == null) {
+                synchronized (this) {
+                    if (client == null) {
+                        LOG.info("Creating " + name);
+                        long start = System.nanoTime();
+                        client = constructor.apply(SharedHttpTransport.getClient(), configFactory);
+                        constructionTimes.put(name, System.nanoTime() - start);
+                    }
+                }
+            }
+            return client;
+        }
     }
 
     /**
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.types.v3.auth.UserGroupIdList;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compact, immutable view of the OTDS groups a user belongs to. Group ids are interned,
+ * as the same handful of groups is shared by a great many users, and held in a set
+ * so membership checks are lookups rather than list scans.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see AuthClient#getGroupMembership
+ */
+public final class GroupMembership {
+
+    /**
+     * Membership for a user that belongs to no groups, or whose groups we could not resolve.
+     */
+    public static final GroupMembership EMPTY = new GroupMembership(Collections.emptySet());
+
+    private final Set<String> groupIds;
+
+    private GroupMembership(Set<String> groupIds) {
+        this.groupIds = groupIds;
+    }
+
+    /**
+     * Build a membership view from the Gateway representation.
+     *
+     * @param groupIdList group id list as returned by the Gateway, may be null
+     * @return membership view, never null
+     */
+    public static GroupMembership of(UserGroupIdList groupIdList) {
+        if (groupIdList == null)
+            return EMPTY;
+
+        return of(groupIdList.getGroupIds());
+    }
+
+    /**
+     * Build a membership view from a collection of group ids.
+     *
+     * @param groupIds group ids, may be null
+     * @return membership view, never null
+     */
+    public static GroupMembership of(Collection<String> groupIds) {
+        if (groupIds == null || groupIds.isEmpty())
+            return EMPTY;
+
+        Set<String> interned = new HashSet<>(groupIds.size() * 2);
+        for (String groupId : groupIds) {
+            if (groupId != null)
+                interned.add(groupId.intern());
+        }
+
+        return new GroupMembership(Collections.unmodifiableSet(interned));
+    }
+
+    public boolean isMemberOf(String groupId) {
+        return groupId != null && groupIds.contains(groupId);
+    }
+
+    public boolean isMemberOfAny(Collection<String> candidateGroupIds) {
+        if (candidateGroupIds == null)
+            return false;
+
+        for (String groupId : candidateGroupIds) {
+            if (isMemberOf(groupId))
+                return true;
+        }
+        return false;
+    }
+
+    public Set<String> getGroupIds() {
+        return groupIds;
+    }
+
+    public int size() {
+        return groupIds.size();
+    }
+
+    @Override
+    public String toString() {
+        return "GroupMembership{" +
+                "groupIds=" + groupIds +
+                '}';
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+/**
+ * Settings for the pooled HTTP transport shared by the service clients.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see SharedHttpTransport
+ */
+public class HttpTransportConfig {
+
+    /**
+     * Maximum number of open connections across all routes.
+     */
+    private int maxConnections = 50;
+
+    /**
+     * Maximum number of open connections to a single host, i.e. our Gateway.
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    private int connectTimeoutMillis = 10000;
+
+    private int readTimeoutMillis = 60000;
+
+    /**
+     * How long we wait for a pooled connection to become free.
+     */
+    private int connectionRequestTimeoutMillis = 10000;
+
+    /**
+     * Upper bound on how long a kept alive connection is reused for.
+     */
+    private long connectionTimeToLiveMillis = 300000L;
+
+    /**
+     * Connections idle for longer than this are checked before they are reused.
+     */
+    private int validateAfterInactivityMillis = 2000;
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    public void setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+    }
+
+    public long getConnectionTimeToLiveMillis() {
+        return connectionTimeToLiveMillis;
+    }
+
+    public void setConnectionTimeToLiveMillis(long connectionTimeToLiveMillis) {
+        this.connectionTimeToLiveMillis = connectionTimeToLiveMillis;
+    }
+
+    public int getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+        this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpTransportConfig{" +
+                "maxConnections=" + maxConnections +
+                ", maxConnectionsPerRoute=" + maxConnectionsPerRoute +
+                ", connectTimeoutMillis=" + connectTimeoutMillis +
+                ", readTimeoutMillis=" + readTimeoutMillis +
+                ", connectionRequestTimeoutMillis=" + connectionRequestTimeoutMillis +
+                ", connectionTimeToLiveMillis=" + connectionTimeToLiveMillis +
+                ", validateAfterInactivityMillis=" + validateAfterInactivityMillis +
+                '}';
+    }
+
+}
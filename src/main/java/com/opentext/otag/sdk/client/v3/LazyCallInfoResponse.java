@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.types.v3.api.SDKCallInfo;
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Successful SDK response that builds its {@link SDKCallInfo} on first access. The
+ * response body has already been read as bytes and its connection released, what we put
+ * off is decoding the body and copying the headers, so callers that never look at the call
+ * info never pay for that. Request headers are captured as they are when the call info is
+ * first asked for.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see DiagnosticsMode#LAZY
+ */
+class LazyCallInfoResponse extends SDKResponse {
+
+    private final String requestUrl;
+    private final MultivaluedMap<String, Object> requestHeaders;
+    private final int responseStatus;
+    private final MultivaluedMap<String, Object> responseHeaders;
+    private final byte[] responseBody;
+    private final Charset charset;
+    private final Function<MultivaluedMap<String, Object>, Map<String, Object>> toHashMap;
+
+    private SDKCallInfo callInfo;
+
+    LazyCallInfoResponse(String requestUrl,
+                         MultivaluedMap<String, Object> requestHeaders,
+                         int responseStatus,
+                         MultivaluedMap<String, Object> responseHeaders,
+                         byte[] responseBody,
+                         Charset charset,
+                         Function<MultivaluedMap<String, Object>, Map<String, Object>> toHashMap) {
+        super(true, null);
+        this.requestUrl = requestUrl;
+        this.requestHeaders = requestHeaders;
+        this.responseStatus = responseStatus;
+        this.responseHeaders = responseHeaders;
+        this.responseBody = responseBody;
+        this.charset = charset;
+        this.toHashMap = toHashMap;
+    }
+
+    @Override
+    public synchronized SDKCallInfo getCallInfo() {
+        if (callInfo == null) {
+            String body = responseBody != null ? new String(responseBody, charset) : null;
+            callInfo = new SDKCallInfo(requestUrl, toHashMap.apply(requestHeaders), responseStatus,
+                    toHashMap.apply(responseHeaders), body);
+        }
+        return callInfo;
+    }
+
+}
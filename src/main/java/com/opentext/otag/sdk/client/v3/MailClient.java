@@ -3,10 +3,8 @@
  */
 package com.opentext.otag.sdk.client.v3;
 
-import com.opentext.otag.sdk.SdkEventCallbackHandler;
 import com.opentext.otag.sdk.bus.SdkEventKeys;
 import com.opentext.otag.sdk.bus.SdkQueueEvent;
-import com.opentext.otag.sdk.bus.SdkQueueManager;
 import com.opentext.otag.sdk.types.v3.MailRequest;
 import com.opentext.otag.sdk.types.v3.MailResult;
 import com.opentext.otag.sdk.types.v3.api.SDKResponse;
@@ -16,6 +14,7 @@ import com.opentext.otag.service.context.AWConfigFactory;
 
 import javax.ws.rs.client.Client;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Mail API Service client that exposes the Gateways email sending functionality.
@@ -37,6 +36,9 @@ public class MailClient extends AbstractOtagServiceClient {
     /**
      * Send an email to as many recipients as you like in a fire-and-forget fashion. Errors will be
      * logged at the Gateway but they will not be indicated in the response to this call.
+     * <p>
+     * Note this call still waits for the Gateway to acknowledge the request, use a
+     * {@link MailOutbox} if the calling thread should not be held while mail is sent.
      *
      * @param mailRequest a mail request
      * @return sdk response with a success indicator, true if the request manages to occur (even if the
@@ -44,26 +46,13 @@ public class MailClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public SDKResponse sendMailAsync(MailRequest mailRequest) {
-        SdkRequest<MailRequest> request = new SdkRequest<>(SdkEventKeys.SEND_IMPORTANT_MAIL, mailRequest);
-        SdkQueueEvent sdkRequest = SdkQueueEvent.request(request, getAppName(), getPersistenceContext());
-
-        String sdkEventIdentifier = sdkRequest.getSdkEventIdentifier();
-        try {
-            SdkEventCallbackHandler.getSdkCallbackMgr().prepareForResponse(sdkEventIdentifier);
-            SdkQueueManager.sendEventToGateway(sdkRequest);
-            SdkQueueEvent responseEvent = SdkEventCallbackHandler.getSdkCallbackMgr()
-                    .getResponseForEvent(sdkEventIdentifier);
-
-            SDKResponse sdkResponse = responseEvent.getSdkResponse();
+        // errors are reported by the Gateway, not by us, so the reply is not checked for one
+        SDKResponse sdkResponse = sendSdkEventAndGetReply(sendMailEvent(mailRequest)).getSdkResponse();
 
-            if (sdkResponse != null) {
-                return sdkResponse;
-            } else {
-                throw new APIException("The SDK response did not contain any information");
-            }
-
-        } catch (InterruptedException e) {
-            throw new APIException("The sendMail SDK operation timed out", e);
+        if (sdkResponse != null) {
+            return sdkResponse;
+        } else {
+            throw new APIException("The SDK response did not contain any information");
         }
     }
 
@@ -85,22 +74,32 @@ public class MailClient extends AbstractOtagServiceClient {
      * @see MailRequest
      */
     public MailResult sendMail(MailRequest mailRequest) {
-        String endpointId = SdkEventKeys.SEND_IMPORTANT_MAIL;
-        SdkRequest<MailRequest> request = new SdkRequest<>(endpointId, mailRequest);
-        SdkQueueEvent sdkRequest = SdkQueueEvent.request(request, getAppName(), getPersistenceContext());
+        MailResult mailResult = sendSdkEventAndGetTypedResponse(sendMailEvent(mailRequest), MailResult.class);
+        return Optional.ofNullable(mailResult)
+                .orElseThrow(() -> new APIException("Response body missing from SDK event"));
+    }
 
-        String sdkEventIdentifier = sdkRequest.getSdkEventIdentifier();
-        try {
-            SdkEventCallbackHandler.getSdkCallbackMgr().prepareForResponse(sdkEventIdentifier);
+    /**
+     * Non-blocking version of {@link #sendMail(MailRequest)}, the calling thread is not held
+     * while the Gateway sends the mail. Unlike the blocking call an error reply from the
+     * Gateway fails the future, rather than surfacing as a missing result.
+     *
+     * @param mailRequest email request
+     * @return future mail result, completes exceptionally with an {@link APIException} if
+     * the Gateway replied with an error or did not return a result
+     */
+    public CompletableFuture<MailResult> sendMailWithResultAsync(MailRequest mailRequest) {
+        return sendSdkEventForReplyAsync(sendMailEvent(mailRequest))
+                .thenApply(reply -> {
+                    checkSdkResponse(reply);
+                    return reply.getBody(MailResult.class)
+                            .orElseThrow(() -> new APIException("Response body missing from SDK event"));
+                });
+    }
 
-            SdkQueueManager.sendEventToGateway(sdkRequest);
-            SdkQueueEvent responseEvent = SdkEventCallbackHandler.getSdkCallbackMgr()
-                    .getResponseForEvent(sdkEventIdentifier);
-            Optional<MailResult> mailResult = SdkQueueEvent.extractBodyFromResponse(responseEvent, MailResult.class);
-            return mailResult.orElseThrow(() -> new APIException("Response body missing from SDK event"));
-        } catch (InterruptedException e) {
-            throw new APIException("The sendMail SDK operation timed out", e);
-        }
+    private SdkQueueEvent sendMailEvent(MailRequest mailRequest) {
+        SdkRequest<MailRequest> request = new SdkRequest<>(SdkEventKeys.SEND_IMPORTANT_MAIL, mailRequest);
+        return SdkQueueEvent.request(request, getAppName(), getPersistenceContext());
     }
 
 }
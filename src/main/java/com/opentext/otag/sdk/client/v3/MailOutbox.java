@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.types.v3.MailRequest;
+import com.opentext.otag.sdk.types.v3.MailResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Bounded, asynchronous outbound mail pipeline built on the {@link MailClient}.
+ * <p>
+ * Submitted {@link MailRequest}s are queued in memory and sent by a fixed number of worker
+ * threads, which is also the number of mail requests we will have outstanding with the
+ * Gateway at any one time. Callers get a {@link CompletableFuture} for each submission and
+ * are never held while mail is sent, only while they wait for space in a full outbox.
+ * <p>
+ * By default every mail request is sent as it was submitted. Supply an aggregation
+ * strategy via {@link #setAggregationStrategy} to send queued requests that share an
+ * aggregation key together as a single request, for example different mails to the
+ * same recipient set.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see MailClient#sendMail(MailRequest)
+ */
+public class MailOutbox implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutbox.class);
+
+    private final MailClient mailClient;
+    private final int capacity;
+
+    /**
+     * Queued mail grouped by aggregation key, in the order the groups were first seen.
+     */
+    private final Map<Object, List<RequestMerger.Pending<MailRequest, MailResult>>> queued = new LinkedHashMap<>();
+    private final Object lock = new Object();
+    private int queuedCount = 0;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    private final RequestMerger<MailRequest, MailResult> requests = new RequestMerger<>("mail");
+
+    /**
+     * @param mailClient client used to talk to the Gateway
+     * @param capacity   maximum number of queued mail requests
+     * @param senders    number of worker threads, and so concurrent requests to the Gateway
+     */
+    public MailOutbox(MailClient mailClient, int capacity, int senders) {
+        this.mailClient = Objects.requireNonNull(mailClient);
+        if (capacity < 1 || senders < 1)
+            throw new IllegalArgumentException("capacity and senders must be positive");
+        this.capacity = capacity;
+
+        ThreadFactory threadFactory = new SdkEventCallbackHandler.SdkThreadFactory("otag-mail-outbox-");
+        for (int i = 0; i < senders; i++) {
+            Thread worker = threadFactory.newThread(this::sendLoop);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Tell the outbox how to combine queued mail, until this is called nothing is combined.
+     * Queued requests that produce equal keys are reduced to a single request using the
+     * aggregator when a worker picks them up.
+     *
+     * @param aggregationKey key function, requests with equal keys are sent together
+     * @param aggregator     combines two requests that share a key
+     */
+    public void setAggregationStrategy(Function<MailRequest, Object> aggregationKey,
+                                       BinaryOperator<MailRequest> aggregator) {
+        requests.setStrategy(aggregationKey, aggregator);
+    }
+
+    /**
+     * Queue a mail request, waiting for space if the outbox is full.
+     *
+     * @param mailRequest mail request
+     * @return future result of the (possibly aggregated) request this mail was sent in
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public CompletableFuture<MailResult> submit(MailRequest mailRequest) throws InterruptedException {
+        return enqueue(mailRequest, -1);
+    }
+
+    /**
+     * Queue a mail request, waiting at most the supplied time for space.
+     *
+     * @param mailRequest mail request
+     * @param timeout     how long to wait for space
+     * @param unit        timeout unit
+     * @return future result, fails with a {@link RejectedExecutionException} if the outbox stayed full
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public CompletableFuture<MailResult> offer(MailRequest mailRequest, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return enqueue(mailRequest, unit.toNanos(timeout));
+    }
+
+    /**
+     * @return the number of mail requests waiting to be sent
+     */
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queuedCount;
+        }
+    }
+
+    /**
+     * Stop accepting mail, send what is queued and stop the worker threads.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private CompletableFuture<MailResult> enqueue(MailRequest mailRequest, long timeoutNanos)
+            throws InterruptedException {
+        RequestMerger.Pending<MailRequest, MailResult> pending = new RequestMerger.Pending<>(mailRequest);
+        Object key = requests.keyFor(mailRequest);
+
+        synchronized (lock) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (running && queuedCount >= capacity) {
+                if (timeoutNanos < 0) {
+                    lock.wait();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        pending.outcome.completeExceptionally(new RejectedExecutionException("Mail outbox is full"));
+                        return pending.outcome;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            }
+
+            if (!running)
+                throw new IllegalStateException("MailOutbox has been closed");
+
+            queued.computeIfAbsent(key, k -> new ArrayList<>()).add(pending);
+            queuedCount++;
+            lock.notifyAll();
+        }
+
+        return pending.outcome;
+    }
+
+    private void sendLoop() {
+        while (true) {
+            List<RequestMerger.Pending<MailRequest, MailResult>> group;
+            synchronized (lock) {
+                while (running && queued.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // only close() should stop us
+                    }
+                }
+
+                if (queued.isEmpty())
+                    return;
+
+                Iterator<List<RequestMerger.Pending<MailRequest, MailResult>>> oldest = queued.values().iterator();
+                group = oldest.next();
+                oldest.remove();
+                queuedCount -= group.size();
+                lock.notifyAll();
+            }
+
+            send(group);
+        }
+    }
+
+    private void send(List<RequestMerger.Pending<MailRequest, MailResult>> group) {
+        try {
+            MailResult result = mailClient.sendMail(requests.merge(group));
+            RequestMerger.complete(group, result, null);
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to send " + group.size() + " queued mail request/s - " + e.getMessage());
+            RequestMerger.complete(group, null, e);
+        }
+    }
+
+}
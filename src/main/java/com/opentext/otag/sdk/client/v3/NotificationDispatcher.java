@@ -0,0 +1,281 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+import com.opentext.otag.sdk.types.v3.notification.fcm.FcmPushNotificationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Asynchronous push notification dispatcher built on the {@link NotificationsClient}.
+ * <p>
+ * Submitted {@link FcmPushNotificationRequest}s are buffered and flushed to the Gateway
+ * once a batch fills up or the flush window (measured from the first buffered request)
+ * closes. By default every notification is sent as it was submitted. Supply a merge
+ * strategy via {@link #setMergeStrategy} to combine the requests in a batch that share a
+ * merge key into a single request, requests that differ only in their recipients for
+ * instance, so a burst costs one Gateway exchange.
+ * <p>
+ * The buffer is bounded, {@link #submit} blocks while it is full and {@link #offer} gives
+ * up after a timeout, so a burst cannot outrun the Gateway indefinitely. Each submission
+ * gets a future that completes with the outcome of the request it was sent as part of.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see NotificationsClient#sendFcmPushNotificationAsync(FcmPushNotificationRequest)
+ */
+public class NotificationDispatcher implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final NotificationsClient notificationsClient;
+    private final int maxBatchSize;
+    private final long flushWindowMillis;
+
+    private final int capacity;
+
+    /**
+     * Guards the buffer and the running flag, so a notification is either refused or
+     * buffered ahead of the flusher's last look at the buffer.
+     */
+    private final Object lock = new Object();
+    private final Deque<RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse>> buffer = new ArrayDeque<>();
+
+    /**
+     * Caps the number of merged requests we have outstanding with the Gateway.
+     */
+    private final Semaphore sendPermits;
+
+    private final Thread flusher;
+
+    private boolean running = true;
+
+    private final RequestMerger<FcmPushNotificationRequest, SDKResponse> requests =
+            new RequestMerger<>("notification");
+
+    /**
+     * @param notificationsClient client used to talk to the Gateway
+     * @param capacity            maximum number of buffered notifications
+     * @param maxBatchSize        flush once this many notifications are buffered
+     * @param flushWindowMillis   flush at most this long after the first notification is buffered
+     * @param maxConcurrentSends  maximum number of requests outstanding with the Gateway
+     */
+    public NotificationDispatcher(NotificationsClient notificationsClient,
+                                  int capacity,
+                                  int maxBatchSize,
+                                  long flushWindowMillis,
+                                  int maxConcurrentSends) {
+        this.notificationsClient = Objects.requireNonNull(notificationsClient);
+        if (capacity < 1 || maxBatchSize < 1 || maxConcurrentSends < 1)
+            throw new IllegalArgumentException("capacity, maxBatchSize and maxConcurrentSends must be positive");
+
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.flushWindowMillis = Math.max(0, flushWindowMillis);
+        this.sendPermits = new Semaphore(maxConcurrentSends);
+
+        flusher = new SdkEventCallbackHandler.SdkThreadFactory("otag-notification-dispatcher-")
+                .newThread(this::flushLoop);
+        flusher.start();
+    }
+
+    /**
+     * Tell the dispatcher how to combine notifications, until this is called nothing is
+     * combined. Requests in the same batch that produce equal keys are reduced to a single
+     * request using the merger, so a key that ignores recipients paired with a merger that
+     * unions them yields one multi-recipient request per distinct payload.
+     *
+     * @param mergeKey key function, requests with equal keys are merged
+     * @param merger   combines two requests that share a key
+     */
+    public void setMergeStrategy(Function<FcmPushNotificationRequest, Object> mergeKey,
+                                 BinaryOperator<FcmPushNotificationRequest> merger) {
+        requests.setStrategy(mergeKey, merger);
+    }
+
+    /**
+     * Buffer a notification for sending, waiting for space if the buffer is full.
+     *
+     * @param request push notification request
+     * @return future outcome of the (possibly merged) request this notification was sent in
+     * @throws InterruptedException if interrupted while waiting for buffer space
+     */
+    public CompletableFuture<SDKResponse> submit(FcmPushNotificationRequest request) throws InterruptedException {
+        return enqueue(request, -1);
+    }
+
+    /**
+     * Buffer a notification for sending, waiting at most the supplied time for space.
+     *
+     * @param request push notification request
+     * @param timeout how long to wait for space
+     * @param unit    timeout unit
+     * @return future outcome, fails with a {@link RejectedExecutionException} if the buffer stayed full
+     * @throws InterruptedException if interrupted while waiting for buffer space
+     */
+    public CompletableFuture<SDKResponse> offer(FcmPushNotificationRequest request, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return enqueue(request, unit.toNanos(timeout));
+    }
+
+    /**
+     * @return the number of notifications waiting to be flushed
+     */
+    public int getBufferedCount() {
+        synchronized (lock) {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * Stop accepting notifications, flush what is buffered and stop the dispatcher thread.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<SDKResponse> enqueue(FcmPushNotificationRequest request, long timeoutNanos)
+            throws InterruptedException {
+        RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse> pending = new RequestMerger.Pending<>(request);
+
+        synchronized (lock) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (running && buffer.size() >= capacity) {
+                if (timeoutNanos < 0) {
+                    lock.wait();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        pending.outcome.completeExceptionally(
+                                new RejectedExecutionException("Notification buffer is full"));
+                        return pending.outcome;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            }
+
+            if (!running)
+                throw new IllegalStateException("NotificationDispatcher has been closed");
+
+            buffer.add(pending);
+            lock.notifyAll();
+        }
+
+        return pending.outcome;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse>> batch = nextBatch();
+            if (batch.isEmpty())
+                return;
+            flush(batch);
+        }
+    }
+
+    /**
+     * Wait for the next batch, empty once we are closed and have nothing left to flush.
+     */
+    private List<RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse>> nextBatch() {
+        List<RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse>> batch = new ArrayList<>(maxBatchSize);
+        synchronized (lock) {
+            while (running && buffer.isEmpty())
+                waitQuietly(0);
+            if (buffer.isEmpty())
+                return batch;
+
+            // the window starts with the first notification we take, when closing we
+            // take what is there without waiting for more
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushWindowMillis);
+            while (batch.size() < maxBatchSize) {
+                RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse> next = buffer.poll();
+                if (next != null) {
+                    batch.add(next);
+                    // we made room for anyone waiting to submit
+                    lock.notifyAll();
+                    continue;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (!running || remaining <= 0)
+                    break;
+                waitQuietly(remaining);
+            }
+        }
+        return batch;
+    }
+
+    // callers hold the lock
+    private void waitQuietly(long nanos) {
+        try {
+            if (nanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(lock, nanos);
+            } else {
+                lock.wait();
+            }
+        } catch (InterruptedException e) {
+            // only close() should stop us
+        }
+    }
+
+    private void flush(List<RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse>> batch) {
+        for (List<RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse>> group :
+                requests.group(batch).values()) {
+            FcmPushNotificationRequest merged;
+            try {
+                merged = requests.merge(group);
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to merge " + group.size() + " notifications - " + e.getMessage());
+                RequestMerger.complete(group, null, e);
+                continue;
+            }
+
+            send(merged, group);
+        }
+    }
+
+    private void send(FcmPushNotificationRequest merged,
+                      List<RequestMerger.Pending<FcmPushNotificationRequest, SDKResponse>> group) {
+        // even when closing we wait our turn rather than drop notifications
+        sendPermits.acquireUninterruptibly();
+
+        CompletableFuture<SDKResponse> outcome;
+        try {
+            outcome = notificationsClient.sendFcmPushNotificationAsync(merged);
+        } catch (RuntimeException e) {
+            outcome = new CompletableFuture<>();
+            outcome.completeExceptionally(e);
+        }
+
+        outcome.whenComplete((response, err) -> {
+            sendPermits.release();
+            RequestMerger.complete(group, response, err);
+        });
+    }
+
+}
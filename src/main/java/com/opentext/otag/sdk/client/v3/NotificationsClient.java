@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Notifications service client. Allows a service to issue a notification to
@@ -70,12 +71,17 @@ public class NotificationsClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public SDKResponse sendFcmPushNotification(FcmPushNotificationRequest notificationRequest) {
-        SdkRequest<FcmPushNotificationRequest> sdkRequest = new SdkRequest<>(
-                SdkEventKeys.NOTIFICATIONS_PUSH, notificationRequest);
-
-        SdkQueueEvent sdkEvt = SdkQueueEvent.request(sdkRequest, getAppName(), getPersistenceContext());
+        return sendSdkEventAndGetResponse(fcmPushEvent(notificationRequest));
+    }
 
-        return sendSdkEventAndGetResponse(sdkEvt);
+    /**
+     * Non-blocking version of {@link #sendFcmPushNotification(FcmPushNotificationRequest)}.
+     *
+     * @param notificationRequest FCM push notification request
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> sendFcmPushNotificationAsync(FcmPushNotificationRequest notificationRequest) {
+        return sendSdkEventAsync(fcmPushEvent(notificationRequest));
     }
 
     /**
@@ -107,10 +113,28 @@ public class NotificationsClient extends AbstractOtagServiceClient {
      * @return bounds object representing the most recent and oldest notification ids
      */
     public NotificationSeqBounds getNotificationsMinMaxSeq() {
-        SdkRequest request = new SdkRequest(SdkEventKeys.NOTIFICATIONS_GET_NOTIF_SEQ_BOUNDS);
-        SdkQueueEvent getBoundsEvt = SdkQueueEvent.request(request, getAppName(), getPersistenceContext());
+        return sendSdkEventAndGetTypedResponse(notificationsMinMaxSeqEvent(), NotificationSeqBounds.class);
+    }
 
-        return sendSdkEventAndGetTypedResponse(getBoundsEvt, NotificationSeqBounds.class);
+    /**
+     * Non-blocking version of {@link #getNotificationsMinMaxSeq()}.
+     *
+     * @return future bounds object
+     */
+    public CompletableFuture<NotificationSeqBounds> getNotificationsMinMaxSeqAsync() {
+        return sendSdkEventAsync(notificationsMinMaxSeqEvent(), NotificationSeqBounds.class);
+    }
+
+    private SdkQueueEvent fcmPushEvent(FcmPushNotificationRequest notificationRequest) {
+        SdkRequest<FcmPushNotificationRequest> sdkRequest = new SdkRequest<>(
+                SdkEventKeys.NOTIFICATIONS_PUSH, notificationRequest);
+
+        return SdkQueueEvent.request(sdkRequest, getAppName(), getPersistenceContext());
+    }
+
+    private SdkQueueEvent notificationsMinMaxSeqEvent() {
+        SdkRequest request = new SdkRequest(SdkEventKeys.NOTIFICATIONS_GET_NOTIF_SEQ_BOUNDS);
+        return SdkQueueEvent.request(request, getAppName(), getPersistenceContext());
     }
 
 }
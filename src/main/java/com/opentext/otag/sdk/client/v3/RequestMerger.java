@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Combines queued requests for the {@link NotificationDispatcher} and {@link MailOutbox}.
+ * Merging is off until a strategy is set, every request is then sent as it was submitted.
+ * With a strategy, requests that produce equal merge keys are reduced to one request by
+ * the merger, and every submitter is given the outcome of that request.
+ *
+ * @param <R> request type
+ * @param <O> outcome type
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+final class RequestMerger<R, O> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestMerger.class);
+
+    /**
+     * What we are merging, for log messages.
+     */
+    private final String requestType;
+
+    private volatile Strategy<R> strategy;
+
+    RequestMerger(String requestType) {
+        this.requestType = requestType;
+    }
+
+    void setStrategy(Function<R, Object> mergeKey, BinaryOperator<R> merger) {
+        strategy = new Strategy<>(Objects.requireNonNull(mergeKey), Objects.requireNonNull(merger));
+    }
+
+    /**
+     * @param request request
+     * @return the request's merge key, unique to the request if we are not merging or the
+     * key could not be worked out
+     */
+    Object keyFor(R request) {
+        Strategy<R> current = strategy;
+        if (current == null)
+            return new Object();
+
+        try {
+            Object key = current.mergeKey.apply(request);
+            return key != null ? key : new Object();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to compute " + requestType + " merge key, sending request on its own - " +
+                    e.getMessage());
+            return new Object();
+        }
+    }
+
+    /**
+     * Group a batch of pending requests by merge key, keeping the order the keys were
+     * first seen in.
+     *
+     * @param batch pending requests
+     * @return pending requests grouped by key
+     */
+    Map<Object, List<Pending<R, O>>> group(List<Pending<R, O>> batch) {
+        Map<Object, List<Pending<R, O>>> groups = new LinkedHashMap<>();
+        for (Pending<R, O> pending : batch)
+            groups.computeIfAbsent(keyFor(pending.request), k -> new ArrayList<>()).add(pending);
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Sending " + batch.size() + " " + requestType + " request/s as " + groups.size());
+        return groups;
+    }
+
+    /**
+     * @param group pending requests that share a merge key
+     * @return the single request to send for the group
+     */
+    R merge(List<Pending<R, O>> group) {
+        R merged = group.get(0).request;
+        Strategy<R> current = strategy;
+        if (current != null) {
+            for (int i = 1; i < group.size(); i++)
+                merged = current.merger.apply(merged, group.get(i).request);
+        }
+        return merged;
+    }
+
+    /**
+     * Hand the outcome of a sent request to everyone who submitted part of it.
+     *
+     * @param group   pending requests the request was made from
+     * @param outcome outcome, if the request succeeded
+     * @param failure failure, null if the request succeeded
+     */
+    static <O> void complete(List<? extends Pending<?, O>> group, O outcome, Throwable failure) {
+        for (Pending<?, O> pending : group) {
+            if (failure != null) {
+                pending.outcome.completeExceptionally(failure);
+            } else {
+                pending.outcome.complete(outcome);
+            }
+        }
+    }
+
+    /**
+     * A submitted request and the future its submitter is holding.
+     */
+    static final class Pending<R, O> {
+
+        final R request;
+        final CompletableFuture<O> outcome = new CompletableFuture<>();
+
+        Pending(R request) {
+            this.request = Objects.requireNonNull(request);
+        }
+    }
+
+    private static final class Strategy<R> {
+
+        private final Function<R, Object> mergeKey;
+        private final BinaryOperator<R> merger;
+
+        Strategy(Function<R, Object> mergeKey, BinaryOperator<R> merger) {
+            this.mergeKey = mergeKey;
+            this.merger = merger;
+        }
+    }
+
+}
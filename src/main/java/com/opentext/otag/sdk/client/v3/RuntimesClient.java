@@ -11,6 +11,7 @@ import com.opentext.otag.sdk.types.v4.SdkRequest;
 import com.opentext.otag.service.context.AWConfigFactory;
 
 import javax.ws.rs.client.Client;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Runtime API service client. Runtimes represent client applications that
@@ -56,6 +57,18 @@ public class RuntimesClient extends AbstractOtagServiceClient {
         }
     }
 
+    /**
+     * Non-blocking version of {@link #getAllRuntimes()}.
+     *
+     * @return future list of runtimes
+     */
+    public CompletableFuture<Runtimes> getAllRuntimesAsync() {
+        SdkQueueEvent getRuntimesEvt = SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.GET_RUNTIMES),
+                getAppName(), getPersistenceContext());
+
+        return sendSdkEventAsync(getRuntimesEvt, Runtimes.class);
+    }
+
     private String getManagementPath(String appName) {
         return getManagingOtagUrl() + RUNTIMES_SERVICE_PATH + appName + "/";
     }
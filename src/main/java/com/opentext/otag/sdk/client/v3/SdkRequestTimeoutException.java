@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.types.v3.api.error.APIException;
+
+/**
+ * Thrown when the Gateway fails to respond to an SDK request before the
+ * deadline the client (or individual call) imposed on it.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see AbstractOtagServiceClient#setRequestTimeoutMillis(long)
+ */
+public class SdkRequestTimeoutException extends APIException {
+
+    /**
+     * The endpoint the timed out request was sent to.
+     */
+    private final String endpointId;
+
+    /**
+     * How long we waited before giving up.
+     */
+    private final long timeoutMillis;
+
+    public SdkRequestTimeoutException(String endpointId, long timeoutMillis, Throwable cause) {
+        super("SDK request to " + endpointId + " timed out after " + timeoutMillis + "ms", cause);
+        this.endpointId = endpointId;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public String getEndpointId() {
+        return endpointId;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+}
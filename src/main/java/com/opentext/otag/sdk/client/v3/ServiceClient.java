@@ -4,7 +4,6 @@
 package com.opentext.otag.sdk.client.v3;
 
 import com.opentext.otag.sdk.bus.SdkQueueEvent;
-import com.opentext.otag.sdk.bus.SdkQueueManager;
 import com.opentext.otag.sdk.types.v3.api.SDKResponse;
 import com.opentext.otag.sdk.types.v3.api.error.APIException;
 import com.opentext.otag.sdk.types.v3.management.DeploymentResult;
@@ -14,6 +13,7 @@ import com.opentext.otag.sdk.types.v4.SdkRequest;
 import com.opentext.otag.service.context.AWConfigFactory;
 
 import javax.ws.rs.client.Client;
+import java.util.concurrent.CompletableFuture;
 
 import static com.opentext.otag.sdk.bus.SdkEventKeys.*;
 
@@ -54,6 +54,18 @@ public class ServiceClient extends AbstractOtagServiceClient {
         return sendSdkEventAndGetResponse(completeDeployReq);
     }
 
+    /**
+     * Non-blocking version of {@link #completeDeployment(DeploymentResult)}.
+     *
+     * @param deploymentResult the deployment outcome
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> completeDeploymentAsync(DeploymentResult deploymentResult) {
+        SdkRequest<DeploymentResult> sdkRequest = new SdkRequest<>(SERVICE_MGMT_COMPLETE_DEPLOYMENT, deploymentResult);
+
+        return sendSdkEventAsync(SdkQueueEvent.request(sdkRequest, getAppName(), getPersistenceContext()));
+    }
+
     /**
      * Get the list of EIM connectors currently available at the Gateway.
      *
@@ -64,10 +76,21 @@ public class ServiceClient extends AbstractOtagServiceClient {
         SdkQueueEvent sdkQueueEvent = SdkQueueEvent.request(
                 new SdkRequest<>(GET_EIM_CONNECTORS),getAppName(), getPersistenceContext());
 
-        SdkQueueManager.sendEventToGateway(sdkQueueEvent);
         return sendSdkEventAndGetTypedResponse(sdkQueueEvent, EIMConnectors.class);
     }
 
+    /**
+     * Non-blocking version of {@link #getEIMConnectors()}.
+     *
+     * @return future list of EIM Connectors
+     */
+    public CompletableFuture<EIMConnectors> getEIMConnectorsAsync() {
+        SdkQueueEvent sdkQueueEvent = SdkQueueEvent.request(
+                new SdkRequest<>(GET_EIM_CONNECTORS), getAppName(), getPersistenceContext());
+
+        return sendSdkEventAsync(sdkQueueEvent, EIMConnectors.class);
+    }
+
     /**
      * Allow a service to register itself as an EIM connector.
      *
@@ -83,4 +106,18 @@ public class ServiceClient extends AbstractOtagServiceClient {
         return sendSdkEventAndGetResponse(registerEvent);
     }
 
+    /**
+     * Non-blocking version of {@link #registerConnector(EIMConnector)}.
+     *
+     * @param eimConnector to register
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> registerConnectorAsync(EIMConnector eimConnector) {
+        SdkQueueEvent registerEvent = SdkQueueEvent.request(
+                new SdkRequest<>(REGISTER_EIM_CONNECTOR, eimConnector),
+                getAppName(), getPersistenceContext());
+
+        return sendSdkEventAsync(registerEvent);
+    }
+
 }
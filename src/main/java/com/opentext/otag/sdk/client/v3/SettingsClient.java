@@ -6,17 +6,35 @@ package com.opentext.otag.sdk.client.v3;
 import com.opentext.otag.sdk.bus.SdkEventKeys;
 import com.opentext.otag.sdk.bus.SdkQueueEvent;
 import com.opentext.otag.sdk.handlers.AbstractSettingChangeHandler;
+import com.opentext.otag.sdk.handlers.OtagMessageDispatcher;
 import com.opentext.otag.sdk.handlers.SettingChangeHandler;
+import com.opentext.otag.sdk.settings.AbstractLiveSetting;
+import com.opentext.otag.sdk.settings.BoolSetting;
+import com.opentext.otag.sdk.settings.DurationSetting;
+import com.opentext.otag.sdk.settings.IntSetting;
+import com.opentext.otag.sdk.settings.LongSetting;
 import com.opentext.otag.sdk.types.v3.api.SDKResponse;
 import com.opentext.otag.sdk.types.v3.api.error.APIException;
 import com.opentext.otag.sdk.types.v3.settings.Setting;
 import com.opentext.otag.sdk.types.v3.settings.Settings;
 import com.opentext.otag.sdk.types.v4.SdkRequest;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
 import com.opentext.otag.service.context.AWConfigFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static com.opentext.otag.sdk.bus.SdkEventKeys.SETTINGS_REGISTER_FOR_SETTING_UPDATES;
 import static com.opentext.otag.sdk.util.StringUtil.isNullOrEmpty;
@@ -25,6 +43,10 @@ import static com.opentext.otag.sdk.util.StringUtil.isNullOrEmpty;
  * A REST client that can be used to with the AppWorks Gateway Settings API. This Setting
  * API allows developers to store centralised configuration and react to updates to this
  * config made via the AppWorks administration UI.
+ * <p>
+ * An opt-in local cache can be switched on via {@link #enableCache()}. Cached settings are
+ * read from memory and kept fresh by registering for updates to each cached key, so changes
+ * made in the AppWorks administration UI are still picked up.
  *
  * @author Rhys Evans rhyse@opentext.com
  * @version 16.2
@@ -35,6 +57,37 @@ public class SettingsClient extends AbstractOtagServiceClient {
 
     public static final String SETTINGS_SERVICE_PATH = OTAG_DEPLOYMENTS_SERVICE_PATH + "settings/";
 
+    /**
+     * Is the local settings cache switched on?
+     */
+    private volatile boolean cacheEnabled = false;
+
+    /**
+     * Local copies of the Settings we have read, keyed by setting key.
+     */
+    private final Map<String, Setting> settingsCache = new ConcurrentHashMap<>();
+
+    /**
+     * The setting keys we have registered for updates to, and added a handler for.
+     */
+    private final Set<String> watchedKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The setting keys we have added a cache invalidating handler for.
+     */
+    private final Set<String> handledKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Bumped on every invalidation, read-through results fetched across an invalidation
+     * are not cached as they may already be stale.
+     */
+    private final AtomicLong cacheGeneration = new AtomicLong();
+
+    /**
+     * Live setting handles we have handed out, or are binding, keyed by setting key.
+     */
+    private final Map<String, CompletableFuture<AbstractLiveSetting>> liveSettings = new HashMap<>();
+
     public SettingsClient() {
         super();
     }
@@ -56,11 +109,17 @@ public class SettingsClient extends AbstractOtagServiceClient {
      * @see AbstractSettingChangeHandler
      */
     public SDKResponse registerForUpdates(String settingKey) {
-        checkSettingKey(settingKey);
+        return sendSdkEventAndGetResponse(registerForUpdatesEvent(settingKey));
+    }
 
-        return sendSdkEventAndGetResponse(SdkQueueEvent.request(
-                new SdkRequest<>(SETTINGS_REGISTER_FOR_SETTING_UPDATES, settingKey),
-                getAppName(), getPersistenceContext()));
+    /**
+     * Non-blocking version of {@link #registerForUpdates(String)}.
+     *
+     * @param settingKey the unique configuration setting id
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> registerForUpdatesAsync(String settingKey) {
+        return sendSdkEventAsync(registerForUpdatesEvent(settingKey));
     }
 
     /**
@@ -72,11 +131,27 @@ public class SettingsClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public SDKResponse createSetting(Setting setting) {
-        if (setting == null || isNullOrEmpty(setting.getKey())) {
-            throw new IllegalArgumentException("A valid setting is required");
+        // validates the setting, so we have a key to invalidate
+        SdkQueueEvent sdkEvent = settingEvent(SdkEventKeys.SETTINGS_ADD_SETTING, setting);
+        String settingKey = setting.getKey();
+        try {
+            return sendSdkEventAndGetResponse(sdkEvent);
+        } finally {
+            invalidate(settingKey);
         }
-        return sendSdkEventAndGetResponse(SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.SETTINGS_ADD_SETTING, setting), getAppName(), getPersistenceContext()));
+    }
+
+    /**
+     * Non-blocking version of {@link #createSetting(Setting)}.
+     *
+     * @param setting the new Setting
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> createSettingAsync(Setting setting) {
+        SdkQueueEvent sdkEvent = settingEvent(SdkEventKeys.SETTINGS_ADD_SETTING, setting);
+        String settingKey = setting.getKey();
+        return sendSdkEventAsync(sdkEvent)
+                .whenComplete((response, err) -> invalidate(settingKey));
     }
 
     /**
@@ -89,11 +164,27 @@ public class SettingsClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public SDKResponse updateSetting(Setting setting) {
-        if (setting == null || isNullOrEmpty(setting.getKey())) {
-            throw new IllegalArgumentException("A valid setting is required");
+        // validates the setting, so we have a key to invalidate
+        SdkQueueEvent sdkEvent = settingEvent(SdkEventKeys.SETTINGS_UPDATE_SETTING, setting);
+        String settingKey = setting.getKey();
+        try {
+            return sendSdkEventAndGetResponse(sdkEvent);
+        } finally {
+            invalidate(settingKey);
         }
-        return sendSdkEventAndGetResponse(SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.SETTINGS_UPDATE_SETTING, setting), getAppName(), getPersistenceContext()));
+    }
+
+    /**
+     * Non-blocking version of {@link #updateSetting(Setting)}.
+     *
+     * @param setting Setting to update
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> updateSettingAsync(Setting setting) {
+        SdkQueueEvent sdkEvent = settingEvent(SdkEventKeys.SETTINGS_UPDATE_SETTING, setting);
+        String settingKey = setting.getKey();
+        return sendSdkEventAsync(sdkEvent)
+                .whenComplete((response, err) -> invalidate(settingKey));
     }
 
     /**
@@ -103,9 +194,16 @@ public class SettingsClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public Settings getSettings() {
-        return sendSdkEventAndGetTypedResponse(SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.SETTINGS_GET_SETTINGS), getAppName(), getPersistenceContext()),
-                Settings.class);
+        return sendSdkEventAndGetTypedResponse(getSettingsEvent(), Settings.class);
+    }
+
+    /**
+     * Non-blocking version of {@link #getSettings()}.
+     *
+     * @return future collection of Settings
+     */
+    public CompletableFuture<Settings> getSettingsAsync() {
+        return sendSdkEventAsync(getSettingsEvent(), Settings.class);
     }
 
     /**
@@ -116,10 +214,51 @@ public class SettingsClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public Setting getSetting(String settingKey) {
-        checkSettingKey(settingKey);
-        return sendSdkEventAndGetTypedResponse(SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.SETTINGS_GET_SETTING, settingKey), getAppName(), getPersistenceContext()),
-                Setting.class);
+        if (cacheEnabled)
+            return readThrough(settingKey,
+                    () -> sendSdkEventAndGetTypedResponse(getSettingEvent(settingKey), Setting.class));
+
+        return sendSdkEventAndGetTypedResponse(getSettingEvent(settingKey), Setting.class);
+    }
+
+    /**
+     * Retrieve a Setting via its unique id, waiting no longer than the supplied deadline.
+     *
+     * @param settingKey    the unique configuration setting id
+     * @param timeoutMillis deadline for this call, overrides the client default
+     * @return a Setting, or null if no Setting was found for the supplied identifier
+     * @throws SdkRequestTimeoutException if the Gateway does not respond in time
+     * @throws APIException               if a non 200 response is received
+     */
+    public Setting getSetting(String settingKey, long timeoutMillis) {
+        if (cacheEnabled)
+            return readThrough(settingKey, () -> sendSdkEventAndGetTypedResponse(
+                    getSettingEvent(settingKey), Setting.class, timeoutMillis));
+
+        return sendSdkEventAndGetTypedResponse(getSettingEvent(settingKey), Setting.class, timeoutMillis);
+    }
+
+    /**
+     * Non-blocking version of {@link #getSetting(String)}.
+     *
+     * @param settingKey the unique configuration setting id
+     * @return future Setting, completes with null if no Setting was found for the supplied identifier
+     */
+    public CompletableFuture<Setting> getSettingAsync(String settingKey) {
+        if (cacheEnabled) {
+            Setting cached = settingsCache.get(settingKey);
+            if (cached != null)
+                return CompletableFuture.completedFuture(cached);
+
+            long generation = cacheGeneration.get();
+            return sendSdkEventAsync(getSettingEvent(settingKey), Setting.class)
+                    .thenCompose(setting -> setting == null
+                            ? CompletableFuture.completedFuture(null)
+                            : watchAsync(settingKey)
+                            .thenApply(watched -> watched ? cacheSetting(setting, generation) : setting));
+        }
+
+        return sendSdkEventAsync(getSettingEvent(settingKey), Setting.class);
     }
 
     public String getSettingAsString(String settingKey) {
@@ -130,6 +269,60 @@ public class SettingsClient extends AbstractOtagServiceClient {
         return null;
     }
 
+    /**
+     * Get a live handle onto an integer setting. The handle is registered for updates
+     * to the setting and re-parses its value only when it changes, reads are allocation
+     * free. Repeated calls for the same key return the same handle.
+     *
+     * @param settingKey   the unique configuration setting id
+     * @param defaultValue value to use when the setting is missing
+     * @return live setting handle
+     * @throws IllegalStateException if a handle of a different type exists for the key
+     */
+    public IntSetting getIntSetting(String settingKey, int defaultValue) {
+        return liveSetting(settingKey, IntSetting.class, key -> new IntSetting(key, defaultValue));
+    }
+
+    /**
+     * Get a live handle onto a long setting.
+     *
+     * @param settingKey   the unique configuration setting id
+     * @param defaultValue value to use when the setting is missing
+     * @return live setting handle
+     * @throws IllegalStateException if a handle of a different type exists for the key
+     * @see #getIntSetting(String, int)
+     */
+    public LongSetting getLongSetting(String settingKey, long defaultValue) {
+        return liveSetting(settingKey, LongSetting.class, key -> new LongSetting(key, defaultValue));
+    }
+
+    /**
+     * Get a live handle onto a boolean setting.
+     *
+     * @param settingKey   the unique configuration setting id
+     * @param defaultValue value to use when the setting is missing
+     * @return live setting handle
+     * @throws IllegalStateException if a handle of a different type exists for the key
+     * @see #getIntSetting(String, int)
+     */
+    public BoolSetting getBoolSetting(String settingKey, boolean defaultValue) {
+        return liveSetting(settingKey, BoolSetting.class, key -> new BoolSetting(key, defaultValue));
+    }
+
+    /**
+     * Get a live handle onto a duration setting, stored either as milliseconds or as
+     * an ISO-8601 duration.
+     *
+     * @param settingKey   the unique configuration setting id
+     * @param defaultValue value to use when the setting is missing
+     * @return live setting handle
+     * @throws IllegalStateException if a handle of a different type exists for the key
+     * @see #getIntSetting(String, int)
+     */
+    public DurationSetting getDurationSetting(String settingKey, Duration defaultValue) {
+        return liveSetting(settingKey, DurationSetting.class, key -> new DurationSetting(key, defaultValue));
+    }
+
     public Integer getSettingAsInt(String settingKey) {
         Setting setting = getSetting(settingKey);
         if (setting != null) {
@@ -181,11 +374,212 @@ public class SettingsClient extends AbstractOtagServiceClient {
      * @throws APIException if a non 200 response is received
      */
     public SDKResponse removeSetting(String settingKey) {
+        SdkQueueEvent sdkEvent = removeSettingEvent(settingKey);
+        try {
+            return sendSdkEventAndGetResponse(sdkEvent);
+        } finally {
+            invalidate(settingKey);
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #removeSetting(String)}.
+     *
+     * @param settingKey the unique configuration setting id
+     * @return future sdk response with a success indicator
+     */
+    public CompletableFuture<SDKResponse> removeSettingAsync(String settingKey) {
+        return sendSdkEventAsync(removeSettingEvent(settingKey))
+                .whenComplete((response, err) -> invalidate(settingKey));
+    }
+
+    /**
+     * Switch on the local settings cache. All of the app's Settings are loaded in a single
+     * request and we register for updates to each of them, so subsequent reads via
+     * {@link #getSetting} (and friends) are served from memory. Settings that are not
+     * loaded up front are cached the first time they are read.
+     *
+     * @throws APIException if we fail to retrieve the Settings from the Gateway
+     */
+    public void enableCache() {
+        cacheEnabled = true;
+
+        Settings settings = getSettings();
+        if (settings == null || settings.getSettings() == null)
+            return;
+
+        long generation = cacheGeneration.get();
+        List<CompletableFuture<Setting>> cached = new ArrayList<>();
+        for (Setting setting : settings.getSettings()) {
+            if (setting != null && !isNullOrEmpty(setting.getKey()))
+                cached.add(watchAsync(setting.getKey())
+                        .thenApply(watched -> watched ? cacheSetting(setting, generation) : setting));
+        }
+
+        CompletableFuture.allOf(cached.toArray(new CompletableFuture[cached.size()])).join();
+        LOG.info("Settings cache enabled, " + settingsCache.size() + " settings cached");
+    }
+
+    /**
+     * Switch off the local settings cache, all reads will go to the Gateway again.
+     */
+    public void disableCache() {
+        cacheEnabled = false;
+        cacheGeneration.incrementAndGet();
+        settingsCache.clear();
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Drop the cached copy of a Setting, the next read will go to the Gateway.
+     *
+     * @param settingKey the unique configuration setting id
+     */
+    public void invalidate(String settingKey) {
+        if (settingKey == null)
+            return;
+
+        cacheGeneration.incrementAndGet();
+        settingsCache.remove(settingKey);
+    }
+
+    private <S extends AbstractLiveSetting> S liveSetting(String settingKey, Class<S> type,
+                                                          Function<String, S> factory) {
         checkSettingKey(settingKey);
 
-        return sendSdkEventAndGetResponse(SdkQueueEvent.request(
-                new SdkRequest<>(SdkEventKeys.SETTINGS_REMOVE_SETTING, settingKey),
-                getAppName(), getPersistenceContext()));
+        // handle creation is rare, so we keep it simple and never create two handles for a key
+        CompletableFuture<AbstractLiveSetting> binding;
+        S handle = null;
+        synchronized (liveSettings) {
+            binding = liveSettings.get(settingKey);
+            if (binding == null) {
+                handle = factory.apply(settingKey);
+                binding = new CompletableFuture<>();
+                liveSettings.put(settingKey, binding);
+            }
+        }
+
+        if (handle == null) {
+            // someone else is binding (or has bound) the key, use their handle
+            AbstractLiveSetting existing = await(binding);
+            if (!type.isInstance(existing))
+                throw new IllegalStateException("Setting " + settingKey + " is already bound to a " +
+                        existing.getClass().getSimpleName());
+            return type.cast(existing);
+        }
+
+        try {
+            bindLiveSetting(handle);
+            binding.complete(handle);
+            return handle;
+        } catch (RuntimeException e) {
+            synchronized (liveSettings) {
+                liveSettings.remove(settingKey, binding);
+            }
+            binding.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Register a new handle for updates and give it the setting's current value. The
+     * value is only applied if no change reached the handle while we were reading it.
+     */
+    private void bindLiveSetting(AbstractLiveSetting handle) {
+        String settingKey = handle.getSettingKey();
+
+        // start listening before we read the current value so we cannot miss a change
+        long seenChanges = handle.getChangeCount();
+        SDKResponse response = registerForUpdates(settingKey);
+        if (response == null || !response.isSuccess())
+            LOG.warn("Failed to register for updates to setting " + settingKey +
+                    ", its live handle will not see changes");
+        OtagMessageDispatcher.addComponent(handle);
+
+        Setting current = getSetting(settingKey);
+        if (current != null && !handle.updateIfUnchanged(current.getValue(), seenChanges))
+            LOG.debug("Setting " + settingKey + " changed while we read it, keeping the newer value");
+    }
+
+    private Setting readThrough(String settingKey, Supplier<Setting> loader) {
+        Setting cached = settingsCache.get(settingKey);
+        if (cached != null)
+            return cached;
+
+        long generation = cacheGeneration.get();
+        Setting setting = loader.get();
+        if (setting != null && watchAsync(settingKey).join())
+            cacheSetting(setting, generation);
+
+        return setting;
+    }
+
+    private Setting cacheSetting(Setting setting, long generation) {
+        // only cache what we can keep fresh, and only if nothing changed while we were reading
+        if (setting != null && cacheEnabled && watchedKeys.contains(setting.getKey())) {
+            settingsCache.put(setting.getKey(), setting);
+            if (cacheGeneration.get() != generation)
+                settingsCache.remove(setting.getKey());
+        }
+
+        return setting;
+    }
+
+    /**
+     * Make sure we hear about changes made to a setting, registering for updates
+     * and adding a handler that invalidates our copy when it changes.
+     *
+     * @param settingKey setting key
+     * @return future that completes with true if the setting is being watched
+     */
+    private CompletableFuture<Boolean> watchAsync(String settingKey) {
+        if (!watchedKeys.add(settingKey))
+            return CompletableFuture.completedFuture(true);
+
+        if (handledKeys.add(settingKey))
+            OtagMessageDispatcher.addComponent(new CacheInvalidatingHandler(settingKey));
+
+        return registerForUpdatesAsync(settingKey).handle((response, err) -> {
+            if (err != null || response == null || !response.isSuccess()) {
+                LOG.warn("Failed to register for updates to setting " + settingKey + ", it will not be cached");
+                watchedKeys.remove(settingKey);
+                return false;
+            }
+            return true;
+        });
+    }
+
+    private SdkQueueEvent registerForUpdatesEvent(String settingKey) {
+        checkSettingKey(settingKey);
+        return SdkQueueEvent.request(new SdkRequest<>(SETTINGS_REGISTER_FOR_SETTING_UPDATES, settingKey),
+                getAppName(), getPersistenceContext());
+    }
+
+    private SdkQueueEvent settingEvent(String endpointId, Setting setting) {
+        if (setting == null || isNullOrEmpty(setting.getKey())) {
+            throw new IllegalArgumentException("A valid setting is required");
+        }
+        return SdkQueueEvent.request(new SdkRequest<>(endpointId, setting), getAppName(), getPersistenceContext());
+    }
+
+    private SdkQueueEvent getSettingsEvent() {
+        return SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.SETTINGS_GET_SETTINGS),
+                getAppName(), getPersistenceContext());
+    }
+
+    private SdkQueueEvent getSettingEvent(String settingKey) {
+        checkSettingKey(settingKey);
+        return SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.SETTINGS_GET_SETTING, settingKey),
+                getAppName(), getPersistenceContext());
+    }
+
+    private SdkQueueEvent removeSettingEvent(String settingKey) {
+        checkSettingKey(settingKey);
+        return SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.SETTINGS_REMOVE_SETTING, settingKey),
+                getAppName(), getPersistenceContext());
     }
 
     private String getManagementPath(String appName) {
@@ -197,4 +591,28 @@ public class SettingsClient extends AbstractOtagServiceClient {
             throw new IllegalArgumentException("The settingKey is required");
         }
     }
+
+    /**
+     * Internal handler that keeps the settings cache honest, dropping our copy of a setting
+     * whenever we are told it has changed.
+     */
+    private class CacheInvalidatingHandler extends AbstractSettingChangeHandler {
+
+        private final String settingKey;
+
+        CacheInvalidatingHandler(String settingKey) {
+            this.settingKey = settingKey;
+        }
+
+        @Override
+        public String getSettingKey() {
+            return settingKey;
+        }
+
+        @Override
+        public void onSettingChanged(SettingsChangeMessage message) {
+            invalidate(settingKey);
+        }
+    }
+
 }
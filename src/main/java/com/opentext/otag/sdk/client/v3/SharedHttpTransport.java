@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JAX-RS client shared by all of our service clients. Requests travel over a pooled
+ * Apache HttpClient connection manager, so connections (and TLS sessions) to the Gateway
+ * are kept alive and reused rather than every client holding its own.
+ * <p>
+ * The transport is built on first use, call {@link #configure(HttpTransportConfig)}
+ * before creating any clients to change its settings.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see AbstractOtagServiceClient
+ */
+public final class SharedHttpTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedHttpTransport.class);
+
+    private static HttpTransportConfig config = new HttpTransportConfig();
+
+    private static volatile Client client;
+    private static PoolingHttpClientConnectionManager connectionManager;
+
+    private SharedHttpTransport() {
+    }
+
+    /**
+     * @return the shared JAX-RS client, built on first use
+     */
+    public static Client getClient() {
+        if (client == null) {
+            synchronized (SharedHttpTransport.class) {
+                if (client == null)
+                    client = build(config);
+            }
+        }
+
+        return client;
+    }
+
+    /**
+     * Change the transport settings, this must happen before the transport is first used.
+     *
+     * @param transportConfig transport settings
+     * @throws IllegalStateException if the transport is already in use
+     */
+    public static synchronized void configure(HttpTransportConfig transportConfig) {
+        if (client != null)
+            throw new IllegalStateException("The shared HTTP transport is already in use, " +
+                    "configure it before creating any service clients");
+        config = Objects.requireNonNull(transportConfig);
+    }
+
+    /**
+     * @return connection pool statistics, null if the transport has not been used yet
+     */
+    public static synchronized PoolStats getPoolStats() {
+        return connectionManager != null ? connectionManager.getTotalStats() : null;
+    }
+
+    /**
+     * Close the shared client and its pooled connections, the next call to
+     * {@link #getClient()} builds a new one.
+     */
+    public static synchronized void shutdown() {
+        if (client != null) {
+            client.close();
+            connectionManager.shutdown();
+            client = null;
+            connectionManager = null;
+        }
+    }
+
+    private static Client build(HttpTransportConfig transportConfig) {
+        LOG.info("Creating shared HTTP transport " + transportConfig);
+
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                transportConfig.getConnectionTimeToLiveMillis(), TimeUnit.MILLISECONDS);
+        pool.setMaxTotal(transportConfig.getMaxConnections());
+        pool.setDefaultMaxPerRoute(transportConfig.getMaxConnectionsPerRoute());
+        pool.setValidateAfterInactivity(transportConfig.getValidateAfterInactivityMillis());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(transportConfig.getConnectTimeoutMillis())
+                .setSocketTimeout(transportConfig.getReadTimeoutMillis())
+                .setConnectionRequestTimeout(transportConfig.getConnectionRequestTimeoutMillis())
+                .build();
+
+        ClientConfig clientConfig = new ClientConfig()
+                .property(ApacheClientProperties.CONNECTION_MANAGER, pool)
+                .property(ApacheClientProperties.REQUEST_CONFIG, requestConfig)
+                .property(ApacheClientProperties.DISABLE_COOKIES, true)
+                .property(ClientProperties.CONNECT_TIMEOUT, transportConfig.getConnectTimeoutMillis())
+                .property(ClientProperties.READ_TIMEOUT, transportConfig.getReadTimeoutMillis())
+                .connectorProvider(new ApacheConnectorProvider());
+
+        Client sharedClient = ClientBuilder.newClient(clientConfig).register(JacksonJsonProvider.class);
+        connectionManager = pool;
+        return sharedClient;
+    }
+
+}
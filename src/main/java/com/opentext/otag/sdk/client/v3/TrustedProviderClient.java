@@ -12,6 +12,7 @@ import com.opentext.otag.sdk.types.v4.SdkRequest;
 import com.opentext.otag.service.context.AWConfigFactory;
 
 import javax.ws.rs.client.Client;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Trusted provider/server API service client. Trusted servers represent a known
@@ -70,6 +71,31 @@ public class TrustedProviderClient extends AbstractOtagServiceClient {
         }
     }
 
+    /**
+     * Non-blocking version of {@link #getAllProviders()}.
+     *
+     * @return future list of trusted servers
+     */
+    public CompletableFuture<TrustedProviders> getAllProvidersAsync() {
+        SdkQueueEvent getEvt = SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.PROVIDER_LIST_PROVIDERS),
+                getAppName(), getPersistenceContext());
+
+        return sendSdkEventAsync(getEvt, TrustedProviders.class);
+    }
+
+    /**
+     * Non-blocking version of {@link #getOrCreate(String)}.
+     *
+     * @param name trusted server name
+     * @return future trusted provider representation
+     */
+    public CompletableFuture<TrustedProvider> getOrCreateAsync(String name) {
+        SdkQueueEvent getEvt = SdkQueueEvent.request(new SdkRequest<>(SdkEventKeys.PROVIDER_GET_OR_CREATE, name),
+                getAppName(), getPersistenceContext());
+
+        return sendSdkEventAsync(getEvt, TrustedProvider.class);
+    }
+
     private String getManagementPath(String appName) {
         return getManagingOtagUrl() + PROVIDERS_SERVICE_PATH + appName + "/";
     }
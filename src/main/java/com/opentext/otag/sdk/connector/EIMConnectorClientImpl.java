@@ -7,16 +7,15 @@ import com.opentext.otag.sdk.client.v3.AbstractOtagServiceClient;
 import com.opentext.otag.sdk.client.v3.ServiceClient;
 import com.opentext.otag.sdk.client.v3.SettingsClient;
 import com.opentext.otag.sdk.handlers.AbstractSettingChangeHandler;
-import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+import com.opentext.otag.sdk.handlers.OtagMessageDispatcher;
+import com.opentext.otag.sdk.handlers.SettingChangeCoalescer;
 import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
 import com.opentext.otag.sdk.types.v3.sdk.EIMConnector;
-import com.opentext.otag.sdk.types.v3.sdk.EIMConnectors;
-import com.opentext.otag.service.context.components.AWComponentContext;
+import com.opentext.otag.service.context.AWConfigFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-import java.util.Objects;
+import javax.ws.rs.client.Client;
 import java.util.Optional;
 
 /**
@@ -32,8 +31,11 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
 
     private static final Logger LOG = LoggerFactory.getLogger(EIMConnectorClientImpl.class);
 
-    private ServiceClient serviceClient;
-    private SettingsClient settingsClient;
+    /**
+     * Where we look connectors up, shared with the other connector clients unless
+     * we were handed our own SDK clients.
+     */
+    private EIMConnectorDirectory directory;
 
     private String connectorName;
     private String connectorVersion;
@@ -41,6 +43,11 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
     private String connectionString;
     private String connectorConnectionSettingKey;
 
+    /**
+     * Collapses bursts of changes to the connection URL setting, null to apply each one.
+     */
+    private volatile SettingChangeCoalescer settingChangeCoalescer;
+
     /**
      * EIM Connector Client. Construction will fail if we are not able to
      * make a connection.
@@ -55,8 +62,36 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
         this.connectorName = connectorName;
         this.connectorVersion = connectorVersion;
 
-        serviceClient = new ServiceClient();
-        settingsClient = new SettingsClient();
+        directory = EIMConnectorDirectory.getInstance();
+    }
+
+    public EIMConnectorClientImpl(String connectorName,
+                                  String connectorVersion,
+                                  ServiceClient serviceClient,
+                                  SettingsClient settingsClient,
+                                  Client restClient,
+                                  AWConfigFactory configurationLoaderFactory) {
+        // testing constructor
+        super(restClient, configurationLoaderFactory);
+
+        this.connectorName = connectorName;
+        this.connectorVersion = connectorVersion;
+
+        this.directory = new EIMConnectorDirectory(serviceClient, settingsClient);
+    }
+
+    public SettingChangeCoalescer getSettingChangeCoalescer() {
+        return settingChangeCoalescer;
+    }
+
+    /**
+     * Coalesce changes to the connector's connection URL setting, so a burst of edits is
+     * applied once. Takes effect for connections made after it is set.
+     *
+     * @param settingChangeCoalescer coalescer, null to apply every change as it arrives
+     */
+    public void setSettingChangeCoalescer(SettingChangeCoalescer settingChangeCoalescer) {
+        this.settingChangeCoalescer = settingChangeCoalescer;
     }
 
     @Override
@@ -83,8 +118,7 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
         }
 
         try {
-            EIMConnectors availableConnectors = serviceClient.getEIMConnectors();
-            Optional<EIMConnector> connectorOpt = getConnector(availableConnectors.getConnectors());
+            Optional<EIMConnector> connectorOpt = directory.find(connectorName, connectorVersion);
 
             // we need to register for updates to the connectors connection URL
             if (connectorOpt.isPresent()) {
@@ -93,8 +127,7 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
                 if (key != null) {
                     connectorConnectionSettingKey = key;
                     // register for updates to the connectors connection String
-                    SDKResponse sdkResponse = settingsClient.registerForUpdates(connectorConnectionSettingKey);
-                    if (!sdkResponse.isSuccess()) {
+                    if (!directory.watch(connectorConnectionSettingKey).join()) {
                         String errMsg = "Failed to register for update to EIM " +
                                 "connector key - " + connectorConnectionSettingKey;
                         LOG.error(errMsg);
@@ -103,7 +136,7 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
 
                     // inject an anonymous handler into the AppWorksContext, we can then intercept messages
                     // that indicate the EIM connectors URL config setting has changed
-                    AWComponentContext.add(new AbstractSettingChangeHandler() {
+                    AbstractSettingChangeHandler urlHandler = new AbstractSettingChangeHandler() {
                         @Override
                         public String getSettingKey() {
                             return connectorConnectionSettingKey;
@@ -113,7 +146,9 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
                         public void onSettingChanged(SettingsChangeMessage message) {
                             connectionString = message.getNewValue();
                         }
-                    });
+                    };
+                    urlHandler.setCoalescer(settingChangeCoalescer);
+                    OtagMessageDispatcher.addComponent(urlHandler);
 
                     // set the properties of the connector
                     connectionString = connector.getConnectionUrl();
@@ -136,12 +171,4 @@ public class EIMConnectorClientImpl extends AbstractOtagServiceClient implements
         }
     }
 
-    private Optional<EIMConnector> getConnector(List<EIMConnector> available) {
-        return available.stream()
-                .filter(connector ->
-                        Objects.equals(connectorName, connector.getConnectorName()) &&
-                                Objects.equals(connectorVersion, connector.getConnectorVersion()))
-                .findFirst();
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,371 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.connector;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.client.v3.ServiceClient;
+import com.opentext.otag.sdk.client.v3.SettingsClient;
+import com.opentext.otag.sdk.handlers.AbstractConcurrentMultiSettingChangeHandler;
+import com.opentext.otag.sdk.handlers.OtagMessageDispatcher;
+import com.opentext.otag.sdk.types.v3.sdk.EIMConnector;
+import com.opentext.otag.sdk.types.v3.sdk.EIMConnectors;
+import com.opentext.otag.service.context.components.AWComponent;
+import com.opentext.otag.service.context.components.AWComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process wide directory of the EIM connectors the Gateway knows about, shared by all
+ * {@link EIMConnectorClient}s so a service using several connectors fetches the list once.
+ * Connectors are indexed by name and version, and by name alone resolving to the latest
+ * version.
+ * <p>
+ * The list is loaded on first use and reloaded in the background when the connection URL
+ * setting of a connector we have handed out changes. A lookup that misses also reloads
+ * the list (at most every few seconds), so connectors registered after we loaded are
+ * found. Call {@link #refresh()} to reload it explicitly.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class EIMConnectorDirectory implements AWComponent {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EIMConnectorDirectory.class);
+
+    /**
+     * Minimum time between reloads caused by lookups for connectors we do not know.
+     */
+    private static final long MISS_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * How long a lookup that missed waits for the reload it asked for.
+     */
+    private static final long MISS_REFRESH_WAIT_SECONDS = 10;
+
+    private static final Object lock = new Object();
+    private static volatile EIMConnectorDirectory instance;
+
+    private final ServiceClient serviceClient;
+    private final SettingsClient settingsClient;
+
+    private volatile Index index;
+    private final Object loadLock = new Object();
+
+    /**
+     * The background reload in progress, if there is one.
+     */
+    private final AtomicReference<CompletableFuture<Void>> refreshing = new AtomicReference<>();
+
+    /**
+     * When a lookup that missed last asked for a reload, so a Gateway that keeps failing
+     * is not asked again on every miss.
+     */
+    private volatile long missRefreshedAt = System.nanoTime() - MISS_REFRESH_INTERVAL_NANOS;
+
+    /**
+     * Connection URL setting keys we are watching, and whether the Gateway accepted our
+     * registration for updates.
+     */
+    private final Map<String, CompletableFuture<Boolean>> watchedKeys = new ConcurrentHashMap<>();
+    private volatile AbstractConcurrentMultiSettingChangeHandler changeHandler;
+
+    /**
+     * @param serviceClient  client used to fetch the connector list
+     * @param settingsClient client used to register for connector setting updates
+     */
+    public EIMConnectorDirectory(ServiceClient serviceClient, SettingsClient settingsClient) {
+        this.serviceClient = Objects.requireNonNull(serviceClient);
+        this.settingsClient = Objects.requireNonNull(settingsClient);
+    }
+
+    /**
+     * @return the process wide directory
+     */
+    public static EIMConnectorDirectory getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    EIMConnectorDirectory directory = new EIMConnectorDirectory(new ServiceClient(),
+                            new SettingsClient());
+                    AWComponentContext.add(directory);
+                    instance = directory;
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Find a connector by name and version.
+     *
+     * @param connectorName    connector name
+     * @param connectorVersion connector version
+     * @return the connector, if the Gateway has it
+     */
+    public Optional<EIMConnector> find(String connectorName, String connectorVersion) {
+        Key key = new Key(connectorName, connectorVersion);
+        EIMConnector connector = getIndex().byNameAndVersion.get(key);
+        if (connector == null && refreshOnMiss())
+            connector = getIndex().byNameAndVersion.get(key);
+        return Optional.ofNullable(connector);
+    }
+
+    /**
+     * Find the latest version of a connector.
+     *
+     * @param connectorName connector name
+     * @return the connector with the highest version, if the Gateway has one
+     */
+    public Optional<EIMConnector> findLatest(String connectorName) {
+        EIMConnector connector = getIndex().latestByName.get(connectorName);
+        if (connector == null && refreshOnMiss())
+            connector = getIndex().latestByName.get(connectorName);
+        return Optional.ofNullable(connector);
+    }
+
+    /**
+     * @return all known connectors
+     */
+    public List<EIMConnector> getConnectors() {
+        return getIndex().connectors;
+    }
+
+    /**
+     * Reload the connector list from the Gateway now.
+     */
+    public void refresh() {
+        synchronized (loadLock) {
+            load();
+        }
+    }
+
+    /**
+     * Reload the connector list in the background, joining a reload already under way.
+     *
+     * @return future that completes when the reload is done
+     */
+    public CompletableFuture<Void> refreshAsync() {
+        CompletableFuture<Void> reload = new CompletableFuture<>();
+        while (!refreshing.compareAndSet(null, reload)) {
+            // the reload we saw may finish before we read it, in which case we try again
+            CompletableFuture<Void> existing = refreshing.get();
+            if (existing != null)
+                return existing;
+        }
+
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    refresh();
+                    reload.complete(null);
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to reload EIM connectors, keeping the list we have - " + e.getMessage());
+                    reload.completeExceptionally(e);
+                } finally {
+                    refreshing.compareAndSet(reload, null);
+                }
+            }, SdkEventCallbackHandler.getSdkResponseExecutor());
+        } catch (RejectedExecutionException e) {
+            LOG.warn("No thread to reload EIM connectors on, keeping the list we have - " + e.getMessage());
+            refreshing.compareAndSet(reload, null);
+            reload.completeExceptionally(e);
+        }
+        return reload;
+    }
+
+    /**
+     * Make sure we hear about changes to a connector's connection URL setting, reloading
+     * the directory when it changes. The Gateway is only asked once per key.
+     *
+     * @param settingKey connection URL setting key
+     * @return future that completes with true if the Gateway accepted our registration
+     */
+    public CompletableFuture<Boolean> watch(String settingKey) {
+        Objects.requireNonNull(settingKey);
+        CompletableFuture<Boolean> watch = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = watchedKeys.putIfAbsent(settingKey, watch);
+        if (existing != null)
+            return existing;
+
+        // listen before we register so we cannot miss a change
+        AbstractConcurrentMultiSettingChangeHandler.Subscription subscription =
+                getChangeHandler().subscribe(settingKey, message -> refreshAsync());
+        settingsClient.registerForUpdatesAsync(settingKey).whenComplete((response, err) -> {
+            boolean registered = err == null && response != null && response.isSuccess();
+            if (!registered) {
+                LOG.warn("Failed to register for updates to EIM connector setting " + settingKey);
+                // let the next caller try again
+                subscription.close();
+                watchedKeys.remove(settingKey, watch);
+            }
+            watch.complete(registered);
+        });
+        return watch;
+    }
+
+    public ServiceClient getServiceClient() {
+        return serviceClient;
+    }
+
+    public SettingsClient getSettingsClient() {
+        return settingsClient;
+    }
+
+    private Index getIndex() {
+        Index current = index;
+        if (current == null) {
+            synchronized (loadLock) {
+                current = index;
+                if (current == null)
+                    current = load();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reload after a lookup missed, unless we reloaded recently. The reload runs in the
+     * background, joining one already under way, and we wait a bounded time for it without
+     * holding the load lock, so other lookups carry on against the list we have.
+     *
+     * @return true if the list was reloaded and is worth looking in again
+     */
+    private boolean refreshOnMiss() {
+        Index seen = index;
+        long now = System.nanoTime();
+        if (now - seen.loadedAt < MISS_REFRESH_INTERVAL_NANOS || now - missRefreshedAt < MISS_REFRESH_INTERVAL_NANOS)
+            return index != seen;
+        missRefreshedAt = now;
+
+        try {
+            refreshAsync().get(MISS_REFRESH_WAIT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            // refreshAsync has already logged a failed reload
+            return false;
+        }
+    }
+
+    // callers hold the load lock
+    private Index load() {
+        EIMConnectors eimConnectors = serviceClient.getEIMConnectors();
+        List<EIMConnector> connectors = eimConnectors != null && eimConnectors.getConnectors() != null
+                ? eimConnectors.getConnectors() : Collections.emptyList();
+
+        Index loaded = new Index(connectors);
+        index = loaded;
+        if (LOG.isDebugEnabled())
+            LOG.debug("Loaded " + loaded.connectors.size() + " EIM connectors");
+        return loaded;
+    }
+
+    private AbstractConcurrentMultiSettingChangeHandler getChangeHandler() {
+        if (changeHandler == null) {
+            synchronized (loadLock) {
+                if (changeHandler == null) {
+                    AbstractConcurrentMultiSettingChangeHandler handler =
+                            new AbstractConcurrentMultiSettingChangeHandler() {
+                            };
+                    OtagMessageDispatcher.addComponent(handler);
+                    changeHandler = handler;
+                }
+            }
+        }
+        return changeHandler;
+    }
+
+    /**
+     * Compare dotted version strings numerically where we can, so 16.10 is after 16.2.
+     */
+    static int compareVersions(String first, String second) {
+        if (first == null || second == null)
+            return first == null ? (second == null ? 0 : -1) : 1;
+
+        String[] firstParts = first.split("\\.");
+        String[] secondParts = second.split("\\.");
+        for (int i = 0; i < Math.max(firstParts.length, secondParts.length); i++) {
+            String firstPart = i < firstParts.length ? firstParts[i] : "0";
+            String secondPart = i < secondParts.length ? secondParts[i] : "0";
+            int result;
+            try {
+                result = Long.compare(Long.parseLong(firstPart), Long.parseLong(secondPart));
+            } catch (NumberFormatException e) {
+                result = firstPart.compareTo(secondPart);
+            }
+            if (result != 0)
+                return result;
+        }
+        return 0;
+    }
+
+    /**
+     * Immutable view of the connector list at the time it was loaded.
+     */
+    private static class Index {
+
+        private final List<EIMConnector> connectors;
+        private final Map<Key, EIMConnector> byNameAndVersion = new HashMap<>();
+        private final Map<String, EIMConnector> latestByName = new HashMap<>();
+        private final long loadedAt = System.nanoTime();
+
+        Index(List<EIMConnector> connectors) {
+            this.connectors = Collections.unmodifiableList(new ArrayList<>(connectors));
+
+            Comparator<EIMConnector> byVersion = (a, b) ->
+                    compareVersions(a.getConnectorVersion(), b.getConnectorVersion());
+            for (EIMConnector connector : this.connectors) {
+                // the first match wins, as it did when we scanned the list
+                byNameAndVersion.putIfAbsent(new Key(connector.getConnectorName(),
+                        connector.getConnectorVersion()), connector);
+                latestByName.merge(connector.getConnectorName(), connector,
+                        (current, candidate) -> byVersion.compare(candidate, current) > 0 ? candidate : current);
+            }
+        }
+    }
+
+    private static class Key {
+
+        private final String name;
+        private final String version;
+
+        Key(String name, String version) {
+            this.name = name;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(name, key.name) && Objects.equals(version, key.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, version);
+        }
+    }
+
+}
@@ -6,8 +6,6 @@ package com.opentext.otag.sdk.handlers;
 import com.opentext.otag.sdk.types.v3.auth.AuthHandler;
 import com.opentext.otag.sdk.types.v3.auth.RegisterAuthHandlersRequest;
 import com.opentext.otag.sdk.types.v3.message.AuthRequestMessage;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Base implementation of the {@link AuthRequestHandler} type, we provide a
@@ -21,8 +19,6 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class AbstractAuthRequestHandler implements AuthRequestHandler {
 
-    private static final Logger LOG = LoggerFactory.getLogger(AbstractAuthRequestHandler.class);
-
     @Override
     public void handle(AuthRequestMessage message) {
         throw new UnsupportedOperationException("Use the auth method of this handler directly");
@@ -31,36 +27,13 @@ public abstract class AbstractAuthRequestHandler implements AuthRequestHandler {
     /**
      * Build a representation of this handler that can be passed in a auth handler
      * registration request. This info allows administrators to select this handler
-     * as the primary auth handler for the Gateway itself.
+     * as the primary auth handler for the Gateway itself. The representation is
+     * built once per handler class, see {@link AuthHandlerDescriptors}.
      *
      * @return auth handler representation
      */
     public AuthHandler buildHandler() {
-        String handlerName = this.getClass().getName();
-        boolean isDecorator = isDecorator();
-
-        String otdsResId = null;
-
-        // should the Gateway attempt to resolve the usernames it receives
-        // for the current primary mechanism into what the back-end server
-        // understands in its OTDS resource partition?
-        if (resolveUsernamesViaOtdsResource()) {
-            try {
-                otdsResId = getOtdsResourceId();
-            } catch (Exception e) {
-                LOG.warn("Failed to resolve OTDS resource id for " + handlerName +
-                        " - " + e.getMessage(), e);
-            }
-        }
-
-        AuthHandler authHandler;
-        if (otdsResId != null) {
-            authHandler = new AuthHandler(handlerName, isDecorator, otdsResId, getKnownCookies());
-        } else {
-            authHandler = new AuthHandler(handlerName, isDecorator, getKnownCookies());
-        }
-
-        return authHandler;
+        return AuthHandlerDescriptors.describe(this);
     }
 
     /**
@@ -70,7 +43,7 @@ public abstract class AbstractAuthRequestHandler implements AuthRequestHandler {
      *
      * @return true if the Gateway should use this handler in auth response decoration
      */
-    private boolean isDecorator() {
+    protected boolean isDecorator() {
         return this.getClass().getAnnotation(AuthResponseDecorator.class) != null;
     }
 
@@ -0,0 +1,242 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Multi setting handler that can be subscribed to and unsubscribed from at any time,
+ * including while messages are being delivered. Any number of subscribers may listen
+ * to a key, and a key ending in {@code *} subscribes to every setting starting with
+ * what comes before it ({@code "*"} on its own matches every setting).
+ * <pre>
+ * Subscription subscription = handler.subscribe("tenant.acme.*", this::onTenantSettingChanged);
+ * // later, when the tenant goes away
+ * subscription.close();
+ * </pre>
+ * Delivery is lock free, a subscriber added or removed during delivery of a message
+ * may or may not see that message, but never sees it twice. A subscriber that throws is
+ * logged and the remaining subscribers still receive the message.
+ * <p>
+ * Only exact keys are reported by {@link #getSettingKeys()}, the Gateway has no notion
+ * of prefixes, so prefix subscribers see changes to the settings the service has
+ * registered for updates to by other means.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ *
+ * @see SettingsChangeMessage
+ */
+public abstract class AbstractConcurrentMultiSettingChangeHandler implements MultiSettingChangeHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractConcurrentMultiSettingChangeHandler.class);
+
+    private static final String WILDCARD = "*";
+
+    private static final int[] NO_PREFIXES = new int[0];
+
+    /**
+     * Subscribers to exact setting keys.
+     */
+    private final Map<String, List<Consumer<SettingsChangeMessage>>> keySubscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Subscribers to setting key prefixes, keyed by the prefix.
+     */
+    private final Map<String, List<Consumer<SettingsChangeMessage>>> prefixSubscribers = new ConcurrentHashMap<>();
+
+    /**
+     * The distinct prefix lengths subscribed to, in ascending order, so a key is matched
+     * with one lookup per length rather than a scan of every prefix.
+     */
+    private volatile int[] prefixLengths = NO_PREFIXES;
+
+    /**
+     * Handle to a subscription, closing it stops delivery to the subscriber.
+     */
+    public interface Subscription extends AutoCloseable {
+
+        /**
+         * @return the key (or key pattern) subscribed to
+         */
+        String getKey();
+
+        /**
+         * @return true until the subscription is closed
+         */
+        boolean isActive();
+
+        /**
+         * Unsubscribe, closing a closed subscription has no effect.
+         */
+        @Override
+        void close();
+
+    }
+
+    /**
+     * Subscribe to changes to a setting, or to every setting matching a pattern ending
+     * in {@code *}.
+     *
+     * @param key        setting key or key pattern
+     * @param subscriber receives the change messages
+     * @return subscription handle
+     */
+    public Subscription subscribe(String key, Consumer<SettingsChangeMessage> subscriber) {
+        if (key == null || key.isEmpty())
+            throw new IllegalArgumentException("Setting key is required");
+        Objects.requireNonNull(subscriber);
+
+        SubscriptionImpl subscription;
+        if (key.endsWith(WILDCARD)) {
+            String prefix = key.substring(0, key.length() - WILDCARD.length());
+            // lengths are only maintained under the lock, delivery reads them without it
+            synchronized (prefixSubscribers) {
+                prefixSubscribers.computeIfAbsent(prefix, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+                updatePrefixLengths();
+            }
+            subscription = new SubscriptionImpl(key, () -> removePrefixSubscriber(prefix, subscriber));
+        } else {
+            keySubscribers.compute(key, (k, subscribers) -> {
+                List<Consumer<SettingsChangeMessage>> updated = subscribers != null
+                        ? subscribers : new CopyOnWriteArrayList<>();
+                updated.add(subscriber);
+                return updated;
+            });
+            subscription = new SubscriptionImpl(key, () -> removeKeySubscriber(key, subscriber));
+        }
+
+        OtagMessageDispatcher.handlerChanged(this);
+        return subscription;
+    }
+
+    /**
+     * @return true if there is a subscriber for any setting key pattern
+     */
+    public boolean hasPatternSubscriptions() {
+        return prefixLengths.length > 0;
+    }
+
+    /**
+     * @return the exact setting keys that currently have subscribers
+     */
+    @Override
+    public Set<String> getSettingKeys() {
+        return Collections.unmodifiableSet(keySubscribers.keySet());
+    }
+
+    /**
+     * Pass the message to every subscriber to its key and to every matching pattern.
+     *
+     * @param message setting change message
+     */
+    @Override
+    public void handle(SettingsChangeMessage message) {
+        Objects.requireNonNull(message);
+        String key = message.getKey();
+        if (key == null)
+            return;
+
+        boolean delivered = deliver(keySubscribers.get(key), message);
+        for (int length : prefixLengths) {
+            if (length > key.length())
+                break;
+            delivered |= deliver(prefixSubscribers.get(key.substring(0, length)), message);
+        }
+
+        if (!delivered && LOG.isDebugEnabled())
+            LOG.debug("No subscriber found for setting " + key);
+    }
+
+    private static boolean deliver(List<Consumer<SettingsChangeMessage>> subscribers,
+                                   SettingsChangeMessage message) {
+        if (subscribers == null || subscribers.isEmpty())
+            return false;
+
+        for (Consumer<SettingsChangeMessage> subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (RuntimeException e) {
+                LOG.error("Subscriber failed to handle change to setting " + message.getKey(), e);
+            }
+        }
+        return true;
+    }
+
+    private void removeKeySubscriber(String key, Consumer<SettingsChangeMessage> subscriber) {
+        keySubscribers.computeIfPresent(key, (k, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        OtagMessageDispatcher.handlerChanged(this);
+    }
+
+    private void removePrefixSubscriber(String prefix, Consumer<SettingsChangeMessage> subscriber) {
+        synchronized (prefixSubscribers) {
+            List<Consumer<SettingsChangeMessage>> subscribers = prefixSubscribers.get(prefix);
+            if (subscribers != null) {
+                subscribers.remove(subscriber);
+                if (subscribers.isEmpty())
+                    prefixSubscribers.remove(prefix);
+            }
+            updatePrefixLengths();
+        }
+        OtagMessageDispatcher.handlerChanged(this);
+    }
+
+    private void updatePrefixLengths() {
+        prefixLengths = prefixSubscribers.keySet().stream()
+                .mapToInt(String::length)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private static class SubscriptionImpl implements Subscription {
+
+        private final String key;
+        private final Runnable onClose;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        SubscriptionImpl(String key, Runnable onClose) {
+            this.key = key;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active.get();
+        }
+
+        @Override
+        public void close() {
+            // the same consumer may be subscribed more than once, so only remove it once
+            if (active.compareAndSet(true, false))
+                onClose.run();
+        }
+
+        @Override
+        public String toString() {
+            return "Subscription{key='" + key + "', active=" + active + "}";
+        }
+    }
+
+}
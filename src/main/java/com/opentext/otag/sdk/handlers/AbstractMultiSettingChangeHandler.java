@@ -7,9 +7,9 @@ import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
@@ -22,25 +22,44 @@ import java.util.function.Consumer;
  * @version 16.2
  *
  * @see SettingsChangeMessage
+ * @see AbstractConcurrentMultiSettingChangeHandler
  */
 public abstract class AbstractMultiSettingChangeHandler implements MultiSettingChangeHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractMultiSettingChangeHandler.class);
 
     /**
-     * Map of setting keys to a handler functions.
+     * Map of setting keys to a handler functions, concurrent as handlers may be added
+     * while messages are being handled.
      */
-    protected Map<String, Consumer<SettingsChangeMessage>> handlers = new HashMap<>();
+    protected Map<String, Consumer<SettingsChangeMessage>> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * Changes waiting to be delivered, null if we deliver each change as it arrives.
+     */
+    private volatile SettingChangeCoalescer.PendingChanges coalesced;
 
     /**
      * Add a handler for a specific key. Note this method overwrites the existing
-     * handler for the provided key.
+     * handler for the provided key. If this handler is registered with the
+     * {@link OtagMessageDispatcher} its index is updated.
      *
      * @param key     setting key
      * @param handler setting change handler func
      */
     public void addHandler(String key, Consumer<SettingsChangeMessage> handler) {
         handlers.put(key, handler);
+        OtagMessageDispatcher.handlerChanged(this);
+    }
+
+    /**
+     * Collapse bursts of changes, so each key's handler only sees the latest change to
+     * its setting in each of the coalescer's windows.
+     *
+     * @param coalescer coalescer to use, null to deliver every change as it arrives
+     */
+    public void setCoalescer(SettingChangeCoalescer coalescer) {
+        coalesced = coalescer != null ? coalescer.pendingChanges(this::deliver) : null;
     }
 
     /**
@@ -53,6 +72,15 @@ public abstract class AbstractMultiSettingChangeHandler implements MultiSettingC
     @Override
     public void handle(SettingsChangeMessage message) {
         Objects.requireNonNull(message);
+        SettingChangeCoalescer.PendingChanges changes = coalesced;
+        if (changes != null && message.getKey() != null && handlers.containsKey(message.getKey())) {
+            changes.add(message);
+        } else {
+            deliver(message);
+        }
+    }
+
+    private void deliver(SettingsChangeMessage message) {
         Consumer<SettingsChangeMessage> messageConsumer = handlers.get(message.getKey());
         if (messageConsumer != null) {
             messageConsumer.accept(message);
@@ -23,6 +23,21 @@ import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
  */
 public abstract class AbstractSettingChangeHandler implements SettingChangeHandler {
 
+    /**
+     * Changes waiting to be delivered, null if we deliver each change as it arrives.
+     */
+    private volatile SettingChangeCoalescer.PendingChanges coalesced;
+
+    /**
+     * Collapse bursts of changes, so {@link #onSettingChanged(SettingsChangeMessage)} only
+     * sees the latest change in each of the coalescer's windows.
+     *
+     * @param coalescer coalescer to use, null to deliver every change as it arrives
+     */
+    public void setCoalescer(SettingChangeCoalescer coalescer) {
+        coalesced = coalescer != null ? coalescer.pendingChanges(this::onSettingChanged) : null;
+    }
+
     /**
      * Base handle implementation, ensures the setting key matches the setting
      * we are interested in before processing the change message.
@@ -35,8 +50,14 @@ public abstract class AbstractSettingChangeHandler implements SettingChangeHandl
             throw new IllegalArgumentException("Cannot handle a null message");
 
         String settingKey = getSettingKey();
-        if (settingKey != null && settingKey.equals(message.getKey()))
-            onSettingChanged(message);
+        if (settingKey != null && settingKey.equals(message.getKey())) {
+            SettingChangeCoalescer.PendingChanges changes = coalesced;
+            if (changes != null) {
+                changes.add(message);
+            } else {
+                onSettingChanged(message);
+            }
+        }
     }
 
 }
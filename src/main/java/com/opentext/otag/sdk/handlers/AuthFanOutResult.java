@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.types.v3.auth.AuthHandlerResult;
+import com.opentext.otag.sdk.util.Cookie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outcome of an {@link AuthHandlerFanOut} round. Outcomes are looked up by the handler's
+ * position in {@link #getHandlers()}, the fan out's handlers in order, so two instances of
+ * the same handler class are reported separately. Every handler that took part either
+ * answered, failed or skipped.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class AuthFanOutResult {
+
+    private final List<AuthRequestHandler> handlers;
+    private final AuthHandlerResult[] results;
+    private final Throwable[] failures;
+    private final long[] latencyMillis;
+
+    AuthFanOutResult(List<AuthRequestHandler> handlers) {
+        this.handlers = handlers;
+        this.results = new AuthHandlerResult[handlers.size()];
+        this.failures = new Throwable[handlers.size()];
+        this.latencyMillis = new long[handlers.size()];
+        Arrays.fill(latencyMillis, -1);
+    }
+
+    void addResult(int handler, AuthHandlerResult result, long millis) {
+        results[handler] = result;
+        latencyMillis[handler] = millis;
+    }
+
+    void addFailure(int handler, Throwable failure, long millis) {
+        failures[handler] = failure;
+        latencyMillis[handler] = millis;
+    }
+
+    /**
+     * @return the handlers that took part, in the order outcomes are indexed by
+     */
+    public List<AuthRequestHandler> getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * The cookies from every handler that answered, in handler order.
+     *
+     * @return merged auth cookies
+     */
+    public Set<Cookie> getCookies() {
+        Set<Cookie> cookies = new LinkedHashSet<>();
+        for (AuthHandlerResult result : results) {
+            if (result != null && result.getCookies() != null)
+                cookies.addAll(result.getCookies());
+        }
+        return cookies;
+    }
+
+    /**
+     * @return the results of the handlers that answered in time, in handler order
+     */
+    public List<AuthHandlerResult> getResults() {
+        List<AuthHandlerResult> answered = new ArrayList<>();
+        for (AuthHandlerResult result : results) {
+            if (result != null)
+                answered.add(result);
+        }
+        return Collections.unmodifiableList(answered);
+    }
+
+    /**
+     * @param handler handler index
+     * @return the handler's result, null if it skipped or failed
+     */
+    public AuthHandlerResult getResult(int handler) {
+        return results[handler];
+    }
+
+    /**
+     * @param handler handler index
+     * @return what the handler threw, null if it did not fail
+     */
+    public Throwable getFailure(int handler) {
+        return failures[handler];
+    }
+
+    /**
+     * @param handler handler index
+     * @return true if the handler chose to skip auth, or missed the deadline
+     */
+    public boolean isSkipped(int handler) {
+        return results[handler] == null && failures[handler] == null;
+    }
+
+    /**
+     * @param handler handler index
+     * @return how long the handler took to answer or fail, -1 if it skipped
+     */
+    public long getLatencyMillis(int handler) {
+        return latencyMillis[handler];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("AuthFanOutResult{");
+        for (int i = 0; i < handlers.size(); i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(i).append(':').append(handlers.get(i).getClass().getSimpleName()).append('=');
+            if (results[i] != null) {
+                sb.append("answered in ").append(latencyMillis[i]).append("ms");
+            } else if (failures[i] != null) {
+                sb.append("failed in ").append(latencyMillis[i]).append("ms");
+            } else {
+                sb.append("skipped");
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.types.v3.auth.AuthHandler;
+import com.opentext.otag.sdk.types.v3.auth.RegisterAuthHandlersRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the {@link AuthHandler} descriptors the Gateway is given when auth handlers
+ * are registered, remembering them per handler class. Working out a descriptor can mean
+ * asking the back-end for its OTDS resource id, so we only want to do it once.
+ * <p>
+ * {@link #describe} never calls the back-end on the caller's thread. Until a handler's
+ * OTDS resource id is known it is described without one, that descriptor is not
+ * remembered, and the lookup runs in the background, retried with a growing back-off.
+ * {@link #describeAsync} completes once the lookup is done, so the handler can be
+ * registered again with its id, see
+ * {@link com.opentext.otag.sdk.client.v3.AuthClient#registerAuthHandlersAsync(java.util.Collection)}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ *
+ * @see RegisterAuthHandlersRequest
+ */
+public final class AuthHandlerDescriptors {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuthHandlerDescriptors.class);
+
+    /**
+     * Attempts made to resolve an OTDS resource id before we give up on it.
+     */
+    private static final int OTDS_RESOLUTION_ATTEMPTS = 3;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+
+    /**
+     * Completed descriptors by handler class.
+     */
+    private static final Map<Class<?>, AuthHandler> descriptors = new ConcurrentHashMap<>();
+
+    /**
+     * Descriptors being built, so concurrent requests for a class share the work.
+     */
+    private static final Map<Class<?>, CompletableFuture<AuthHandler>> building = new ConcurrentHashMap<>();
+
+    private AuthHandlerDescriptors() {
+    }
+
+    /**
+     * Describe a handler without waiting on the back-end. A remembered descriptor is
+     * returned straight away, as is the descriptor of a handler that does not resolve
+     * usernames via an OTDS resource, there is nothing to look up for it. Otherwise the
+     * OTDS resource id lookup is started in the background, see {@link #describeAsync},
+     * and the handler is described without an id for now.
+     *
+     * @param handler auth handler
+     * @return handler descriptor
+     */
+    public static AuthHandler describe(AuthRequestHandler handler) {
+        Objects.requireNonNull(handler);
+
+        AuthHandler known = descriptors.get(handler.getClass());
+        if (known != null)
+            return known;
+
+        boolean needsOtdsResource = handler.resolveUsernamesViaOtdsResource();
+        if (needsOtdsResource)
+            describeAsync(handler);
+
+        return describe(handler, needsOtdsResource, null);
+    }
+
+    /**
+     * @param handler auth handler
+     * @return true if the complete descriptor of the handler's class is remembered, so
+     * {@link #describe} will return it
+     */
+    public static boolean isDescribed(AuthRequestHandler handler) {
+        return descriptors.containsKey(handler.getClass());
+    }
+
+    /**
+     * Describe a handler, resolving its OTDS resource id (if it has one) on the SDK's
+     * response executor.
+     *
+     * @param handler auth handler
+     * @return future handler descriptor, without an OTDS resource id if the lookup gave up,
+     * null if the handler could not be described, never completed exceptionally
+     */
+    public static CompletableFuture<AuthHandler> describeAsync(AuthRequestHandler handler) {
+        Objects.requireNonNull(handler);
+        Class<?> handlerClass = handler.getClass();
+
+        AuthHandler known = descriptors.get(handlerClass);
+        if (known != null)
+            return CompletableFuture.completedFuture(known);
+
+        CompletableFuture<AuthHandler> build = new CompletableFuture<>();
+        CompletableFuture<AuthHandler> existing = building.putIfAbsent(handlerClass, build);
+        if (existing != null)
+            return existing;
+
+        try {
+            CompletableFuture.runAsync(() -> {
+                AuthHandler descriptor = null;
+                try {
+                    descriptor = build(handler);
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to describe auth handler " + handlerClass.getName() + " - " + e.getMessage(), e);
+                } finally {
+                    building.remove(handlerClass, build);
+                    build.complete(descriptor);
+                }
+            }, SdkEventCallbackHandler.getSdkResponseExecutor());
+        } catch (RejectedExecutionException e) {
+            LOG.warn("No thread to describe auth handler " + handlerClass.getName() + " on - " + e.getMessage());
+            building.remove(handlerClass, build);
+            build.complete(null);
+        }
+
+        return build;
+    }
+
+    /**
+     * Forget every remembered descriptor, for example after the back-ends have been
+     * reconfigured.
+     */
+    public static void invalidateAll() {
+        descriptors.clear();
+    }
+
+    private static AuthHandler build(AuthRequestHandler handler) {
+        // should the Gateway attempt to resolve the usernames it receives
+        // for the current primary mechanism into what the back-end server
+        // understands in its OTDS resource partition?
+        boolean needsOtdsResource = handler.resolveUsernamesViaOtdsResource();
+        String otdsResId = needsOtdsResource ? resolveOtdsResourceId(handler) : null;
+        return describe(handler, needsOtdsResource, otdsResId);
+    }
+
+    private static AuthHandler describe(AuthRequestHandler handler, boolean needsOtdsResource, String otdsResId) {
+        String handlerName = handler.getClass().getName();
+        boolean isDecorator = isDecorator(handler);
+
+        AuthHandler authHandler;
+        if (otdsResId != null) {
+            authHandler = new AuthHandler(handlerName, isDecorator, otdsResId, handler.getKnownCookies());
+        } else {
+            authHandler = new AuthHandler(handlerName, isDecorator, handler.getKnownCookies());
+        }
+
+        // only remember complete descriptors, so a failed lookup is retried next time
+        if (!needsOtdsResource || otdsResId != null)
+            descriptors.put(handler.getClass(), authHandler);
+
+        return authHandler;
+    }
+
+    private static String resolveOtdsResourceId(AuthRequestHandler handler) {
+        String handlerName = handler.getClass().getName();
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; attempt <= OTDS_RESOLUTION_ATTEMPTS; attempt++) {
+            try {
+                String otdsResId = handler.getOtdsResourceId();
+                if (otdsResId != null)
+                    return otdsResId;
+                LOG.warn("No OTDS resource id for " + handlerName + " (attempt " + attempt + ")");
+            } catch (Exception e) {
+                LOG.warn("Failed to resolve OTDS resource id for " + handlerName +
+                        " (attempt " + attempt + ") - " + e.getMessage(), e);
+            }
+
+            if (attempt < OTDS_RESOLUTION_ATTEMPTS) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                backoff *= 2;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isDecorator(AuthRequestHandler handler) {
+        if (handler instanceof AbstractAuthRequestHandler)
+            return ((AbstractAuthRequestHandler) handler).isDecorator();
+        return handler.getClass().getAnnotation(AuthResponseDecorator.class) != null;
+    }
+
+}
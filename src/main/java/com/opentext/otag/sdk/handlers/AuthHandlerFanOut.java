@@ -0,0 +1,255 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.metrics.EndpointMetrics;
+import com.opentext.otag.sdk.metrics.EndpointSnapshot;
+import com.opentext.otag.sdk.types.v3.auth.AuthHandlerResult;
+import com.opentext.otag.sdk.types.v3.client.ClientRepresentation;
+import com.opentext.otag.sdk.util.ForwardHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Authenticates a user against several back-ends at once. Each {@link AuthRequestHandler}
+ * is called concurrently and the round is bounded by a single deadline, so a login costs
+ * the slowest back-end rather than the sum of them all. Handlers that have not answered by
+ * the deadline are treated as having skipped auth, as are handlers that return null. A
+ * straggler is left to finish rather than interrupted, the thread it runs on may not be
+ * ours to interrupt. The cookies of the handlers that did answer are merged, see
+ * {@link AuthFanOutResult#getCookies()}.
+ * <p>
+ * By default handlers run on a bounded pool of daemon threads of the fan out's own, sized
+ * for {@value #DEFAULT_CONCURRENT_ROUNDS} rounds at once. When the pool is saturated, by
+ * stragglers for instance, the handlers that cannot be run are reported as failed with a
+ * {@link RejectedExecutionException} rather than queueing without bound.
+ * <p>
+ * Per handler call counts, failures and latencies are kept, see {@link #snapshot()}. A
+ * straggler's latency is recorded when it eventually finishes. Handlers are told apart by
+ * their position as well as their class, so two handlers of the same class, configured for
+ * different back-ends say, are measured separately.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ *
+ * @see AuthResponseDecorator
+ */
+public class AuthHandlerFanOut {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuthHandlerFanOut.class);
+
+    /**
+     * Rounds the default pool runs at once, with room for as many again to wait.
+     */
+    public static final int DEFAULT_CONCURRENT_ROUNDS = 4;
+
+    private final List<AuthRequestHandler> handlers;
+    private final long deadlineNanos;
+    private final ExecutorService executor;
+
+    /**
+     * Keyed by {@link #metricsName(int)}.
+     */
+    private final Map<String, EndpointMetrics> handlerMetrics = new ConcurrentHashMap<>();
+
+    /**
+     * Fan out using a bounded pool of our own.
+     *
+     * @param handlers handlers to call
+     * @param deadline how long a round may take
+     * @param unit     deadline time unit
+     */
+    public AuthHandlerFanOut(Collection<? extends AuthRequestHandler> handlers, long deadline, TimeUnit unit) {
+        this(handlers, deadline, unit, newExecutor(handlers.size() * DEFAULT_CONCURRENT_ROUNDS));
+    }
+
+    /**
+     * @param handlers handlers to call
+     * @param deadline how long a round may take
+     * @param unit     deadline time unit
+     * @param executor runs the handlers, it should allow them all to run at once, handlers
+     *                 that miss the deadline are never interrupted
+     */
+    public AuthHandlerFanOut(Collection<? extends AuthRequestHandler> handlers, long deadline, TimeUnit unit,
+                             ExecutorService executor) {
+        Objects.requireNonNull(handlers);
+        if (deadline <= 0)
+            throw new IllegalArgumentException("Deadline must be positive");
+        this.handlers = Collections.unmodifiableList(new ArrayList<>(handlers));
+        this.deadlineNanos = unit.toNanos(deadline);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * Fan out to the handlers annotated with {@link AuthResponseDecorator}, the ones the
+     * Gateway uses to decorate auth responses.
+     *
+     * @param handlers candidate handlers
+     * @param deadline how long a round may take
+     * @param unit     deadline time unit
+     * @return fan out over the decorators
+     */
+    public static AuthHandlerFanOut decorators(Collection<? extends AuthRequestHandler> handlers,
+                                               long deadline, TimeUnit unit) {
+        List<AuthRequestHandler> decorators = handlers.stream()
+                .filter(handler -> handler.getClass().getAnnotation(AuthResponseDecorator.class) != null)
+                .collect(Collectors.toList());
+        return new AuthHandlerFanOut(decorators, deadline, unit);
+    }
+
+    /**
+     * Authorize the user with every handler using their credentials.
+     *
+     * @param username   username as provided to the auth service
+     * @param password   password
+     * @param headers    forwarding headers for the back-end servers
+     * @param clientData client details
+     * @return merged outcome
+     * @see AuthRequestHandler#auth(String, String, ForwardHeaders, ClientRepresentation)
+     */
+    public AuthFanOutResult auth(String username, String password, ForwardHeaders headers,
+                                 ClientRepresentation clientData) {
+        return fanOut(handler -> handler.auth(username, password, headers, clientData));
+    }
+
+    /**
+     * Authorize the user with every handler using a session token.
+     *
+     * @param authToken  the auth token for the user
+     * @param headers    forwarding headers for the back-end servers
+     * @param clientData client details
+     * @return merged outcome
+     * @see AuthRequestHandler#auth(String, ForwardHeaders, ClientRepresentation)
+     */
+    public AuthFanOutResult auth(String authToken, ForwardHeaders headers, ClientRepresentation clientData) {
+        return fanOut(handler -> handler.auth(authToken, headers, clientData));
+    }
+
+    public List<AuthRequestHandler> getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Point in time copy of the per handler metrics, keyed and sorted by handler class and
+     * position in {@link #getHandlers()}, "com.example.MyHandler#0" for the first handler.
+     *
+     * @return handler snapshots
+     */
+    public Map<String, EndpointSnapshot> snapshot() {
+        Map<String, EndpointSnapshot> snapshot = new TreeMap<>();
+        handlerMetrics.forEach((name, metrics) -> snapshot.put(name, metrics.snapshot()));
+        return snapshot;
+    }
+
+    private AuthFanOutResult fanOut(Function<AuthRequestHandler, AuthHandlerResult> authCall) {
+        long deadline = System.nanoTime() + deadlineNanos;
+        AuthFanOutResult result = new AuthFanOutResult(handlers);
+
+        List<Future<TimedResult>> calls = new ArrayList<>(handlers.size());
+        for (int i = 0; i < handlers.size(); i++) {
+            AuthRequestHandler handler = handlers.get(i);
+            String handlerName = metricsName(i);
+            try {
+                calls.add(executor.submit(() -> timedAuth(handlerName, handler, authCall)));
+            } catch (RejectedExecutionException e) {
+                LOG.warn("No thread to run auth handler " + handler.getClass().getName() + " - " + e.getMessage());
+                result.addFailure(i, e, 0);
+                calls.add(null);
+            }
+        }
+
+        for (int i = 0; i < handlers.size(); i++) {
+            Future<TimedResult> call = calls.get(i);
+            if (call == null)
+                continue;
+
+            try {
+                TimedResult timed = call.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (timed.failure != null) {
+                    result.addFailure(i, timed.failure, timed.millis);
+                } else if (timed.result != null) {
+                    result.addResult(i, timed.result, timed.millis);
+                }
+            } catch (TimeoutException e) {
+                LOG.warn("Auth handler " + handlers.get(i).getClass().getName() +
+                        " missed the auth deadline, skipping it");
+                // drops a call that has not started, one that has is left to finish
+                call.cancel(false);
+            } catch (ExecutionException e) {
+                // timedAuth catches handler failures, so this is unexpected
+                result.addFailure(i, e.getCause(), 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                calls.stream().filter(Objects::nonNull).forEach(pending -> pending.cancel(false));
+                throw new IllegalStateException("Interrupted waiting for auth handlers", e);
+            }
+        }
+
+        return result;
+    }
+
+    private static ExecutorService newExecutor(int maxThreads) {
+        int threads = Math.max(1, maxThreads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(threads),
+                new SdkEventCallbackHandler.SdkThreadFactory("otag-auth-fan-out-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private String metricsName(int index) {
+        return handlers.get(index).getClass().getName() + "#" + index;
+    }
+
+    private TimedResult timedAuth(String handlerName, AuthRequestHandler handler,
+                                  Function<AuthRequestHandler, AuthHandlerResult> authCall) {
+        EndpointMetrics metrics = handlerMetrics.computeIfAbsent(handlerName, EndpointMetrics::new);
+
+        long start = metrics.begin();
+        try {
+            AuthHandlerResult result = authCall.apply(handler);
+            metrics.end(start, null);
+            return new TimedResult(result, null, start);
+        } catch (RuntimeException e) {
+            metrics.end(start, e);
+            LOG.error("Auth handler " + handlerName + " failed - " + e.getMessage(), e);
+            return new TimedResult(null, e, start);
+        }
+    }
+
+    private static class TimedResult {
+
+        private final AuthHandlerResult result;
+        private final Throwable failure;
+        private final long millis;
+
+        TimedResult(AuthHandlerResult result, Throwable failure, long startNanos) {
+            this.result = result;
+            this.failure = failure;
+            this.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+
+}
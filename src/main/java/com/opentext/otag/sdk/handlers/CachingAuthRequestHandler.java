@@ -0,0 +1,201 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opentext.otag.sdk.cache.ExpiringCache;
+import com.opentext.otag.sdk.types.v3.auth.AuthHandlerResult;
+import com.opentext.otag.sdk.types.v3.client.ClientRepresentation;
+import com.opentext.otag.sdk.util.Cookie;
+import com.opentext.otag.sdk.util.ForwardHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Remembers the results of a back-end {@link AuthRequestHandler} for a short time, so
+ * clients that re-authenticate aggressively do not force a back-end login every time.
+ * <p>
+ * Results are keyed by a keyed hash (HMAC-SHA256, with a random key held only by this
+ * handler) of the credentials or token and the client's identity, raw passwords and tokens
+ * are never stored. Concurrent logins with the same key share a single back-end call,
+ * failures and null (skipped) results are never cached. A back-end password change or
+ * session revocation is not seen until the cached result expires, so keep the time to
+ * live short, or call the invalidation methods when you learn of one.
+ * <p>
+ * The Gateway registers handlers via their no-arg constructor, so extend this class and
+ * hand the handler doing the real work to the constructor:
+ * <pre>
+ * public class CachingContentServerAuthHandler extends CachingAuthRequestHandler {
+ *     public CachingContentServerAuthHandler() {
+ *         super(new ContentServerAuthHandler(), 30000, 10000);
+ *     }
+ * }
+ * </pre>
+ * The cookies, OTDS resource details and decorator status of the wrapped handler are
+ * reported as this handler's.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public abstract class CachingAuthRequestHandler extends AbstractAuthRequestHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingAuthRequestHandler.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AuthRequestHandler delegate;
+    private final ExpiringCache<String, AuthHandlerResult> results;
+
+    private final SecretKeySpec hashKey;
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * @param delegate  handler that performs the back-end auth
+     * @param ttlMillis how long a result is reused for
+     * @param maxSize   maximum number of results to hold
+     */
+    protected CachingAuthRequestHandler(AuthRequestHandler delegate, long ttlMillis, int maxSize) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.results = new ExpiringCache<>(maxSize, ttlMillis, 0);
+
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.hashKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    @Override
+    public AuthHandlerResult auth(String username, String password, ForwardHeaders headers,
+                                  ClientRepresentation clientData) {
+        String clientIdentity = clientIdentity(clientData);
+        if (username == null || password == null || clientIdentity == null)
+            return delegate.auth(username, password, headers, clientData);
+
+        String key = hash("user", username) + "." + hash("login", username, password, clientIdentity);
+        return results.get(key, k -> delegate.auth(username, password, headers, clientData));
+    }
+
+    @Override
+    public AuthHandlerResult auth(String authToken, ForwardHeaders headers, ClientRepresentation clientData) {
+        String clientIdentity = clientIdentity(clientData);
+        if (authToken == null || clientIdentity == null)
+            return delegate.auth(authToken, headers, clientData);
+
+        String key = hash("token", authToken) + "." + hash("session", authToken, clientIdentity);
+        return results.get(key, k -> delegate.auth(authToken, headers, clientData));
+    }
+
+    /**
+     * Forget the results of username and password logins for a user, for example
+     * after their password changes. Results of token logins are not affected.
+     *
+     * @param username username
+     */
+    public void invalidateUser(String username) {
+        Objects.requireNonNull(username);
+        String prefix = hash("user", username) + ".";
+        results.invalidateIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Forget the results of logins with a token, for example after it is revoked.
+     *
+     * @param authToken auth token
+     */
+    public void invalidateToken(String authToken) {
+        Objects.requireNonNull(authToken);
+        String prefix = hash("token", authToken) + ".";
+        results.invalidateIf(key -> key.startsWith(prefix));
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    /**
+     * @return the result cache, for its hit and miss counts
+     */
+    public ExpiringCache<String, AuthHandlerResult> getResults() {
+        return results;
+    }
+
+    public AuthRequestHandler getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean resolveUsernamesViaOtdsResource() {
+        return delegate.resolveUsernamesViaOtdsResource();
+    }
+
+    @Override
+    public String getOtdsResourceId() {
+        return delegate.getOtdsResourceId();
+    }
+
+    @Override
+    public Set<Cookie> getKnownCookies() {
+        return delegate.getKnownCookies();
+    }
+
+    @Override
+    protected boolean isDecorator() {
+        return super.isDecorator() || delegate.getClass().getAnnotation(AuthResponseDecorator.class) != null;
+    }
+
+    /**
+     * Identify the client a login is for, results are only shared between logins from
+     * the same client. By default this is the full client representation. Override to
+     * relax (or tighten) this.
+     *
+     * @param clientData client details
+     * @return client identity, or null to not cache the login
+     */
+    protected String clientIdentity(ClientRepresentation clientData) {
+        if (clientData == null)
+            return "";
+
+        try {
+            return MAPPER.writeValueAsString(clientData);
+        } catch (JsonProcessingException e) {
+            LOG.warn("Unable to identify client, auth result will not be cached - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String hash(String purpose, String... parts) {
+        Mac mac = macs.get();
+        mac.update(purpose.getBytes(StandardCharsets.UTF_8));
+        for (String part : parts) {
+            // separate the parts so ("ab", "c") and ("a", "bc") hash differently
+            mac.update((byte) 0);
+            mac.update(part.getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal());
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hashKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            // every Java platform is required to support HmacSHA256
+            throw new IllegalStateException("Unable to create " + HMAC_ALGORITHM + " MAC", e);
+        }
+    }
+
+}
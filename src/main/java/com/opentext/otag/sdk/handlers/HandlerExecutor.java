@@ -0,0 +1,338 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.metrics.EndpointMetrics;
+import com.opentext.otag.sdk.metrics.EndpointSnapshot;
+import com.opentext.otag.sdk.metrics.LatencyHistogram;
+import com.opentext.otag.sdk.types.v3.message.OtagMessage;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs handler callbacks off the thread that delivers Gateway messages, so a slow
+ * handler does not hold up everything behind it.
+ * <p>
+ * Work is spread over a fixed number of lanes, each a bounded queue served by a single
+ * thread. Work with the same ordering key always goes to the same lane, so messages for
+ * one setting key (or one event type) are handled in the order they arrived while
+ * unrelated messages are handled in parallel. When a lane is full the submitting thread
+ * waits for space, which pushes back on the sender rather than growing without bound.
+ * A handler that submits to its own lane is never made to wait on itself, if the lane
+ * is full the task is queued past the lane's capacity, still behind everything queued
+ * before it. Other submitters then wait until the lane is back under capacity.
+ * <p>
+ * Install an executor with {@link OtagMessageDispatcher#setHandlerExecutor(HandlerExecutor)}
+ * to have the dispatcher use it, or {@link #submit(String, String, Runnable)} other work,
+ * such as slow {@link AWServiceContextHandler#onStart(String)} bootstrapping, directly.
+ * Queue depth, time spent queued and handler durations (by handler) are recorded, see
+ * {@link #snapshot()}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class HandlerExecutor implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HandlerExecutor.class);
+
+    /**
+     * How long idle lanes wait for work before checking whether we have been closed.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    private final List<Lane> lanes = new ArrayList<>();
+
+    private final Map<String, EndpointMetrics> handlerMetrics = new ConcurrentHashMap<>();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+
+    private volatile boolean running = true;
+
+    /**
+     * Submitters past the running check that may not have queued their task yet, lanes
+     * keep going until this drops to zero so a task queued as we close is not stranded.
+     */
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    /**
+     * Executor with a lane per available processor.
+     *
+     * @param laneCapacity maximum number of queued tasks per lane
+     */
+    public HandlerExecutor(int laneCapacity) {
+        this(Runtime.getRuntime().availableProcessors(), laneCapacity);
+    }
+
+    /**
+     * @param laneCount    number of lanes, and so the number of handlers that may run at once
+     * @param laneCapacity maximum number of queued tasks per lane
+     */
+    public HandlerExecutor(int laneCount, int laneCapacity) {
+        if (laneCount < 1 || laneCapacity < 1)
+            throw new IllegalArgumentException("laneCount and laneCapacity must be positive");
+
+        ThreadFactory threadFactory = new SdkEventCallbackHandler.SdkThreadFactory("otag-handler-");
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(laneCapacity);
+            lane.thread = threadFactory.newThread(lane);
+            lanes.add(lane);
+        }
+        for (Lane lane : lanes)
+            lane.thread.start();
+    }
+
+    /**
+     * The ordering key for a message, its setting key for setting changes and its event
+     * type for everything else.
+     *
+     * @param message Gateway message
+     * @return ordering key
+     */
+    public static String orderingKey(OtagMessage message) {
+        if (message instanceof SettingsChangeMessage && ((SettingsChangeMessage) message).getKey() != null)
+            return ((SettingsChangeMessage) message).getKey();
+        return String.valueOf(message.getEvent());
+    }
+
+    /**
+     * Queue a task, waiting for space if its lane is full.
+     *
+     * @param orderingKey tasks with the same key run one at a time, in submission order
+     * @param name        what to record the task's duration against, usually the handler class
+     * @param task        the work
+     * @return future that completes when the task has run, exceptionally if it failed
+     * @throws RejectedExecutionException if this executor has been closed, or the caller
+     *                                    was interrupted while waiting for space
+     */
+    public CompletableFuture<Void> submit(String orderingKey, String name, Runnable task) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(task);
+
+        QueuedTask queuedTask = new QueuedTask(name, task);
+        Lane lane = lanes.get(laneIndex(orderingKey));
+        submitting.incrementAndGet();
+        try {
+            if (!running)
+                throw new RejectedExecutionException("Handler executor has been closed");
+
+            // waiting for our own lane to make space would wait forever
+            lane.put(queuedTask, lane.thread != Thread.currentThread());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting to queue " + name, e);
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return queuedTask.result;
+    }
+
+    /**
+     * @return tasks queued across all lanes
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes)
+            depth += lane.size();
+        return depth;
+    }
+
+    /**
+     * @return the depth of the busiest lane, a high value against a low total points to
+     * one ordering key (or a collision of keys) hogging a lane
+     */
+    public int getMaxLaneDepth() {
+        int max = 0;
+        for (Lane lane : lanes)
+            max = Math.max(max, lane.size());
+        return max;
+    }
+
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * @return time tasks spent waiting in a lane before they started
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * Point in time copy of the handler duration metrics, keyed and sorted by task name.
+     *
+     * @return handler snapshots
+     */
+    public Map<String, EndpointSnapshot> snapshot() {
+        Map<String, EndpointSnapshot> snapshot = new TreeMap<>();
+        handlerMetrics.forEach((name, metrics) -> snapshot.put(name, metrics.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * Stop accepting work and wait for the tasks already queued to run. Tasks still queued
+     * after 30 seconds are failed with a {@link RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        running = false;
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        for (Lane lane : lanes) {
+            // a handler closing the executor cannot wait for its own lane
+            if (lane.thread == Thread.currentThread())
+                continue;
+            try {
+                lane.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        for (Lane lane : lanes) {
+            if (lane.thread != Thread.currentThread())
+                lane.failQueued();
+        }
+    }
+
+    private int laneIndex(String orderingKey) {
+        int hash = orderingKey == null ? 0 : orderingKey.hashCode();
+        // spread the bits, string hashes of similar keys differ mostly in the low bits
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % lanes.size();
+    }
+
+    private void run(QueuedTask queuedTask) {
+        queueLatency.record(System.nanoTime() - queuedTask.queuedAt);
+
+        EndpointMetrics metrics = handlerMetrics.computeIfAbsent(queuedTask.name, EndpointMetrics::new);
+        long start = metrics.begin();
+        Throwable error = null;
+        try {
+            queuedTask.task.run();
+        } catch (RuntimeException | Error e) {
+            error = e;
+            LOG.error("Handler " + queuedTask.name + " failed", e);
+        } finally {
+            metrics.end(start, error);
+        }
+
+        if (error == null)
+            queuedTask.result.complete(null);
+        else
+            queuedTask.result.completeExceptionally(error);
+    }
+
+    private static class QueuedTask {
+
+        private final String name;
+        private final Runnable task;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        QueuedTask(String name, Runnable task) {
+            this.name = name;
+            this.task = task;
+        }
+    }
+
+    private class Lane implements Runnable {
+
+        private final Object lock = new Object();
+        private final Deque<QueuedTask> queue = new ArrayDeque<>();
+        private final int capacity;
+        private Thread thread;
+
+        Lane(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Queue a task behind everything already queued.
+         *
+         * @param queuedTask   the task
+         * @param waitForSpace whether to wait while the lane is at or over capacity, false
+         *                     lets the lane's own thread queue past it
+         * @throws InterruptedException if interrupted while waiting for space
+         */
+        void put(QueuedTask queuedTask, boolean waitForSpace) throws InterruptedException {
+            synchronized (lock) {
+                while (waitForSpace && queue.size() >= capacity)
+                    lock.wait();
+                queue.addLast(queuedTask);
+                lock.notifyAll();
+            }
+        }
+
+        int size() {
+            synchronized (lock) {
+                return queue.size();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!isFinished()) {
+                try {
+                    QueuedTask queuedTask = poll();
+                    if (queuedTask != null)
+                        HandlerExecutor.this.run(queuedTask);
+                } catch (InterruptedException e) {
+                    // only close() should stop us
+                }
+            }
+        }
+
+        private QueuedTask poll() throws InterruptedException {
+            synchronized (lock) {
+                if (queue.isEmpty())
+                    lock.wait(POLL_MILLIS);
+                QueuedTask queuedTask = queue.pollFirst();
+                if (queuedTask != null)
+                    lock.notifyAll();
+                return queuedTask;
+            }
+        }
+
+        /**
+         * Closed, with no submitter still on its way in and nothing left to run. The order
+         * of the checks matters, a submitter that got past the running check has queued
+         * its task by the time it stops counting as submitting.
+         */
+        private boolean isFinished() {
+            return !running && submitting.get() == 0 && size() == 0;
+        }
+
+        private void failQueued() {
+            List<QueuedTask> leftovers;
+            synchronized (lock) {
+                leftovers = new ArrayList<>(queue);
+                queue.clear();
+                lock.notifyAll();
+            }
+            if (!leftovers.isEmpty())
+                LOG.warn("Handler executor closed with " + leftovers.size() + " tasks not run");
+            for (QueuedTask queuedTask : leftovers)
+                queuedTask.result.completeExceptionally(
+                        new RejectedExecutionException("Handler executor closed before " + queuedTask.name + " ran"));
+        }
+    }
+
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.types.v3.OtagServiceEvent;
+import com.opentext.otag.sdk.types.v3.message.OtagMessage;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import com.opentext.otag.service.context.components.AWComponent;
+import com.opentext.otag.service.context.components.AWComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Delivers Gateway messages to the {@link OtagMessageHandler}s that want them without
+ * asking every handler in turn. Handlers are indexed by the {@link OtagServiceEvent}s
+ * they handle and, for setting handlers, by the setting keys they are interested in
+ * ({@link SettingChangeHandler#getSettingKey()}, {@link MultiSettingChangeHandler#getSettingKeys()}
+ * and the keys of an {@link AbstractMultiSettingChangeHandler}'s handler map). A
+ * {@link SettingsChangeMessage} therefore reaches only the handlers for its key, however
+ * many handlers the service has.
+ * <p>
+ * The process wide dispatcher is itself the handler the platform delivers to, so add
+ * handlers via {@link #addComponent(AWComponent)} rather than straight to the
+ * {@link AWComponentContext}. They are then indexed here instead of being placed in the
+ * context, and each message reaches them once, through the index. Handlers the platform
+ * creates when the service starts are delivered to by the platform as before, do not
+ * register those with the dispatcher as well. Keys are read when a handler is registered,
+ * call {@link #refresh(OtagMessageHandler)} if a handler's keys change afterwards
+ * ({@link AbstractMultiSettingChangeHandler#addHandler} does this for you).
+ * <p>
+ * Handlers run on the dispatching thread unless a {@link HandlerExecutor} is installed,
+ * see {@link #setHandlerExecutor(HandlerExecutor)}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class OtagMessageDispatcher implements OtagMessageHandler<OtagMessage> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OtagMessageDispatcher.class);
+
+    private static final Object lock = new Object();
+    private static volatile OtagMessageDispatcher instance;
+
+    /**
+     * Handlers that receive every message for an event, whatever its setting key.
+     */
+    private final Map<OtagServiceEvent, List<OtagMessageHandler<?>>> byEvent =
+            new EnumMap<>(OtagServiceEvent.class);
+
+    /**
+     * Setting handlers, by event and then setting key.
+     */
+    private final Map<OtagServiceEvent, Map<String, List<OtagMessageHandler<?>>>> bySettingKey =
+            new EnumMap<>(OtagServiceEvent.class);
+
+    /**
+     * The setting keys each registered handler was indexed under, empty for handlers
+     * indexed by event alone. Guarded by this dispatcher.
+     */
+    private final Map<OtagMessageHandler<?>, Set<String>> registered = new IdentityHashMap<>();
+
+    /**
+     * Runs the handlers, null to run them on the dispatching thread.
+     */
+    private volatile HandlerExecutor handlerExecutor;
+
+    public OtagMessageDispatcher() {
+        // the outer maps are only read once built, so all of the buckets are created up front
+        for (OtagServiceEvent event : OtagServiceEvent.values()) {
+            byEvent.put(event, new CopyOnWriteArrayList<>());
+            bySettingKey.put(event, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @return the process wide dispatcher
+     */
+    public static OtagMessageDispatcher getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    OtagMessageDispatcher dispatcher = new OtagMessageDispatcher();
+                    AWComponentContext.add(dispatcher);
+                    instance = dispatcher;
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Add a component. Message handlers are indexed with the process wide dispatcher, which
+     * delivers to them, anything else is added to the {@link AWComponentContext}.
+     *
+     * @param component component to add
+     */
+    public static void addComponent(AWComponent component) {
+        Objects.requireNonNull(component);
+        if (component instanceof OtagMessageHandler) {
+            getInstance().register((OtagMessageHandler<?>) component);
+        } else {
+            AWComponentContext.add(component);
+        }
+    }
+
+    /**
+     * Index a handler, registering a handler that is already indexed has no effect.
+     *
+     * @param handler message handler
+     */
+    public synchronized void register(OtagMessageHandler<?> handler) {
+        Objects.requireNonNull(handler);
+        if (handler == this)
+            throw new IllegalArgumentException("A dispatcher cannot dispatch to itself");
+        if (registered.containsKey(handler))
+            return;
+
+        Set<String> settingKeys = settingKeysOf(handler);
+        for (OtagServiceEvent event : OtagServiceEvent.values()) {
+            if (!handler.handles(event))
+                continue;
+
+            if (settingKeys.isEmpty()) {
+                byEvent.get(event).add(handler);
+            } else {
+                Map<String, List<OtagMessageHandler<?>>> keyIndex = bySettingKey.get(event);
+                for (String settingKey : settingKeys)
+                    keyIndex.computeIfAbsent(settingKey, k -> new CopyOnWriteArrayList<>()).add(handler);
+            }
+        }
+        registered.put(handler, settingKeys);
+    }
+
+    /**
+     * Remove a handler from the index.
+     *
+     * @param handler message handler
+     * @return true if the handler was registered
+     */
+    public synchronized boolean unregister(OtagMessageHandler<?> handler) {
+        Set<String> settingKeys = registered.remove(handler);
+        if (settingKeys == null)
+            return false;
+
+        for (OtagServiceEvent event : OtagServiceEvent.values()) {
+            byEvent.get(event).remove(handler);
+            Map<String, List<OtagMessageHandler<?>>> keyIndex = bySettingKey.get(event);
+            for (String settingKey : settingKeys) {
+                List<OtagMessageHandler<?>> handlers = keyIndex.get(settingKey);
+                if (handlers != null) {
+                    handlers.remove(handler);
+                    if (handlers.isEmpty())
+                        keyIndex.remove(settingKey);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Re-read the setting keys of a registered handler, handlers we have not registered
+     * are left alone.
+     *
+     * @param handler message handler
+     */
+    public synchronized void refresh(OtagMessageHandler<?> handler) {
+        if (registered.containsKey(handler) && !settingKeysOf(handler).equals(registered.get(handler))) {
+            unregister(handler);
+            register(handler);
+        }
+    }
+
+    /**
+     * Refresh a handler with the process wide dispatcher, if there is one.
+     *
+     * @param handler message handler
+     */
+    static void handlerChanged(OtagMessageHandler<?> handler) {
+        OtagMessageDispatcher dispatcher = instance;
+        if (dispatcher != null)
+            dispatcher.refresh(handler);
+    }
+
+    public HandlerExecutor getHandlerExecutor() {
+        return handlerExecutor;
+    }
+
+    /**
+     * Run handlers on the supplied executor rather than the dispatching thread. Messages
+     * with the same setting key (or event type) are still handled in order.
+     *
+     * @param handlerExecutor executor, null to run handlers on the dispatching thread
+     */
+    public void setHandlerExecutor(HandlerExecutor handlerExecutor) {
+        this.handlerExecutor = handlerExecutor;
+    }
+
+    /**
+     * Platform entry point, see {@link #dispatch(OtagMessage)}.
+     *
+     * @param message Gateway message
+     */
+    @Override
+    public void handle(OtagMessage message) {
+        dispatch(message);
+    }
+
+    /**
+     * @param event event type
+     * @return true if any registered handler handles the event
+     */
+    @Override
+    public boolean handles(OtagServiceEvent event) {
+        return event != null && (!byEvent.get(event).isEmpty() || !bySettingKey.get(event).isEmpty());
+    }
+
+    /**
+     * Pass a message to each handler indexed for its event (and setting key). A handler
+     * that fails is logged and does not stop delivery to the others.
+     *
+     * @param message Gateway message
+     * @return the number of handlers the message was delivered (or handed) to
+     */
+    public int dispatch(OtagMessage message) {
+        Objects.requireNonNull(message);
+        OtagServiceEvent event = message.getEvent();
+        if (event == null)
+            return 0;
+
+        int delivered = deliver(byEvent.get(event), message);
+        if (message instanceof SettingsChangeMessage) {
+            String settingKey = ((SettingsChangeMessage) message).getKey();
+            if (settingKey != null)
+                delivered += deliver(bySettingKey.get(event).get(settingKey), message);
+        }
+
+        if (delivered == 0 && LOG.isDebugEnabled())
+            LOG.debug("No handler found for " + event + " message");
+        return delivered;
+    }
+
+    /**
+     * @return the number of registered handlers
+     */
+    public synchronized int getHandlerCount() {
+        return registered.size();
+    }
+
+    private int deliver(List<OtagMessageHandler<?>> handlers, OtagMessage message) {
+        if (handlers == null)
+            return 0;
+
+        HandlerExecutor executor = handlerExecutor;
+        String orderingKey = executor != null ? HandlerExecutor.orderingKey(message) : null;
+        int delivered = 0;
+        for (OtagMessageHandler<?> handler : handlers) {
+            if (executor != null) {
+                try {
+                    // the executor logs failures and records them against the handler
+                    executor.submit(orderingKey, handler.getClass().getName(), () -> handle(handler, message));
+                    delivered++;
+                    continue;
+                } catch (RejectedExecutionException e) {
+                    LOG.warn("Handler executor rejected " + message.getEvent() +
+                            " message, handling it on the dispatching thread", e);
+                }
+            }
+
+            try {
+                handle(handler, message);
+            } catch (RuntimeException e) {
+                LOG.error("Handler " + handler.getClass().getName() + " failed to handle " +
+                        message.getEvent() + " message", e);
+            }
+            delivered++;
+        }
+        return delivered;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void handle(OtagMessageHandler<?> handler, OtagMessage message) {
+        ((OtagMessageHandler<OtagMessage>) handler).handle(message);
+    }
+
+    /**
+     * The setting keys to index a handler by, empty if it should see every message for
+     * the events it handles. Setting handlers without a key yet filter for themselves.
+     */
+    private static Set<String> settingKeysOf(OtagMessageHandler<?> handler) {
+        Set<String> settingKeys = new HashSet<>();
+        if (handler instanceof SettingChangeHandler) {
+            String settingKey = ((SettingChangeHandler) handler).getSettingKey();
+            if (settingKey != null)
+                settingKeys.add(settingKey);
+        } else if (handler instanceof AbstractConcurrentMultiSettingChangeHandler &&
+                ((AbstractConcurrentMultiSettingChangeHandler) handler).hasPatternSubscriptions()) {
+            // pattern subscribers can match any key
+            return Collections.emptySet();
+        } else if (handler instanceof MultiSettingChangeHandler) {
+            Set<String> keys = ((MultiSettingChangeHandler) handler).getSettingKeys();
+            if (keys != null)
+                settingKeys.addAll(keys);
+            if (handler instanceof AbstractMultiSettingChangeHandler)
+                settingKeys.addAll(((AbstractMultiSettingChangeHandler) handler).handlers.keySet());
+        }
+        settingKeys.remove(null);
+        return settingKeys.isEmpty() ? Collections.emptySet() : settingKeys;
+    }
+
+}
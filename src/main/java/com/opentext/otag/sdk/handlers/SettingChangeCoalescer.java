@@ -0,0 +1,200 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Collapses bursts of setting changes, so handlers that do expensive reconfiguration
+ * (rebuilding pools, flushing caches) run once per burst rather than once per message.
+ * <p>
+ * The first change to a key opens a window; further changes to that key within the
+ * window replace the pending one and, when the window closes, the handler receives the
+ * latest change only. A window is never extended, so a handler hears about a change at
+ * most one window after it happened, however busy the key is.
+ * <pre>
+ * SettingChangeCoalescer coalescer = new SettingChangeCoalescer(500, TimeUnit.MILLISECONDS);
+ * myPoolSizeHandler.setCoalescer(coalescer);
+ * OtagMessageDispatcher.addComponent(myPoolSizeHandler);
+ * OtagMessageDispatcher.addComponent(coalescer.group(connectionKeys, changes -&gt; rebuildPool()));
+ * </pre>
+ * Handlers opt in via {@link AbstractSettingChangeHandler#setCoalescer} or
+ * {@link AbstractMultiSettingChangeHandler#setCoalescer}. Coalesced handlers are called
+ * on the coalescer's own thread, one at a time. Once the coalescer is closed new changes
+ * are delivered straight away, on the thread that handles them.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class SettingChangeCoalescer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SettingChangeCoalescer.class);
+
+    private final long windowNanos;
+
+    /**
+     * Closes windows, a single thread so coalesced changes are delivered in order.
+     */
+    private final ScheduledThreadPoolExecutor windowTimer;
+
+    /**
+     * @param window how long to wait for further changes after the first in a burst
+     * @param unit   window time unit
+     */
+    public SettingChangeCoalescer(long window, TimeUnit unit) {
+        if (window <= 0)
+            throw new IllegalArgumentException("Window must be positive");
+        this.windowNanos = unit.toNanos(window);
+
+        windowTimer = new ScheduledThreadPoolExecutor(1,
+                new SdkEventCallbackHandler.SdkThreadFactory("otag-setting-coalescer-"));
+        windowTimer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Handle a set of related settings together. The callback receives the latest change
+     * to each key that changed in the window, keyed by setting key, once per window.
+     *
+     * @param settingKeys settings to watch
+     * @param callback    receives the grouped changes
+     * @return handler to register
+     */
+    public MultiSettingChangeHandler group(Set<String> settingKeys,
+                                           Consumer<Map<String, SettingsChangeMessage>> callback) {
+        if (settingKeys == null || settingKeys.isEmpty())
+            throw new IllegalArgumentException("At least one setting key is required");
+        Objects.requireNonNull(callback);
+        return new GroupedSettingHandler(settingKeys, callback);
+    }
+
+    /**
+     * Stop the coalescer. Changes already waiting are still delivered when their window
+     * closes, changes that arrive from now on are delivered straight away.
+     */
+    @Override
+    public void close() {
+        windowTimer.shutdown();
+    }
+
+    /**
+     * Pending changes for a handler, see {@link AbstractSettingChangeHandler#setCoalescer}.
+     *
+     * @param target receives the latest change to each key once its window closes
+     * @return the handler's pending changes
+     */
+    PendingChanges pendingChanges(Consumer<SettingsChangeMessage> target) {
+        return new PendingChanges(Objects.requireNonNull(target));
+    }
+
+    /**
+     * Run a flush once the window has passed, or straight away if we have been closed.
+     */
+    private void schedule(Runnable flush) {
+        try {
+            windowTimer.schedule(flush, windowNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            flush.run();
+        }
+    }
+
+    /**
+     * Latest change per key for one handler, a key with a pending change has a flush
+     * scheduled.
+     */
+    class PendingChanges {
+
+        private final Map<String, SettingsChangeMessage> pending = new ConcurrentHashMap<>();
+        private final Consumer<SettingsChangeMessage> target;
+
+        private PendingChanges(Consumer<SettingsChangeMessage> target) {
+            this.target = target;
+        }
+
+        void add(SettingsChangeMessage message) {
+            String key = message.getKey();
+            // only the change that opens the window schedules its close
+            if (pending.put(key, message) == null)
+                schedule(() -> flush(key));
+        }
+
+        private void flush(String key) {
+            SettingsChangeMessage latest = pending.remove(key);
+            if (latest == null)
+                return;
+
+            try {
+                target.accept(latest);
+            } catch (RuntimeException e) {
+                LOG.error("Coalesced handler failed to handle change to setting " + key, e);
+            }
+        }
+    }
+
+    private class GroupedSettingHandler implements MultiSettingChangeHandler {
+
+        private final Set<String> settingKeys;
+        private final Consumer<Map<String, SettingsChangeMessage>> callback;
+
+        private final Map<String, SettingsChangeMessage> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        GroupedSettingHandler(Set<String> settingKeys, Consumer<Map<String, SettingsChangeMessage>> callback) {
+            this.settingKeys = Collections.unmodifiableSet(new HashSet<>(settingKeys));
+            this.callback = callback;
+        }
+
+        @Override
+        public Set<String> getSettingKeys() {
+            return settingKeys;
+        }
+
+        @Override
+        public void handle(SettingsChangeMessage message) {
+            Objects.requireNonNull(message);
+            if (message.getKey() == null || !settingKeys.contains(message.getKey()))
+                return;
+
+            pending.put(message.getKey(), message);
+            if (scheduled.compareAndSet(false, true))
+                schedule(this::flush);
+        }
+
+        private void flush() {
+            // changes arriving from here on open the next window
+            scheduled.set(false);
+
+            Map<String, SettingsChangeMessage> changes = new HashMap<>();
+            for (String key : settingKeys) {
+                SettingsChangeMessage latest = pending.remove(key);
+                if (latest != null)
+                    changes.put(key, latest);
+            }
+            if (changes.isEmpty())
+                return;
+
+            try {
+                callback.accept(Collections.unmodifiableMap(changes));
+            } catch (RuntimeException e) {
+                LOG.error("Grouped handler failed to handle changes to settings " + changes.keySet(), e);
+            }
+        }
+    }
+
+}
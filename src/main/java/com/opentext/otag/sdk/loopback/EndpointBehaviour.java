@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.loopback;
+
+import com.opentext.otag.sdk.types.v3.api.error.APIException;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * How the {@link LoopbackGateway} answers requests to an SDK endpoint. Anything left
+ * unset falls back to the gateway wide defaults, see {@link LoopbackGateway#defaults()}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class EndpointBehaviour {
+
+    private volatile LatencyDistribution latency;
+    private volatile Double errorRate;
+    private volatile Supplier<? extends APIException> error;
+    private volatile IntFunction<Object> payload;
+    private volatile Integer payloadSize;
+
+    /**
+     * @param latency distribution response times are drawn from
+     * @return this behaviour
+     */
+    public EndpointBehaviour latency(LatencyDistribution latency) {
+        this.latency = Objects.requireNonNull(latency);
+        return this;
+    }
+
+    /**
+     * @param errorRate fraction of requests, between 0 and 1, that fail
+     * @return this behaviour
+     */
+    public EndpointBehaviour errorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1)
+            throw new IllegalArgumentException("Error rate must be between 0 and 1, was " + errorRate);
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param error produces the error failed requests report
+     * @return this behaviour
+     */
+    public EndpointBehaviour error(Supplier<? extends APIException> error) {
+        this.error = Objects.requireNonNull(error);
+        return this;
+    }
+
+    /**
+     * Supply the response body. The function receives the configured payload size and
+     * returns the body, either an instance of the type the client expects or its JSON
+     * tree form (maps, lists and values) which is converted on extraction.
+     *
+     * @param payload response body factory
+     * @return this behaviour
+     */
+    public EndpointBehaviour payload(IntFunction<Object> payload) {
+        this.payload = Objects.requireNonNull(payload);
+        return this;
+    }
+
+    /**
+     * Answer with a fixed response body.
+     *
+     * @param body response body
+     * @return this behaviour
+     */
+    public EndpointBehaviour respondWith(Object body) {
+        return payload(size -> body);
+    }
+
+    /**
+     * @param payloadSize size passed to the payload factory, the number of list entries or
+     *                    characters in a value for the built in payloads
+     * @return this behaviour
+     */
+    public EndpointBehaviour payloadSize(int payloadSize) {
+        if (payloadSize < 0)
+            throw new IllegalArgumentException("Payload size must not be negative");
+        this.payloadSize = payloadSize;
+        return this;
+    }
+
+    LatencyDistribution getLatency(EndpointBehaviour defaults) {
+        return latency != null ? latency : defaults.latency;
+    }
+
+    double getErrorRate(EndpointBehaviour defaults) {
+        return errorRate != null ? errorRate : defaults.errorRate;
+    }
+
+    Supplier<? extends APIException> getError(EndpointBehaviour defaults) {
+        return error != null ? error : defaults.error;
+    }
+
+    IntFunction<Object> getPayload(EndpointBehaviour defaults) {
+        return payload != null ? payload : defaults.payload;
+    }
+
+    int getPayloadSize(EndpointBehaviour defaults) {
+        return payloadSize != null ? payloadSize : defaults.payloadSize;
+    }
+
+}
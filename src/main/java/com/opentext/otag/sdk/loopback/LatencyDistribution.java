@@ -0,0 +1,71 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.loopback;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution the {@link LoopbackGateway} draws its simulated response times from.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * @return the next simulated latency in nanoseconds
+     */
+    long nextNanos();
+
+    /**
+     * @return a distribution that always answers immediately
+     */
+    static LatencyDistribution none() {
+        return () -> 0L;
+    }
+
+    /**
+     * @param millis latency applied to every request
+     * @return a constant latency distribution
+     */
+    static LatencyDistribution fixed(long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return () -> nanos;
+    }
+
+    /**
+     * @param minMillis shortest latency
+     * @param maxMillis longest latency
+     * @return latency spread evenly between the bounds
+     */
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis)
+            throw new IllegalArgumentException("Invalid latency bounds " + minMillis + "-" + maxMillis);
+
+        long minNanos = TimeUnit.MILLISECONDS.toNanos(minMillis);
+        long maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        return () -> minNanos == maxNanos ? minNanos : ThreadLocalRandom.current().nextLong(minNanos, maxNanos + 1);
+    }
+
+    /**
+     * Long tailed latency, which is what real network round trips look like. The
+     * distribution is described by its median and 99th percentile.
+     *
+     * @param medianMillis median latency
+     * @param p99Millis    99th percentile latency, must not be below the median
+     * @return log-normal latency distribution
+     */
+    static LatencyDistribution logNormal(double medianMillis, double p99Millis) {
+        if (medianMillis <= 0 || p99Millis < medianMillis)
+            throw new IllegalArgumentException("Invalid latency median " + medianMillis + " / p99 " + p99Millis);
+
+        // 2.326 is the z-score of the 99th percentile of the standard normal distribution
+        double sigma = Math.log(p99Millis / medianMillis) / 2.326;
+        double medianNanos = TimeUnit.MILLISECONDS.toNanos(1) * medianMillis;
+        return () -> (long) (medianNanos * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.loopback;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.SdkEventTransport;
+import com.opentext.otag.sdk.SdkReply;
+import com.opentext.otag.sdk.bus.SdkQueueEvent;
+import com.opentext.otag.sdk.types.v3.api.SDKCallInfo;
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+import com.opentext.otag.sdk.types.v3.api.error.APIException;
+import com.opentext.otag.sdk.types.v3.api.error.InternalServerErrorException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.opentext.otag.sdk.bus.SdkEventKeys.*;
+
+/**
+ * In-process stand-in for the AppWorks Gateway. Once {@link #install() installed} every
+ * SDK client request is answered locally, after a delay drawn from the endpoint's
+ * {@link LatencyDistribution}, failing at the endpoint's error rate and carrying a body
+ * of the configured payload size. Nothing leaves the JVM, so services (and the SDK
+ * itself) can be driven at realistic concurrency without a Gateway deployment.
+ * <pre>
+ * try (LoopbackGateway gateway = new LoopbackGateway()) {
+ *     gateway.defaults().latency(LatencyDistribution.logNormal(5, 80)).errorRate(0.01);
+ *     gateway.endpoint(SdkEventKeys.GET_EIM_CONNECTORS).payloadSize(50);
+ *     gateway.install();
+ *     // drive the service under test
+ * }
+ * </pre>
+ * Settings, auth, EIM connector and runtime endpoints have built in payloads sized by the
+ * payload size; other endpoints answer with an empty body unless told otherwise via
+ * {@link EndpointBehaviour#payload}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see SdkEventCallbackHandler#setTransport(SdkEventTransport)
+ */
+public class LoopbackGateway implements SdkEventTransport, AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final EndpointBehaviour defaults = new EndpointBehaviour()
+            .latency(LatencyDistribution.none())
+            .errorRate(0)
+            .error(LoopbackGateway::internalServerError)
+            .payload(size -> null)
+            .payloadSize(1);
+
+    private final Map<String, EndpointBehaviour> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Replies for the requests we have been asked to answer, keyed by SDK event id.
+     */
+    private final Map<String, CompletableFuture<SdkReply>> pending = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Delivers replies once their simulated latency has passed.
+     */
+    private final ScheduledThreadPoolExecutor replyTimer;
+
+    public LoopbackGateway() {
+        replyTimer = new ScheduledThreadPoolExecutor(2,
+                new SdkEventCallbackHandler.SdkThreadFactory("otag-loopback-gateway-"));
+        replyTimer.setRemoveOnCancelPolicy(true);
+
+        endpoint(SETTINGS_GET_SETTINGS).payload(size -> Collections.singletonMap("settings",
+                listOf(size, i -> setting("loopback.setting." + i, "value-" + i))));
+        endpoint(SETTINGS_GET_SETTING).payload(size -> setting("loopback.setting", pad(size)));
+        endpoint(AUTH_GET_TOKEN_FOR_USER).payload(size -> Collections.singletonMap("userName", "loopback-user"));
+        endpoint(AUTH_LIST_GROUP_USER_IDS).payload(size -> Collections.singletonMap("groupIds",
+                listOf(size, i -> "loopback-group-" + i)));
+        endpoint(GET_EIM_CONNECTORS).payload(size -> Collections.singletonMap("connectors",
+                listOf(size, LoopbackGateway::connector)));
+        endpoint(GET_RUNTIMES).payload(size -> Collections.singletonMap("runtimes",
+                listOf(size, i -> Collections.singletonMap("name", "loopback-runtime-" + i))));
+        endpoint(PROVIDER_LIST_PROVIDERS).payload(size -> Collections.singletonMap("providers",
+                listOf(size, i -> Collections.singletonMap("name", "loopback-provider-" + i))));
+    }
+
+    /**
+     * Behaviour applied to every endpoint for anything it does not set itself.
+     *
+     * @return default behaviour
+     */
+    public EndpointBehaviour defaults() {
+        return defaults;
+    }
+
+    /**
+     * @param endpointId SDK endpoint id, see {@link com.opentext.otag.sdk.bus.SdkEventKeys}
+     * @return the (live) behaviour of that endpoint
+     */
+    public EndpointBehaviour endpoint(String endpointId) {
+        return endpoints.computeIfAbsent(endpointId, id -> new EndpointBehaviour());
+    }
+
+    /**
+     * Route all SDK client requests in this JVM to this gateway.
+     *
+     * @return this gateway
+     */
+    public LoopbackGateway install() {
+        SdkEventCallbackHandler.setTransport(this);
+        return this;
+    }
+
+    /**
+     * @param endpointId SDK endpoint id
+     * @return the number of requests this gateway has received for the endpoint
+     */
+    public long getRequestCount(String endpointId) {
+        LongAdder count = requestCounts.get(endpointId);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * @param endpointId SDK endpoint id
+     * @return the number of requests to the endpoint this gateway chose to fail
+     */
+    public long getErrorCount(String endpointId) {
+        LongAdder count = errorCounts.get(endpointId);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * Hand SDK requests back to the event bus (if we are still installed) and stop
+     * answering requests.
+     */
+    @Override
+    public void close() {
+        if (SdkEventCallbackHandler.getTransport() == this)
+            SdkEventCallbackHandler.resetTransport();
+        replyTimer.shutdownNow();
+    }
+
+    public static ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+    @Override
+    public void prepareForResponse(String sdkEventIdentifier) {
+        pending.putIfAbsent(sdkEventIdentifier, new CompletableFuture<>());
+    }
+
+    @Override
+    public void send(SdkQueueEvent sdkEvent) {
+        String endpointId = sdkEvent.getSdkRequest().getEndpointId();
+        CompletableFuture<SdkReply> reply = pending.computeIfAbsent(
+                sdkEvent.getSdkEventIdentifier(), id -> new CompletableFuture<>());
+        requestCounts.computeIfAbsent(endpointId, id -> new LongAdder()).increment();
+
+        EndpointBehaviour behaviour = endpoints.getOrDefault(endpointId, defaults);
+        LoopbackReply loopbackReply;
+        if (ThreadLocalRandom.current().nextDouble() < behaviour.getErrorRate(defaults)) {
+            errorCounts.computeIfAbsent(endpointId, id -> new LongAdder()).increment();
+            loopbackReply = new LoopbackReply(null, behaviour.getError(defaults).get());
+        } else {
+            Object body = behaviour.getPayload(defaults).apply(behaviour.getPayloadSize(defaults));
+            loopbackReply = new LoopbackReply(body, null);
+        }
+
+        long delayNanos = behaviour.getLatency(defaults).nextNanos();
+        if (delayNanos <= 0) {
+            reply.complete(loopbackReply);
+        } else {
+            replyTimer.schedule(() -> reply.complete(loopbackReply), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public SdkReply getResponseForEvent(String sdkEventIdentifier) throws InterruptedException {
+        CompletableFuture<SdkReply> reply = pending.get(sdkEventIdentifier);
+        if (reply == null)
+            throw new IllegalStateException("No request was sent for SDK event " + sdkEventIdentifier);
+
+        try {
+            return reply.get();
+        } catch (ExecutionException e) {
+            // we never complete replies exceptionally, errors travel inside the reply
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pending.remove(sdkEventIdentifier);
+        }
+    }
+
+    @Override
+    public void cancel(String sdkEventIdentifier) {
+        pending.remove(sdkEventIdentifier);
+    }
+
+    /**
+     * @return the number of requests we are holding a reply for
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private static APIException internalServerError() {
+        return new InternalServerErrorException(new SDKCallInfo("loopback", Collections.emptyMap(), 500,
+                Collections.emptyMap(), "{\"errorMessage\":\"Simulated Gateway failure\"}"));
+    }
+
+    private static Map<String, Object> setting(String key, String value) {
+        Map<String, Object> setting = new HashMap<>();
+        setting.put("key", key);
+        setting.put("value", value);
+        return setting;
+    }
+
+    private static Map<String, Object> connector(int i) {
+        Map<String, Object> connector = new HashMap<>();
+        connector.put("connectorName", "loopback-connector-" + i);
+        connector.put("connectorVersion", "16.2");
+        connector.put("connectionUrl", "http://loopback-" + i + ".localhost/api");
+        connector.put("connectionUrlSettingKey", "loopback-connector-" + i + ".url");
+        return connector;
+    }
+
+    private static <T> List<T> listOf(int size, Function<Integer, T> element) {
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            list.add(element.apply(i));
+        return list;
+    }
+
+    private static String pad(int size) {
+        char[] value = new char[size];
+        Arrays.fill(value, 'x');
+        return new String(value);
+    }
+
+    /**
+     * Reply produced by the loopback gateway, bodies are converted to the requested type
+     * when they are extracted, as they would be coming off the event bus. Simulated
+     * failures are thrown from body extraction as well as reported as the reply error.
+     */
+    private static class LoopbackReply implements SdkReply {
+
+        private static final SDKResponse SUCCESS = new SDKResponse(true, null);
+        private static final SDKResponse FAILURE = new SDKResponse(false, null);
+
+        private final Object body;
+        private final APIException error;
+
+        LoopbackReply(Object body, APIException error) {
+            this.body = body;
+            this.error = error;
+        }
+
+        @Override
+        public SDKResponse getSdkResponse() {
+            return error == null ? SUCCESS : FAILURE;
+        }
+
+        @Override
+        public <T> Optional<T> getBody(Class<T> type) {
+            // typed calls have no response to inspect, so failures surface here
+            if (error != null)
+                throw error;
+            if (body == null)
+                return Optional.empty();
+            if (type.isInstance(body))
+                return Optional.of(type.cast(body));
+            return Optional.ofNullable(MAPPER.convertValue(body, type));
+        }
+
+        @Override
+        public Optional<Throwable> getError() {
+            return Optional.ofNullable(error);
+        }
+    }
+
+}
@@ -0,0 +1,8 @@
+/**
+ * This package contains an in-process stand-in for the AppWorks Gateway. It answers the
+ * SDK endpoints with configurable latency, error rates and payload sizes so services, and
+ * the SDK itself, can be load tested without a Gateway deployment.
+ *
+ * @see com.opentext.otag.sdk.loopback.LoopbackGateway
+ */
+package com.opentext.otag.sdk.loopback;
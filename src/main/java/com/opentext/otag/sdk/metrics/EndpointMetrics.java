@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call metrics for a single Gateway SDK endpoint, also used to time other units of work
+ * such as message handlers.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class EndpointMetrics {
+
+    private final String endpointId;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+
+    /**
+     * Failed calls keyed by the simple name of the exception type they failed with.
+     */
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public EndpointMetrics(String endpointId) {
+        this.endpointId = endpointId;
+    }
+
+    public String getEndpointId() {
+        return endpointId;
+    }
+
+    /**
+     * Record the start of a call.
+     *
+     * @return the start time to hand to {@link #end(long, Throwable)}
+     */
+    public long begin() {
+        calls.increment();
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the end of a call.
+     *
+     * @param startNanos value returned by {@link #begin()}
+     * @param error      the failure, null if the call succeeded
+     */
+    public void end(long startNanos, Throwable error) {
+        latency.record(System.nanoTime() - startNanos);
+        inFlight.decrement();
+        if (error != null)
+            errors.computeIfAbsent(error.getClass().getSimpleName(), type -> new LongAdder()).increment();
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public long getInFlightCount() {
+        return inFlight.sum();
+    }
+
+    public long getErrorCount() {
+        long errorCount = 0;
+        for (LongAdder count : errors.values())
+            errorCount += count.sum();
+        return errorCount;
+    }
+
+    /**
+     * @return error counts keyed by exception type, e.g. NotFoundException
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+        return errorCounts;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return a point in time copy of these metrics
+     */
+    public EndpointSnapshot snapshot() {
+        return new EndpointSnapshot(this);
+    }
+
+    void reset() {
+        calls.reset();
+        errors.clear();
+        latency.reset();
+    }
+
+}
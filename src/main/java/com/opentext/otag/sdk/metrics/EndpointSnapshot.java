@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time copy of an endpoint's metrics, latencies are reported in microseconds.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class EndpointSnapshot {
+
+    private final String endpointId;
+    private final long callCount;
+    private final long errorCount;
+    private final Map<String, Long> errorCounts;
+    private final long inFlightCount;
+    private final double meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    EndpointSnapshot(EndpointMetrics metrics) {
+        LatencyHistogram latency = metrics.getLatency();
+
+        this.endpointId = metrics.getEndpointId();
+        this.callCount = metrics.getCallCount();
+        this.errorCounts = Collections.unmodifiableMap(metrics.getErrorCounts());
+        this.errorCount = errorCounts.values().stream().mapToLong(Long::longValue).sum();
+        this.inFlightCount = metrics.getInFlightCount();
+        this.meanMicros = latency.getMeanNanos() / 1000;
+        this.p50Micros = TimeUnit.NANOSECONDS.toMicros(latency.getPercentileNanos(50));
+        this.p99Micros = TimeUnit.NANOSECONDS.toMicros(latency.getPercentileNanos(99));
+        this.p999Micros = TimeUnit.NANOSECONDS.toMicros(latency.getPercentileNanos(99.9));
+        this.maxMicros = TimeUnit.NANOSECONDS.toMicros(latency.getMaxNanos());
+    }
+
+    public String getEndpointId() {
+        return endpointId;
+    }
+
+    public long getCallCount() {
+        return callCount;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public Map<String, Long> getErrorCounts() {
+        return errorCounts;
+    }
+
+    public long getInFlightCount() {
+        return inFlightCount;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointSnapshot{" +
+                "endpointId='" + endpointId + '\'' +
+                ", callCount=" + callCount +
+                ", errorCount=" + errorCount +
+                ", inFlightCount=" + inFlightCount +
+                ", p50Micros=" + p50Micros +
+                ", p99Micros=" + p99Micros +
+                ", p999Micros=" + p999Micros +
+                ", maxMicros=" + maxMicros +
+                '}';
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with log-linear buckets. Every power of two range is split
+ * into 64 buckets, so recorded values are accurate to within roughly 1.6% across the full
+ * range from nanoseconds to hours, at a fixed cost of a few kilobytes per histogram.
+ * Recording is a handful of atomic increments, cheap enough for every SDK call.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values below this are counted in a bucket of their own.
+     */
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos latency to record, negative values are treated as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Value at the supplied percentile. Values recorded concurrently with this call may
+     * or may not be included.
+     *
+     * @param percentile percentile between 0 and 100, e.g. 99.9
+     * @return latency in nanoseconds, zero if nothing has been recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, was " + percentile);
+
+        long[] counts = new long[BUCKET_COUNT];
+        long recorded = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+        if (recorded == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(bucketValue(i), getMaxNanos());
+        }
+
+        return getMaxNanos();
+    }
+
+    /**
+     * Clear all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            buckets.set(i, 0);
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT)
+            return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the midpoint of the values counted in the bucket
+     */
+    static long bucketValue(int index) {
+        if (index < LINEAR_LIMIT)
+            return index;
+
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long lowerBound = (long) ((index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowerBound + ((1L << shift) >>> 1);
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.metrics;
+
+import com.opentext.otag.service.context.components.AWComponent;
+import com.opentext.otag.service.context.components.AWComponentContext;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics for every SDK call our service clients make, kept per Gateway endpoint
+ * (see {@link com.opentext.otag.sdk.bus.SdkEventKeys}). Call counts, errors by exception
+ * type, in-flight requests and latency histograms let you tell whether a slow request
+ * was spent in your code or waiting on the Gateway.
+ * <p>
+ * The metrics are registered with the {@link AWComponentContext} when first used, so
+ * they can be retrieved anywhere in the service via
+ * {@link AWComponentContext#getComponent(Class)}, and exported with {@link #snapshot()}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class SdkMetrics implements AWComponent {
+
+    private static final Object lock = new Object();
+    private static volatile SdkMetrics instance;
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    private SdkMetrics() {
+    }
+
+    /**
+     * @return the process wide SDK metrics
+     */
+    public static SdkMetrics getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    SdkMetrics metrics = new SdkMetrics();
+                    AWComponentContext.add(metrics);
+                    instance = metrics;
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * @param endpointId SDK endpoint id
+     * @return the metrics for that endpoint, created on first use
+     */
+    public EndpointMetrics endpoint(String endpointId) {
+        return endpoints.computeIfAbsent(endpointId, EndpointMetrics::new);
+    }
+
+    public Collection<EndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableCollection(endpoints.values());
+    }
+
+    /**
+     * Point in time copy of all endpoint metrics, keyed and sorted by endpoint id. The
+     * snapshot types are plain beans, so the result can be handed straight to Jackson.
+     *
+     * @return endpoint snapshots
+     */
+    public Map<String, EndpointSnapshot> snapshot() {
+        Map<String, EndpointSnapshot> snapshot = new TreeMap<>();
+        endpoints.forEach((endpointId, metrics) -> snapshot.put(endpointId, metrics.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * Clear the counts and latencies recorded so far, in-flight counts are kept as those
+     * calls have yet to finish.
+     */
+    public void reset() {
+        endpoints.values().forEach(EndpointMetrics::reset);
+    }
+
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains the SDK's call metrics, counts, errors, in-flight requests and
+ * latency histograms for every Gateway endpoint our service clients use.
+ *
+ * @see com.opentext.otag.sdk.metrics.SdkMetrics
+ */
+package com.opentext.otag.sdk.metrics;
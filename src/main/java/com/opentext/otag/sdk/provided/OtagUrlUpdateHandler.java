@@ -3,6 +3,8 @@
  */
 package com.opentext.otag.sdk.provided;
 
+import com.opentext.otag.sdk.ConfigChangeListener;
+import com.opentext.otag.sdk.ServiceConfigProvider;
 import com.opentext.otag.service.context.AWConfig;
 import com.opentext.otag.service.context.components.AWComponent;
 import org.apache.juli.logging.Log;
@@ -24,13 +26,22 @@ public class OtagUrlUpdateHandler implements AWComponent {
     /**
      * The URL that the Gateway believes it should be contacted using.
      */
-    private String otagUrl;
+    private volatile String otagUrl;
+
+    /**
+     * Forget the URL we resolved when the deployment config changes.
+     */
+    private final ConfigChangeListener configListener = (previous, current) -> otagUrl = null;
+
+    public OtagUrlUpdateHandler() {
+        ServiceConfigProvider.getInstance().addListener(configListener);
+    }
 
     public String getOtagUrl() {
         if (otagUrl == null) {
             // always use the value in the web.xml, which should be the local host name / address
             // for this node.  Don't use the otag.url setting, as this is an external address.
-            AWConfig appWorksConfig = new AWConfig();
+            AWConfig appWorksConfig = ServiceConfigProvider.getInstance().getConfig();
             otagUrl = appWorksConfig.getGatewayUrl();
             LOG.info("Using Gateway Service URL: " + otagUrl);
         }
@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.settings;
+
+import com.opentext.otag.sdk.handlers.AbstractSettingChangeHandler;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base implementation of a live setting handle. Handles are setting change handlers,
+ * once registered they parse each new value delivered by the Gateway and hold on to
+ * the result, so reads are simple field accesses.
+ * <p>
+ * If a new value cannot be parsed the handle keeps its previous value and logs a
+ * single warning for that change. If the setting is removed the handle falls back
+ * to its default value.
+ * <p>
+ * Every change applied is counted, so a value read from the Gateway before a change
+ * arrived can be applied only if it is still current, see {@link #updateIfUnchanged}.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ * @see com.opentext.otag.sdk.client.v3.SettingsClient
+ */
+public abstract class AbstractLiveSetting extends AbstractSettingChangeHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractLiveSetting.class);
+
+    private final String settingKey;
+
+    /**
+     * The last raw value we successfully parsed.
+     */
+    private volatile String rawValue;
+
+    /**
+     * The number of values applied via {@link #update(String)}, guarded by this handle.
+     */
+    private long changeCount;
+
+    protected AbstractLiveSetting(String settingKey) {
+        if (settingKey == null || settingKey.isEmpty())
+            throw new IllegalArgumentException("The settingKey is required");
+        this.settingKey = settingKey;
+    }
+
+    @Override
+    public String getSettingKey() {
+        return settingKey;
+    }
+
+    @Override
+    public void onSettingChanged(SettingsChangeMessage message) {
+        update(message.getNewValue());
+    }
+
+    /**
+     * Apply a new raw value to this handle.
+     *
+     * @param newRawValue the setting value as stored by the Gateway, null if the setting is gone
+     */
+    public synchronized void update(String newRawValue) {
+        changeCount++;
+        apply(newRawValue);
+    }
+
+    /**
+     * Apply a value read from the Gateway, unless a change has been applied since
+     * {@link #getChangeCount()} was read, in which case that change is newer than the
+     * value we were given.
+     *
+     * @param newRawValue the setting value as stored by the Gateway, null if the setting is gone
+     * @param seenChanges the change count read before the value was fetched
+     * @return true if the value was applied
+     */
+    public synchronized boolean updateIfUnchanged(String newRawValue, long seenChanges) {
+        if (changeCount != seenChanges)
+            return false;
+
+        apply(newRawValue);
+        return true;
+    }
+
+    /**
+     * @return the number of changes applied to this handle
+     */
+    public synchronized long getChangeCount() {
+        return changeCount;
+    }
+
+    private void apply(String newRawValue) {
+        if (newRawValue == null) {
+            reset();
+            rawValue = null;
+            return;
+        }
+
+        if (parse(newRawValue.trim())) {
+            rawValue = newRawValue;
+        } else {
+            LOG.warn("Ignoring invalid value for setting " + settingKey + " - '" + newRawValue +
+                    "', keeping " + rawValue);
+        }
+    }
+
+    /**
+     * The last raw value that was applied to this handle.
+     *
+     * @return raw value, or null if the handle is holding its default value
+     */
+    public String getRawValue() {
+        return rawValue;
+    }
+
+    /**
+     * Parse and store the supplied value.
+     *
+     * @param value trimmed raw value
+     * @return false if the value could not be parsed, the previous value must be left untouched
+     */
+    protected abstract boolean parse(String value);
+
+    /**
+     * Return to the default value.
+     */
+    protected abstract void reset();
+
+}
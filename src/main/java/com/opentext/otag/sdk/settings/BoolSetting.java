@@ -0,0 +1,55 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.settings;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Live boolean setting handle. Unlike {@link Boolean#parseBoolean(String)} only "true"
+ * and "false" (ignoring case) are accepted, anything else is treated as invalid and the
+ * previous value is kept.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class BoolSetting extends AbstractLiveSetting implements BooleanSupplier {
+
+    private final boolean defaultValue;
+    private volatile boolean value;
+
+    public BoolSetting(String settingKey, boolean defaultValue) {
+        super(settingKey);
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+        return value;
+    }
+
+    @Override
+    protected boolean parse(String rawValue) {
+        if ("true".equalsIgnoreCase(rawValue)) {
+            value = true;
+            return true;
+        }
+        if ("false".equalsIgnoreCase(rawValue)) {
+            value = false;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void reset() {
+        value = defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return "BoolSetting{" + getSettingKey() + "=" + value + '}';
+    }
+
+}
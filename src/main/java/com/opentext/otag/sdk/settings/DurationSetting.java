@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.settings;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Live duration setting handle. Values can either be a plain number of milliseconds
+ * or an ISO-8601 duration such as "PT30S".
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class DurationSetting extends AbstractLiveSetting {
+
+    private final Duration defaultValue;
+
+    private volatile Duration value;
+
+    public DurationSetting(String settingKey, Duration defaultValue) {
+        super(settingKey);
+        if (defaultValue == null)
+            throw new IllegalArgumentException("A default duration is required");
+        this.defaultValue = defaultValue;
+        reset();
+    }
+
+    public Duration getAsDuration() {
+        return value;
+    }
+
+    public long getAsMillis() {
+        return value.toMillis();
+    }
+
+    @Override
+    protected boolean parse(String rawValue) {
+        Duration parsed;
+        try {
+            parsed = Duration.ofMillis(Long.parseLong(rawValue));
+        } catch (NumberFormatException e) {
+            try {
+                parsed = Duration.parse(rawValue);
+            } catch (DateTimeParseException pe) {
+                return false;
+            }
+        }
+
+        value = parsed;
+        return true;
+    }
+
+    @Override
+    protected void reset() {
+        value = defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return "DurationSetting{" + getSettingKey() + "=" + value + '}';
+    }
+
+}
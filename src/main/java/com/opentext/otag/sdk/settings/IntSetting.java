@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.settings;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Live integer setting handle.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class IntSetting extends AbstractLiveSetting implements IntSupplier {
+
+    private final int defaultValue;
+    private volatile int value;
+
+    public IntSetting(String settingKey, int defaultValue) {
+        super(settingKey);
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    @Override
+    public int getAsInt() {
+        return value;
+    }
+
+    @Override
+    protected boolean parse(String rawValue) {
+        try {
+            value = Integer.parseInt(rawValue);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected void reset() {
+        value = defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return "IntSetting{" + getSettingKey() + "=" + value + '}';
+    }
+
+}
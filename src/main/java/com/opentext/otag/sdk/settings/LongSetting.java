@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.settings;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Live long setting handle.
+ *
+ * @author Rhys Evans rhyse@opentext.com
+ * @version 16.6
+ */
+public class LongSetting extends AbstractLiveSetting implements LongSupplier {
+
+    private final long defaultValue;
+    private volatile long value;
+
+    public LongSetting(String settingKey, long defaultValue) {
+        super(settingKey);
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    @Override
+    public long getAsLong() {
+        return value;
+    }
+
+    @Override
+    protected boolean parse(String rawValue) {
+        try {
+            value = Long.parseLong(rawValue);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected void reset() {
+        value = defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return "LongSetting{" + getSettingKey() + "=" + value + '}';
+    }
+
+}
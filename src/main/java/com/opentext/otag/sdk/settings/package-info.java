@@ -0,0 +1,8 @@
+/**
+ * This package contains live, typed handles onto Gateway configuration settings. A handle
+ * parses its setting value once, when the value changes, and exposes it as a primitive so
+ * hot code paths can read configuration without a Gateway round trip or re-parsing.
+ *
+ * @see com.opentext.otag.sdk.client.v3.SettingsClient
+ */
+package com.opentext.otag.sdk.settings;
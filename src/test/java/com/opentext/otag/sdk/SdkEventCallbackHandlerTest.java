@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk;
+
+import com.opentext.otag.sdk.bus.SdkQueueEvent;
+import com.opentext.otag.sdk.loopback.LatencyDistribution;
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v4.SdkRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class SdkEventCallbackHandlerTest {
+
+    private static final String ENDPOINT = "test-endpoint";
+
+    private LoopbackGateway gateway;
+
+    @Before
+    public void setUp() {
+        gateway = new LoopbackGateway().install();
+    }
+
+    @After
+    public void tearDown() {
+        gateway.close();
+        // never leak an interrupt into the next test
+        Thread.interrupted();
+    }
+
+    @Test
+    public void replyWithinTheDeadlineIsReturned() throws Exception {
+        gateway.endpoint(ENDPOINT).respondWith("pong");
+        String id = send();
+
+        SdkReply reply = SdkEventCallbackHandler.awaitResponse(id, 5000);
+
+        assertThat(reply.getBody(String.class).get()).isEqualTo("pong");
+        assertThat(SdkEventCallbackHandler.getOutstandingRequestCount()).isZero();
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    public void missedDeadlineTimesOutAndCancelsTheRequest() throws Exception {
+        gateway.endpoint(ENDPOINT).latency(LatencyDistribution.fixed(5000));
+        String id = send();
+
+        try {
+            SdkEventCallbackHandler.awaitResponse(id, 50);
+            fail("expected a TimeoutException");
+        } catch (TimeoutException expected) {
+            // the deadline's own interrupt must not leak to the caller
+            assertThat(Thread.currentThread().isInterrupted()).isFalse();
+        }
+
+        assertThat(gateway.getPendingCount()).isZero();
+        assertThat(SdkEventCallbackHandler.getOutstandingRequestCount()).isZero();
+    }
+
+    @Test
+    public void interruptedWaitIsNotReportedAsATimeout() throws Exception {
+        gateway.endpoint(ENDPOINT).latency(LatencyDistribution.fixed(5000));
+        String id = send();
+
+        Thread.currentThread().interrupt();
+        try {
+            SdkEventCallbackHandler.awaitResponse(id, 5000);
+            fail("expected an InterruptedException");
+        } catch (InterruptedException expected) {
+            assertThat(gateway.getPendingCount()).isZero();
+        }
+        assertThat(SdkEventCallbackHandler.getOutstandingRequestCount()).isZero();
+    }
+
+    @Test
+    public void abandonedRequestIsCancelled() {
+        String id = SdkQueueEvent.request(new SdkRequest<>(ENDPOINT), "test-app", "OTAG").getSdkEventIdentifier();
+        SdkEventCallbackHandler.prepareForResponse(id);
+        assertThat(SdkEventCallbackHandler.getOutstandingRequestCount()).isEqualTo(1);
+
+        SdkEventCallbackHandler.abandonResponse(id);
+
+        assertThat(gateway.getPendingCount()).isZero();
+        assertThat(SdkEventCallbackHandler.getOutstandingRequestCount()).isZero();
+    }
+
+    private static String send() {
+        SdkQueueEvent event = SdkQueueEvent.request(new SdkRequest<>(ENDPOINT), "test-app", "OTAG");
+        String id = event.getSdkEventIdentifier();
+        SdkEventCallbackHandler.prepareForResponse(id);
+        SdkEventCallbackHandler.sendEvent(event);
+        return id;
+    }
+
+}
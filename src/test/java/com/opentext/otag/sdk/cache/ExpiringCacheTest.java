@@ -0,0 +1,169 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class ExpiringCacheTest {
+
+    @Test
+    public void loadedValueIsServedFromTheCache() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+        assertThat(cache.get("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+
+        assertThat(cache.getLoadCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 20, 0);
+        cache.put("a", "1");
+
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.get("a", key -> "2")).isEqualTo("2");
+    }
+
+    @Test
+    public void nullResultsAreOnlyCachedWithANegativeTtl() {
+        AtomicInteger loads = new AtomicInteger();
+
+        ExpiringCache<String, String> uncached = new ExpiringCache<>(10, 60000, 0);
+        uncached.get("a", key -> { loads.incrementAndGet(); return null; });
+        uncached.get("a", key -> { loads.incrementAndGet(); return null; });
+        assertThat(loads.get()).isEqualTo(2);
+
+        loads.set(0);
+        ExpiringCache<String, String> negative = new ExpiringCache<>(10, 60000, 60000);
+        negative.get("a", key -> { loads.incrementAndGet(); return null; });
+        negative.get("a", key -> { loads.incrementAndGet(); return null; });
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedLoadsAreNotCached() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000, 60000);
+        try {
+            cache.get("a", key -> { throw new IllegalStateException("back-end down"); });
+            fail("expected the load to fail");
+        } catch (IllegalStateException expected) {
+            assertThat(cache.size()).isZero();
+        }
+
+        assertThat(cache.get("a", key -> "1")).isEqualTo("1");
+    }
+
+    @Test
+    public void concurrentLookupsShareOneLoad() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000, 0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = threads.submit(() -> cache.get("a", key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                awaitQuietly(release);
+                return "1";
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<String> second = threads.submit(() -> cache.get("a", key -> "2"));
+            Future<String> third = threads.submit(() -> cache.get("a", key -> "3"));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("1");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("1");
+            assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo("1");
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        ExpiringCache<Integer, String> cache = new ExpiringCache<>(10, 60000, 0);
+        for (int i = 0; i < 100; i++)
+            cache.put(i, "value-" + i);
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.getEvictionCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void invalidateDuringALoadStopsItBeingCached() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000, 0);
+
+        String loaded = cache.get("a", key -> {
+            // the value we are loading is invalidated before we finish
+            cache.invalidate(key);
+            return "stale";
+        });
+
+        assertThat(loaded).isEqualTo("stale");
+        assertThat(cache.getIfPresent("a")).isNull();
+        assertThat(cache.get("a", key -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    public void invalidateIfDetachesMatchingAsyncLoads() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000, 0);
+        CompletableFuture<String> userLoad = new CompletableFuture<>();
+        CompletableFuture<String> otherLoad = new CompletableFuture<>();
+
+        CompletableFuture<String> user = cache.getAsync("user.1", key -> userLoad);
+        CompletableFuture<String> other = cache.getAsync("other.1", key -> otherLoad);
+        cache.invalidateIf(key -> key.startsWith("user."));
+        userLoad.complete("stale");
+        otherLoad.complete("kept");
+
+        assertThat(user.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+        assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo("kept");
+        assertThat(cache.getIfPresent("user.1")).isNull();
+        assertThat(cache.getIfPresent("other.1")).isEqualTo("kept");
+    }
+
+    @Test
+    public void invalidateAllDetachesLoads() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 60000, 0);
+        cache.put("a", "1");
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> pending = cache.getAsync("b", key -> load);
+
+        cache.invalidateAll();
+        load.complete("stale");
+
+        assertThat(pending.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+        assertThat(cache.size()).isZero();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.SdkEventTransport;
+import com.opentext.otag.sdk.SdkReply;
+import com.opentext.otag.sdk.bus.SdkQueueEvent;
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+import com.opentext.otag.sdk.types.v3.api.error.APIException;
+import com.opentext.otag.sdk.types.v4.SdkRequest;
+import com.opentext.otag.service.context.AWConfig;
+import com.opentext.otag.service.context.AWConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AbstractOtagServiceClientTest {
+
+    private static final String ENDPOINT = "test-endpoint";
+
+    private TestClient client;
+
+    @Before
+    public void setUp() {
+        client = new TestClient();
+    }
+
+    @After
+    public void tearDown() {
+        SdkEventCallbackHandler.resetTransport();
+        SdkEventCallbackHandler.configureSdkResponseExecutor(SdkEventCallbackHandler.DEFAULT_RESPONSE_THREADS,
+                SdkEventCallbackHandler.DEFAULT_RESPONSE_QUEUE_CAPACITY);
+    }
+
+    @Test
+    public void asyncSendFailureCompletesTheFuture() throws Exception {
+        SdkEventCallbackHandler.setTransport(new FailingTransport());
+
+        CompletableFuture<SDKResponse> response = client.sendSdkEventAsync(newEvent());
+
+        assertFailsWith(response, IllegalStateException.class);
+    }
+
+    @Test
+    public void asyncCallRejectedByAFullExecutorCompletesTheFuture() throws Exception {
+        SdkEventCallbackHandler.configureSdkResponseExecutor(1, 0);
+        BlockingTransport transport = new BlockingTransport();
+        SdkEventCallbackHandler.setTransport(transport);
+
+        CompletableFuture<SDKResponse> first = client.sendSdkEventAsync(newEvent());
+        assertThat(transport.sent.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<SDKResponse> second = client.sendSdkEventAsync(newEvent());
+        Throwable failure = assertFailsWith(second, APIException.class);
+        assertThat(failure.getCause()).isInstanceOf(RejectedExecutionException.class);
+
+        transport.release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).isSuccess()).isTrue();
+    }
+
+    @Test
+    public void clientWithoutItsOwnRestClientFollowsTheSharedTransport() {
+        Client shared = client.getRestClient();
+        assertThat(shared).isSameAs(SharedHttpTransport.getClient());
+
+        SharedHttpTransport.shutdown();
+
+        Client rebuilt = client.getRestClient();
+        assertThat(rebuilt).isNotSameAs(shared);
+        assertThat(rebuilt).isSameAs(SharedHttpTransport.getClient());
+        SharedHttpTransport.shutdown();
+    }
+
+    @Test
+    public void configureRejectsAnExecutorWithoutThreads() {
+        try {
+            SdkEventCallbackHandler.configureSdkResponseExecutor(0, 10);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertThat(SdkEventCallbackHandler.getResponseThreads())
+                    .isEqualTo(SdkEventCallbackHandler.DEFAULT_RESPONSE_THREADS);
+        }
+    }
+
+    @Test
+    public void diagnosticsOffStillReturnsCallInfo() {
+        client.setDiagnosticsMode(DiagnosticsMode.OFF);
+        Response response = okResponse();
+
+        SDKResponse sdkResponse = post(response);
+
+        assertThat(sdkResponse.isSuccess()).isTrue();
+        assertThat(sdkResponse.getCallInfo()).isNotNull();
+        verify(response).close();
+    }
+
+    @Test
+    public void lazyDiagnosticsReleaseTheConnectionButDecodeOnlyWhenAskedFor() {
+        client.setDiagnosticsMode(DiagnosticsMode.LAZY);
+        Response response = okResponse();
+
+        SDKResponse sdkResponse = post(response);
+
+        verify(response, times(1)).readEntity(byte[].class);
+        verify(response, never()).readEntity(String.class);
+        verify(response).close();
+
+        assertThat(sdkResponse.getCallInfo()).isNotNull();
+        assertThat(sdkResponse.getCallInfo()).isSameAs(sdkResponse.getCallInfo());
+        verify(response, times(1)).readEntity(byte[].class);
+        verify(response, never()).readEntity(String.class);
+    }
+
+    static SdkQueueEvent newEvent() {
+        return SdkQueueEvent.request(new SdkRequest<>(ENDPOINT), "test-app", "OTAG");
+    }
+
+    static AWConfigFactory configFactory() {
+        AWConfig config = mock(AWConfig.class);
+        when(config.getAppName()).thenReturn("test-app");
+        when(config.getAppKey()).thenReturn("test-key");
+        when(config.getGatewayUrl()).thenReturn("http://localhost:8080/gateway");
+
+        AWConfigFactory factory = mock(AWConfigFactory.class);
+        when(factory.getConfig()).thenReturn(config);
+        return factory;
+    }
+
+    private SDKResponse post(Response response) {
+        Invocation.Builder builder = mock(Invocation.Builder.class);
+        when(builder.headers(any(MultivaluedMap.class))).thenReturn(builder);
+        when(builder.post(any(Entity.class))).thenReturn(response);
+        WebTarget target = mock(WebTarget.class);
+        when(target.request()).thenReturn(builder);
+
+        return client.processGenericPost("http://localhost:8080/gateway/v3/test", target,
+                Entity.json("{}"), new MultivaluedHashMap<>());
+    }
+
+    private static Response okResponse() {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(200);
+        when(response.hasEntity()).thenReturn(true);
+        when(response.readEntity(String.class)).thenReturn("{\"success\":true}");
+        when(response.readEntity(byte[].class)).thenReturn("{\"success\":true}".getBytes(StandardCharsets.UTF_8));
+        when(response.readEntity(InputStream.class))
+                .thenReturn(new ByteArrayInputStream("{\"success\":true}".getBytes(StandardCharsets.UTF_8)));
+        when(response.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+        return response;
+    }
+
+    private static Throwable assertFailsWith(CompletableFuture<?> future, Class<? extends Throwable> type)
+            throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected the future to fail");
+            return null;
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(type);
+            return e.getCause();
+        }
+    }
+
+    private static class TestClient extends AbstractOtagServiceClient {
+
+        TestClient() {
+            super(null, configFactory());
+        }
+    }
+
+    private static class FailingTransport implements SdkEventTransport {
+
+        @Override
+        public void prepareForResponse(String sdkEventIdentifier) {
+        }
+
+        @Override
+        public void send(SdkQueueEvent sdkEvent) {
+            throw new IllegalStateException("bus is down");
+        }
+
+        @Override
+        public SdkReply getResponseForEvent(String sdkEventIdentifier) {
+            throw new AssertionError("nothing was sent");
+        }
+
+        @Override
+        public void cancel(String sdkEventIdentifier) {
+        }
+    }
+
+    private static class BlockingTransport implements SdkEventTransport {
+
+        private final CountDownLatch sent = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void prepareForResponse(String sdkEventIdentifier) {
+        }
+
+        @Override
+        public void send(SdkQueueEvent sdkEvent) {
+            sent.countDown();
+        }
+
+        @Override
+        public SdkReply getResponseForEvent(String sdkEventIdentifier) throws InterruptedException {
+            release.await();
+            SDKResponse success = new SDKResponse(true, null);
+            return new SdkReply() {
+                @Override
+                public SDKResponse getSdkResponse() {
+                    return success;
+                }
+
+                @Override
+                public <T> Optional<T> getBody(Class<T> type) {
+                    return Optional.empty();
+                }
+            };
+        }
+
+        @Override
+        public void cancel(String sdkEventIdentifier) {
+        }
+    }
+
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.SdkEventCallbackHandler;
+import com.opentext.otag.sdk.connector.EIMConnectorService;
+import com.opentext.otag.sdk.handlers.AuthHandlerDescriptors;
+import com.opentext.otag.sdk.handlers.AuthRequestHandler;
+import com.opentext.otag.sdk.loopback.LatencyDistribution;
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v3.auth.AuthorizedUser;
+import com.opentext.otag.sdk.types.v3.auth.User;
+import com.opentext.otag.sdk.types.v3.auth.UserProfile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.opentext.otag.sdk.bus.SdkEventKeys.*;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuthClientTest {
+
+    private LoopbackGateway gateway;
+    private AuthClient authClient;
+
+    @Before
+    public void setUp() {
+        gateway = new LoopbackGateway().install();
+        authClient = new AuthClient(null, AbstractOtagServiceClientTest.configFactory());
+    }
+
+    @After
+    public void tearDown() {
+        gateway.close();
+        AuthHandlerDescriptors.invalidateAll();
+        SdkEventCallbackHandler.configureSdkResponseExecutor(SdkEventCallbackHandler.DEFAULT_RESPONSE_THREADS,
+                SdkEventCallbackHandler.DEFAULT_RESPONSE_QUEUE_CAPACITY);
+    }
+
+    @Test
+    public void tokenLookupsAreCachedOnceEnabled() throws Exception {
+        AuthorizedUser user = new AuthorizedUser();
+        gateway.endpoint(AUTH_GET_TOKEN_FOR_USER).respondWith(user);
+        authClient.enableUserCache(10, 60000, 0);
+
+        assertThat(authClient.getUserForToken("token")).isSameAs(user);
+        assertThat(authClient.getUserForTokenAsync("token").get(5, TimeUnit.SECONDS)).isSameAs(user);
+
+        assertThat(gateway.getRequestCount(AUTH_GET_TOKEN_FOR_USER)).isEqualTo(1);
+        assertThat(authClient.getUserCache().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void callerJoiningALookupKeepsItsOwnDeadline() throws Exception {
+        gateway.endpoint(AUTH_GET_TOKEN_FOR_USER).respondWith(new AuthorizedUser())
+                .latency(LatencyDistribution.fixed(1000));
+        authClient.enableUserCache(10, 60000, 0);
+
+        CompletableFuture<AuthorizedUser> leader =
+                CompletableFuture.supplyAsync(() -> authClient.getUserForToken("token", 5000));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (gateway.getRequestCount(AUTH_GET_TOKEN_FOR_USER) == 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+
+        long start = System.nanoTime();
+        try {
+            authClient.getUserForToken("token", 100);
+            fail("expected the joining caller to time out");
+        } catch (SdkRequestTimeoutException expected) {
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(900);
+        }
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(gateway.getRequestCount(AUTH_GET_TOKEN_FOR_USER)).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidatedTokenIsLookedUpAgain() {
+        gateway.endpoint(AUTH_GET_TOKEN_FOR_USER).respondWith(new AuthorizedUser());
+        authClient.enableUserCache(10, 60000, 0);
+        authClient.getUserForToken("token");
+
+        authClient.invalidateToken("token");
+        authClient.getUserForToken("token");
+
+        assertThat(gateway.getRequestCount(AUTH_GET_TOKEN_FOR_USER)).isEqualTo(2);
+    }
+
+    @Test
+    public void unknownTokensAreRememberedForTheNegativeTtl() {
+        gateway.endpoint(AUTH_GET_TOKEN_FOR_USER).respondWith(null);
+        authClient.enableUserCache(10, 60000, 60000);
+
+        assertThat(authClient.getUserForToken("unknown")).isNull();
+        assertThat(authClient.getUserForToken("unknown")).isNull();
+
+        assertThat(gateway.getRequestCount(AUTH_GET_TOKEN_FOR_USER)).isEqualTo(1);
+    }
+
+    @Test
+    public void groupMembershipIsCachedPerUser() {
+        gateway.endpoint(AUTH_LIST_GROUP_USER_IDS).respondWith(groupIds("admins", "users"));
+        authClient.enableGroupCache(10, 60000);
+
+        GroupMembership membership = authClient.getGroupMembership(user("alice"));
+        authClient.getGroupMembership(user("alice"));
+
+        assertThat(membership.isMemberOf("admins")).isTrue();
+        assertThat(membership.isMemberOf("guests")).isFalse();
+        assertThat(gateway.getRequestCount(AUTH_LIST_GROUP_USER_IDS)).isEqualTo(1);
+    }
+
+    @Test
+    public void batchGroupLookupAsksOncePerDistinctUser() {
+        gateway.endpoint(AUTH_LIST_GROUP_USER_IDS).respondWith(groupIds("users"));
+        authClient.enableGroupCache(10, 60000);
+        authClient.getGroupMembership(user("alice"));
+
+        Map<String, GroupMembership> memberships = authClient.getUsersGroupIds(
+                Arrays.asList(user("alice"), user("bob"), user("bob"), user("carol")));
+
+        assertThat(memberships.keySet()).containsExactly("alice", "bob", "carol");
+        assertThat(memberships.get("bob").isMemberOf("users")).isTrue();
+        assertThat(gateway.getRequestCount(AUTH_LIST_GROUP_USER_IDS)).isEqualTo(3);
+    }
+
+    @Test
+    public void batchLargerThanTheExecutorWaitsInsteadOfFailing() {
+        SdkEventCallbackHandler.configureSdkResponseExecutor(32, 0);
+        gateway.endpoint(AUTH_LIST_GROUP_USER_IDS).respondWith(groupIds("users"))
+                .latency(LatencyDistribution.fixed(10));
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            users.add(user("user-" + i));
+        Map<String, GroupMembership> memberships = authClient.getUsersGroupIds(users);
+
+        assertThat(memberships).hasSize(100);
+        assertThat(gateway.getRequestCount(AUTH_LIST_GROUP_USER_IDS)).isEqualTo(100);
+    }
+
+    @Test
+    public void unresolvedGroupsAreEmptyAndNotCached() {
+        gateway.endpoint(AUTH_LIST_GROUP_USER_IDS).respondWith(null);
+        authClient.enableGroupCache(10, 60000);
+
+        assertThat(authClient.getGroupMembership(user("alice"))).isSameAs(GroupMembership.EMPTY);
+        authClient.getGroupMembership(user("alice"));
+
+        assertThat(gateway.getRequestCount(AUTH_LIST_GROUP_USER_IDS)).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidatedGroupMembershipIsLookedUpAgain() {
+        gateway.endpoint(AUTH_LIST_GROUP_USER_IDS).respondWith(groupIds("users"));
+        authClient.enableGroupCache(10, 60000);
+        authClient.getGroupMembership(user("alice"));
+
+        authClient.invalidateGroupMembership("alice");
+        authClient.getGroupMembership(user("alice"));
+
+        assertThat(gateway.getRequestCount(AUTH_LIST_GROUP_USER_IDS)).isEqualTo(2);
+    }
+
+    @Test
+    public void profilesAreCachedOnceEnabled() {
+        UserProfile profile = new UserProfile();
+        gateway.endpoint(AUTH_GET_USER_PROFILE).respondWith(profile);
+        authClient.enableProfileCache(10, 60000);
+
+        assertThat(authClient.getUserProfie("alice")).isSameAs(profile);
+        assertThat(authClient.getUserProfie("alice")).isSameAs(profile);
+
+        assertThat(gateway.getRequestCount(AUTH_GET_USER_PROFILE)).isEqualTo(1);
+    }
+
+    @Test
+    public void bulkProfileLookupSkipsDuplicatesAndMissingUsers() {
+        UserProfile profile = new UserProfile();
+        gateway.endpoint(AUTH_GET_USER_PROFILE).respondWith(profile);
+        authClient.enableProfileCache(10, 60000);
+        authClient.getUserProfie("alice");
+
+        Map<String, UserProfile> profiles = authClient.getUserProfiles(
+                Arrays.asList("alice", "bob", "bob", null));
+
+        assertThat(profiles.keySet()).containsExactly("alice", "bob");
+        assertThat(gateway.getRequestCount(AUTH_GET_USER_PROFILE)).isEqualTo(2);
+    }
+
+    @Test
+    public void largeBulkProfileLookupWaitsInsteadOfFailing() throws Exception {
+        SdkEventCallbackHandler.configureSdkResponseExecutor(32, 0);
+        gateway.endpoint(AUTH_GET_USER_PROFILE).respondWith(new UserProfile())
+                .latency(LatencyDistribution.fixed(10));
+
+        List<String> userNames = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            userNames.add("user-" + i);
+        Map<String, UserProfile> profiles = authClient.getUserProfilesAsync(userNames).get(30, TimeUnit.SECONDS);
+
+        assertThat(profiles).hasSize(100);
+        assertThat(gateway.getRequestCount(AUTH_GET_USER_PROFILE)).isEqualTo(100);
+    }
+
+    @Test
+    public void invalidatedProfileIsLookedUpAgain() {
+        gateway.endpoint(AUTH_GET_USER_PROFILE).respondWith(new UserProfile());
+        authClient.enableProfileCache(10, 60000);
+        authClient.getUserProfie("alice");
+
+        authClient.invalidateUserProfile("alice");
+        authClient.getUserProfie("alice");
+
+        assertThat(gateway.getRequestCount(AUTH_GET_USER_PROFILE)).isEqualTo(2);
+    }
+
+    @Test
+    public void handlersAreRegisteredAgainOnceTheirOtdsResourceIdIsResolved() throws Exception {
+        AuthRequestHandler handler = mock(AuthRequestHandler.class);
+        when(handler.resolveUsernamesViaOtdsResource()).thenReturn(true);
+        when(handler.getOtdsResourceId()).thenReturn(null, "resource");
+
+        authClient.registerAuthHandlersAsync(Arrays.asList(handler, handler)).get(5, TimeUnit.SECONDS);
+        assertThat(gateway.getRequestCount(AUTH_REGISTER_AUTH_HANDLERS)).isEqualTo(1);
+
+        // the first lookup finds nothing, the retry finds the id after backing off
+        long deadline = System.currentTimeMillis() + 5000;
+        while (gateway.getRequestCount(AUTH_REGISTER_AUTH_HANDLERS) < 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertThat(gateway.getRequestCount(AUTH_REGISTER_AUTH_HANDLERS)).isEqualTo(2);
+        assertThat(AuthHandlerDescriptors.isDescribed(handler)).isTrue();
+    }
+
+    @Test
+    public void handlersWithoutOtdsResourcesAreRegisteredOnce() throws Exception {
+        AuthRequestHandler handler = mock(AuthRequestHandler.class);
+        EIMConnectorService connector = mock(EIMConnectorService.class);
+        when(connector.getAuthHandler()).thenReturn(handler);
+
+        authClient.registerConnectorAuthHandlersAsync(Arrays.asList(connector, mock(EIMConnectorService.class)))
+                .get(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+
+        assertThat(gateway.getRequestCount(AUTH_REGISTER_AUTH_HANDLERS)).isEqualTo(1);
+        verify(handler, never()).getOtdsResourceId();
+    }
+
+    @Test
+    public void tokenLookupsGoToTheGatewayWithoutTheCache() {
+        gateway.endpoint(AUTH_GET_TOKEN_FOR_USER).respondWith(new AuthorizedUser());
+
+        authClient.getUserForToken("token");
+        authClient.getUserForToken("token");
+
+        assertThat(gateway.getRequestCount(AUTH_GET_TOKEN_FOR_USER)).isEqualTo(2);
+    }
+
+    private static User user(String userName) {
+        User user = mock(User.class);
+        when(user.getUserName()).thenReturn(userName);
+        return user;
+    }
+
+    private static Map<String, Object> groupIds(String... groupIds) {
+        return Collections.singletonMap("groupIds", Arrays.asList(groupIds));
+    }
+
+}
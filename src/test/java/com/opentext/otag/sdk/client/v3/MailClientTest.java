@@ -0,0 +1,71 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.bus.SdkEventKeys;
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v3.MailRequest;
+import com.opentext.otag.sdk.types.v3.MailResult;
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+import com.opentext.otag.sdk.types.v3.api.error.APIException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class MailClientTest {
+
+    private LoopbackGateway gateway;
+    private MailClient mailClient;
+
+    @Before
+    public void setUp() {
+        gateway = new LoopbackGateway().install();
+        mailClient = new MailClient(null, AbstractOtagServiceClientTest.configFactory());
+    }
+
+    @After
+    public void tearDown() {
+        gateway.close();
+    }
+
+    @Test
+    public void sendMailAsyncReportsGatewayErrorsInTheResponse() {
+        gateway.endpoint(SdkEventKeys.SEND_IMPORTANT_MAIL).errorRate(1);
+
+        SDKResponse response = mailClient.sendMailAsync(new MailRequest());
+
+        assertThat(response.isSuccess()).isFalse();
+    }
+
+    @Test
+    public void sendMailWithResultAsyncFailsOnGatewayErrors() throws Exception {
+        gateway.endpoint(SdkEventKeys.SEND_IMPORTANT_MAIL).errorRate(1);
+
+        CompletableFuture<MailResult> result = mailClient.sendMailWithResultAsync(new MailRequest());
+
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("expected the mail to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(APIException.class);
+        }
+    }
+
+    @Test
+    public void sendMailWithResultAsyncReturnsTheResult() throws Exception {
+        MailResult sent = new MailResult();
+        gateway.endpoint(SdkEventKeys.SEND_IMPORTANT_MAIL).respondWith(sent);
+
+        assertThat(mailClient.sendMailWithResultAsync(new MailRequest()).get(5, TimeUnit.SECONDS))
+                .isSameAs(sent);
+    }
+
+}
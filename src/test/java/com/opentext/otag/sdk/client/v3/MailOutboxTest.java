@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.loopback.LatencyDistribution;
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.types.v3.MailRequest;
+import com.opentext.otag.sdk.types.v3.MailResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.opentext.otag.sdk.bus.SdkEventKeys.*;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class MailOutboxTest {
+
+    private LoopbackGateway gateway;
+    private MailOutbox outbox;
+
+    @Before
+    public void setUp() {
+        gateway = new LoopbackGateway().install();
+        gateway.endpoint(SEND_IMPORTANT_MAIL).respondWith(new MailResult());
+        outbox = new MailOutbox(new MailClient(null, AbstractOtagServiceClientTest.configFactory()), 16, 1);
+    }
+
+    @After
+    public void tearDown() {
+        outbox.close();
+        gateway.close();
+    }
+
+    @Test
+    public void identicalMailIsSentEachTimeByDefault() throws Exception {
+        MailRequest mail = new MailRequest();
+
+        CompletableFuture<MailResult> first = outbox.submit(mail);
+        CompletableFuture<MailResult> second = outbox.submit(mail);
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(gateway.getRequestCount(SEND_IMPORTANT_MAIL)).isEqualTo(2);
+    }
+
+    @Test
+    public void aggregationStrategyCombinesQueuedMail() throws Exception {
+        outbox.setAggregationStrategy(mail -> "everyone", (first, second) -> first);
+        gateway.endpoint(SEND_IMPORTANT_MAIL).latency(LatencyDistribution.fixed(200));
+
+        // the single sender is busy with this one while the others queue up behind it
+        CompletableFuture<MailResult> busy = outbox.submit(new MailRequest());
+        while (outbox.getQueuedCount() > 0)
+            Thread.sleep(5);
+        CompletableFuture<MailResult> first = outbox.submit(new MailRequest());
+        CompletableFuture<MailResult> second = outbox.submit(new MailRequest());
+
+        busy.get(5, TimeUnit.SECONDS);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(second.get(5, TimeUnit.SECONDS));
+        assertThat(gateway.getRequestCount(SEND_IMPORTANT_MAIL)).isEqualTo(2);
+    }
+
+    @Test
+    public void failingAggregatorFailsItsGroupOnly() throws Exception {
+        outbox.setAggregationStrategy(mail -> "everyone", (first, second) -> {
+            throw new IllegalStateException("cannot combine");
+        });
+        gateway.endpoint(SEND_IMPORTANT_MAIL).latency(LatencyDistribution.fixed(200));
+
+        CompletableFuture<MailResult> busy = outbox.submit(new MailRequest());
+        while (outbox.getQueuedCount() > 0)
+            Thread.sleep(5);
+        CompletableFuture<MailResult> first = outbox.submit(new MailRequest());
+        CompletableFuture<MailResult> second = outbox.submit(new MailRequest());
+
+        busy.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<MailResult> aggregated : Arrays.asList(first, second)) {
+            try {
+                aggregated.get(5, TimeUnit.SECONDS);
+                fail("expected the aggregated mail to fail");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+            }
+        }
+
+        // the sender survived
+        gateway.endpoint(SEND_IMPORTANT_MAIL).latency(LatencyDistribution.fixed(0));
+        outbox.submit(new MailRequest()).get(5, TimeUnit.SECONDS);
+    }
+
+}
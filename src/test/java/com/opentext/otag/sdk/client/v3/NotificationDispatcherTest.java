@@ -0,0 +1,117 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.types.v3.api.SDKResponse;
+import com.opentext.otag.sdk.types.v3.notification.fcm.FcmPushNotificationRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NotificationDispatcherTest {
+
+    private NotificationsClient notificationsClient;
+    private SDKResponse sent;
+    private NotificationDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        notificationsClient = mock(NotificationsClient.class);
+        sent = mock(SDKResponse.class);
+        when(notificationsClient.sendFcmPushNotificationAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(sent));
+    }
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null)
+            dispatcher.close();
+    }
+
+    @Test
+    public void identicalNotificationsAreSentEachTimeByDefault() throws Exception {
+        dispatcher = new NotificationDispatcher(notificationsClient, 16, 16, 10, 4);
+        FcmPushNotificationRequest request = mock(FcmPushNotificationRequest.class);
+
+        CompletableFuture<SDKResponse> first = dispatcher.submit(request);
+        CompletableFuture<SDKResponse> second = dispatcher.submit(request);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(sent);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(sent);
+        verify(notificationsClient, times(2)).sendFcmPushNotificationAsync(request);
+    }
+
+    @Test
+    public void closeFlushesBufferedNotificationsAndRefusesNewOnes() throws Exception {
+        // a long window so the notification is still buffered when we close
+        dispatcher = new NotificationDispatcher(notificationsClient, 16, 16, 60000, 4);
+        CompletableFuture<SDKResponse> buffered = dispatcher.submit(mock(FcmPushNotificationRequest.class));
+
+        dispatcher.close();
+
+        assertThat(buffered.get(5, TimeUnit.SECONDS)).isSameAs(sent);
+        try {
+            dispatcher.submit(mock(FcmPushNotificationRequest.class));
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertThat(dispatcher.getBufferedCount()).isZero();
+        }
+    }
+
+    @Test
+    public void submitWaitingForSpaceIsRefusedWhenClosed() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(notificationsClient.sendFcmPushNotificationAsync(any())).thenAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return CompletableFuture.completedFuture(sent);
+        });
+        dispatcher = new NotificationDispatcher(notificationsClient, 1, 1, 0, 1);
+
+        try {
+            // the flusher is stuck sending the first, the second fills the buffer
+            CompletableFuture<SDKResponse> first = dispatcher.submit(mock(FcmPushNotificationRequest.class));
+            assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<SDKResponse> second = dispatcher.submit(mock(FcmPushNotificationRequest.class));
+
+            CompletableFuture<CompletableFuture<SDKResponse>> third = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dispatcher.submit(mock(FcmPushNotificationRequest.class));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            CompletableFuture<Void> closed = CompletableFuture.runAsync(dispatcher::close);
+
+            try {
+                third.get(5, TimeUnit.SECONDS);
+                fail("expected the waiting submit to be refused");
+            } catch (ExecutionException expected) {
+                assertThat(expected.getCause()).isInstanceOf(IllegalStateException.class);
+            }
+
+            release.countDown();
+            closed.get(5, TimeUnit.SECONDS);
+            assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(sent);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(sent);
+        } finally {
+            release.countDown();
+        }
+    }
+
+}
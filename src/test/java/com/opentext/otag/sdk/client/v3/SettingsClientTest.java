@@ -0,0 +1,165 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.client.v3;
+
+import com.opentext.otag.sdk.loopback.LoopbackGateway;
+import com.opentext.otag.sdk.settings.IntSetting;
+import com.opentext.otag.sdk.types.v3.settings.Setting;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.opentext.otag.sdk.bus.SdkEventKeys.*;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class SettingsClientTest {
+
+    private static final String KEY = "test.setting";
+
+    private LoopbackGateway gateway;
+    private SettingsClient settingsClient;
+
+    @Before
+    public void setUp() {
+        gateway = new LoopbackGateway().install();
+        gateway.endpoint(SETTINGS_GET_SETTING).respondWith(settingJson(KEY, "one"));
+        settingsClient = new SettingsClient(null, AbstractOtagServiceClientTest.configFactory());
+    }
+
+    @After
+    public void tearDown() {
+        gateway.close();
+    }
+
+    @Test
+    public void createSettingRejectsANullSetting() {
+        try {
+            settingsClient.createSetting(null);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertThat(gateway.getRequestCount(SETTINGS_ADD_SETTING)).isZero();
+        }
+    }
+
+    @Test
+    public void updateSettingRejectsASettingWithoutAKey() {
+        try {
+            settingsClient.updateSetting(setting(null, "value"));
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertThat(gateway.getRequestCount(SETTINGS_UPDATE_SETTING)).isZero();
+        }
+    }
+
+    @Test
+    public void cachedSettingIsReadOnce() {
+        settingsClient.enableCache();
+
+        assertThat(settingsClient.getSetting(KEY).getValue()).isEqualTo("one");
+        assertThat(settingsClient.getSetting(KEY).getValue()).isEqualTo("one");
+
+        assertThat(gateway.getRequestCount(SETTINGS_GET_SETTING)).isEqualTo(1);
+        assertThat(gateway.getRequestCount(SETTINGS_REGISTER_FOR_SETTING_UPDATES)).isGreaterThan(0);
+    }
+
+    @Test
+    public void settingReadAsynchronouslyIsCached() throws Exception {
+        settingsClient.enableCache();
+
+        assertThat(settingsClient.getSettingAsync(KEY).get(5, TimeUnit.SECONDS).getValue()).isEqualTo("one");
+        assertThat(settingsClient.getSettingAsync(KEY).get(5, TimeUnit.SECONDS).getValue()).isEqualTo("one");
+
+        assertThat(gateway.getRequestCount(SETTINGS_GET_SETTING)).isEqualTo(1);
+    }
+
+    @Test
+    public void updateSettingInvalidatesTheCachedCopy() {
+        settingsClient.enableCache();
+        settingsClient.getSetting(KEY);
+
+        gateway.endpoint(SETTINGS_GET_SETTING).respondWith(settingJson(KEY, "two"));
+        settingsClient.updateSetting(setting(KEY, "two"));
+
+        assertThat(settingsClient.getSetting(KEY).getValue()).isEqualTo("two");
+        assertThat(gateway.getRequestCount(SETTINGS_GET_SETTING)).isEqualTo(2);
+    }
+
+    @Test
+    public void failedUpdateStillInvalidatesTheCachedCopy() {
+        settingsClient.enableCache();
+        settingsClient.getSetting(KEY);
+        gateway.endpoint(SETTINGS_UPDATE_SETTING).errorRate(1);
+
+        try {
+            settingsClient.updateSetting(setting(KEY, "two"));
+            fail("expected the update to fail");
+        } catch (RuntimeException expected) {
+            settingsClient.getSetting(KEY);
+            assertThat(gateway.getRequestCount(SETTINGS_GET_SETTING)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void settingsAreNotCachedUntilTheCacheIsEnabled() {
+        settingsClient.getSetting(KEY);
+        settingsClient.getSetting(KEY);
+
+        assertThat(gateway.getRequestCount(SETTINGS_GET_SETTING)).isEqualTo(2);
+    }
+
+    @Test
+    public void liveSettingStartsWithTheCurrentValue() {
+        gateway.endpoint(SETTINGS_GET_SETTING).respondWith(settingJson(KEY, "42"));
+
+        IntSetting handle = settingsClient.getIntSetting(KEY, 5);
+
+        assertThat(handle.getAsInt()).isEqualTo(42);
+        assertThat(settingsClient.getIntSetting(KEY, 5)).isSameAs(handle);
+        assertThat(gateway.getRequestCount(SETTINGS_GET_SETTING)).isEqualTo(1);
+    }
+
+    @Test
+    public void liveSettingKeyCannotBeBoundToTwoTypes() {
+        gateway.endpoint(SETTINGS_GET_SETTING).respondWith(settingJson(KEY, "42"));
+        settingsClient.getIntSetting(KEY, 5);
+
+        try {
+            settingsClient.getBoolSetting(KEY, false);
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage()).contains("IntSetting");
+        }
+    }
+
+    @Test
+    public void failedLiveSettingBindCanBeRetried() {
+        gateway.endpoint(SETTINGS_GET_SETTING).errorRate(1);
+        try {
+            settingsClient.getIntSetting(KEY, 5);
+            fail("expected the bind to fail");
+        } catch (RuntimeException expected) {
+            // the Gateway failure
+        }
+
+        gateway.endpoint(SETTINGS_GET_SETTING).errorRate(0).respondWith(settingJson(KEY, "42"));
+        assertThat(settingsClient.getIntSetting(KEY, 5).getAsInt()).isEqualTo(42);
+    }
+
+    static Setting setting(String key, String value) {
+        return LoopbackGateway.getMapper().convertValue(settingJson(key, value), Setting.class);
+    }
+
+    static Map<String, Object> settingJson(String key, String value) {
+        Map<String, Object> setting = new HashMap<>();
+        setting.put("key", key);
+        setting.put("value", value);
+        return setting;
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.connector;
+
+import com.opentext.otag.sdk.client.v3.ServiceClient;
+import com.opentext.otag.sdk.client.v3.SettingsClient;
+import com.opentext.otag.sdk.types.v3.sdk.EIMConnector;
+import com.opentext.otag.sdk.types.v3.sdk.EIMConnectors;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EIMConnectorDirectoryTest {
+
+    private ServiceClient serviceClient;
+    private EIMConnectorDirectory directory;
+
+    @Before
+    public void setUp() {
+        serviceClient = mock(ServiceClient.class);
+        directory = new EIMConnectorDirectory(serviceClient, mock(SettingsClient.class));
+    }
+
+    @Test
+    public void versionsAreComparedNumericallyPerPart() {
+        assertThat(EIMConnectorDirectory.compareVersions("16.10", "16.2")).isGreaterThan(0);
+        assertThat(EIMConnectorDirectory.compareVersions("16.2", "16.10")).isLessThan(0);
+        assertThat(EIMConnectorDirectory.compareVersions("16.2", "16.2")).isZero();
+    }
+
+    @Test
+    public void missingVersionPartsCountAsZero() {
+        assertThat(EIMConnectorDirectory.compareVersions("16.2", "16.2.0")).isZero();
+        assertThat(EIMConnectorDirectory.compareVersions("16.2.1", "16.2")).isGreaterThan(0);
+    }
+
+    @Test
+    public void nonNumericVersionPartsAreComparedAsText() {
+        assertThat(EIMConnectorDirectory.compareVersions("16.2-beta", "16.2-alpha")).isGreaterThan(0);
+        assertThat(EIMConnectorDirectory.compareVersions("16.beta", "16.alpha")).isGreaterThan(0);
+    }
+
+    @Test
+    public void nullVersionsSortFirst() {
+        assertThat(EIMConnectorDirectory.compareVersions(null, "16.2")).isLessThan(0);
+        assertThat(EIMConnectorDirectory.compareVersions("16.2", null)).isGreaterThan(0);
+        assertThat(EIMConnectorDirectory.compareVersions(null, null)).isZero();
+    }
+
+    @Test
+    public void connectorsAreFoundByNameAndVersionAndLatestVersion() {
+        EIMConnector old = connector("content", "16.2");
+        EIMConnector latest = connector("content", "16.10");
+        serveConnectors(old, latest);
+
+        assertThat(directory.find("content", "16.2").get()).isSameAs(old);
+        assertThat(directory.findLatest("content").get()).isSameAs(latest);
+        assertThat(directory.find("content", "16.3").isPresent()).isFalse();
+    }
+
+    @Test
+    public void missRightAfterALoadDoesNotReloadAgain() {
+        serveConnectors(connector("content", "16.2"));
+
+        assertThat(directory.find("missing", "16.2").isPresent()).isFalse();
+        assertThat(directory.findLatest("missing").isPresent()).isFalse();
+
+        verify(serviceClient, times(1)).getEIMConnectors();
+    }
+
+    @Test
+    public void concurrentRefreshesShareOneReload() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EIMConnectors connectors = connectors(connector("content", "16.2"));
+        when(serviceClient.getEIMConnectors()).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return connectors;
+        });
+
+        CompletableFuture<Void> first = directory.refreshAsync();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> second = directory.refreshAsync();
+        release.countDown();
+
+        assertThat(second).isSameAs(first);
+        first.get(5, TimeUnit.SECONDS);
+        verify(serviceClient, times(1)).getEIMConnectors();
+    }
+
+    @Test
+    public void lookupsAreServedWhileAReloadIsUnderWay() throws Exception {
+        EIMConnector known = connector("content", "16.2");
+        EIMConnectors connectors = connectors(known);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(serviceClient.getEIMConnectors()).thenReturn(connectors).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return connectors;
+        });
+        directory.refresh();
+
+        try {
+            CompletableFuture<Void> reload = directory.refreshAsync();
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            long start = System.nanoTime();
+            assertThat(directory.find("content", "16.2").get()).isSameAs(known);
+            assertThat(directory.find("missing", "16.2").isPresent()).isFalse();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+
+            release.countDown();
+            reload.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private void serveConnectors(EIMConnector... available) {
+        EIMConnectors connectors = connectors(available);
+        when(serviceClient.getEIMConnectors()).thenReturn(connectors);
+    }
+
+    private static EIMConnectors connectors(EIMConnector... available) {
+        EIMConnectors connectors = mock(EIMConnectors.class);
+        when(connectors.getConnectors()).thenReturn(Arrays.asList(available));
+        return connectors;
+    }
+
+    private static EIMConnector connector(String name, String version) {
+        EIMConnector connector = mock(EIMConnector.class);
+        when(connector.getConnectorName()).thenReturn(name);
+        when(connector.getConnectorVersion()).thenReturn(version);
+        return connector;
+    }
+
+}
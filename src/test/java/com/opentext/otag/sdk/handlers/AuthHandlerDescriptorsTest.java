@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.types.v3.auth.AuthHandler;
+import com.opentext.otag.sdk.types.v3.auth.AuthHandlerResult;
+import com.opentext.otag.sdk.types.v3.client.ClientRepresentation;
+import com.opentext.otag.sdk.util.Cookie;
+import com.opentext.otag.sdk.util.ForwardHeaders;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class AuthHandlerDescriptorsTest {
+
+    @After
+    public void tearDown() {
+        AuthHandlerDescriptors.invalidateAll();
+    }
+
+    @Test
+    public void completeDescriptorIsBuiltOnce() throws Exception {
+        ResolvingHandler handler = new ResolvingHandler();
+
+        AuthHandler complete = AuthHandlerDescriptors.describeAsync(handler).get(5, TimeUnit.SECONDS);
+
+        assertThat(handler.buildHandler()).isSameAs(complete);
+        assertThat(handler.buildHandler()).isSameAs(complete);
+        assertThat(handler.lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void buildHandlerDoesNotWaitOnTheBackEnd() {
+        BlockingHandler handler = new BlockingHandler();
+        try {
+            long start = System.nanoTime();
+            assertThat(handler.buildHandler()).isNotNull();
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(400);
+            assertThat(AuthHandlerDescriptors.isDescribed(handler)).isFalse();
+        } finally {
+            handler.release.countDown();
+        }
+    }
+
+    @Test
+    public void missingResourceIdIsResolvedInTheBackground() throws Exception {
+        SlowToResolveHandler handler = new SlowToResolveHandler();
+
+        AuthHandler incomplete = handler.buildHandler();
+        AuthHandler complete = AuthHandlerDescriptors.describeAsync(handler).get(5, TimeUnit.SECONDS);
+
+        assertThat(complete).isNotSameAs(incomplete);
+        assertThat(AuthHandlerDescriptors.isDescribed(handler)).isTrue();
+        assertThat(handler.buildHandler()).isSameAs(complete);
+        assertThat(handler.lookups.get()).isEqualTo(2);
+    }
+
+    private abstract static class TestHandler extends AbstractAuthRequestHandler {
+
+        @Override
+        public AuthHandlerResult auth(String username, String password, ForwardHeaders headers,
+                                      ClientRepresentation clientData) {
+            return null;
+        }
+
+        @Override
+        public AuthHandlerResult auth(String authToken, ForwardHeaders headers, ClientRepresentation clientData) {
+            return null;
+        }
+
+        @Override
+        public boolean resolveUsernamesViaOtdsResource() {
+            return true;
+        }
+
+        @Override
+        public Set<Cookie> getKnownCookies() {
+            return Collections.emptySet();
+        }
+    }
+
+    private static class ResolvingHandler extends TestHandler {
+
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public String getOtdsResourceId() {
+            lookups.incrementAndGet();
+            return "resource";
+        }
+    }
+
+    private static class BlockingHandler extends TestHandler {
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String getOtdsResourceId() {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "resource";
+        }
+    }
+
+    private static class SlowToResolveHandler extends TestHandler {
+
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public String getOtdsResourceId() {
+            return lookups.incrementAndGet() == 1 ? null : "resource";
+        }
+    }
+
+}
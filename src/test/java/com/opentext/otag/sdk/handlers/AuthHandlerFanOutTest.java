@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.metrics.EndpointSnapshot;
+import com.opentext.otag.sdk.types.v3.auth.AuthHandlerResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuthHandlerFanOutTest {
+
+    @Test
+    public void handlersOfTheSameClassAreReportedSeparately() {
+        AuthHandlerResult answer = mock(AuthHandlerResult.class);
+        AuthRequestHandler answering = handlerAnswering(answer);
+        AuthRequestHandler skipping = handlerAnswering(null);
+        assertThat(answering.getClass() == skipping.getClass()).isTrue();
+
+        AuthFanOutResult result = new AuthHandlerFanOut(Arrays.asList(answering, skipping), 5, TimeUnit.SECONDS)
+                .auth("token", null, null);
+
+        assertThat(result.getResult(0)).isSameAs(answer);
+        assertThat(result.isSkipped(0)).isFalse();
+        assertThat(result.isSkipped(1)).isTrue();
+        assertThat(result.getResults()).containsExactly(answer);
+    }
+
+    @Test
+    public void handlersOfTheSameClassAreMeasuredSeparately() {
+        AuthRequestHandler first = handlerAnswering(null);
+        AuthRequestHandler second = handlerAnswering(null);
+        AuthHandlerFanOut fanOut = new AuthHandlerFanOut(Arrays.asList(first, second), 5, TimeUnit.SECONDS);
+
+        fanOut.auth("token", null, null);
+        fanOut.auth("token", null, null);
+
+        String className = first.getClass().getName();
+        Map<String, EndpointSnapshot> snapshot = fanOut.snapshot();
+        assertThat(snapshot.keySet()).containsOnly(className + "#0", className + "#1");
+        assertThat(snapshot.get(className + "#0").getCallCount()).isEqualTo(2);
+        assertThat(snapshot.get(className + "#1").getCallCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void failingHandlerIsReportedAsFailed() {
+        AuthRequestHandler failing = mock(AuthRequestHandler.class);
+        when(failing.auth(anyString(), any(), any())).thenThrow(new IllegalStateException("back-end down"));
+
+        AuthFanOutResult result = new AuthHandlerFanOut(Arrays.asList(failing), 5, TimeUnit.SECONDS)
+                .auth("token", null, null);
+
+        assertThat(result.getFailure(0)).isInstanceOf(IllegalStateException.class);
+        assertThat(result.getLatencyMillis(0)).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void stragglerIsSkippedWithoutBeingInterrupted() throws Exception {
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AuthRequestHandler slow = mock(AuthRequestHandler.class);
+        when(slow.auth(anyString(), any(), any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            finished.countDown();
+            return mock(AuthHandlerResult.class);
+        });
+
+        AuthFanOutResult result = new AuthHandlerFanOut(Arrays.asList(slow), 50, TimeUnit.MILLISECONDS)
+                .auth("token", null, null);
+
+        assertThat(result.isSkipped(0)).isTrue();
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(interrupted.get()).isFalse();
+    }
+
+    @Test
+    public void handlerWithNoThreadToRunOnFails() {
+        CountDownLatch release = new CountDownLatch(1);
+        AuthRequestHandler blocking = mock(AuthRequestHandler.class);
+        when(blocking.auth(anyString(), any(), any())).thenAnswer(invocation -> {
+            release.await();
+            return null;
+        });
+        ThreadPoolExecutor oneThread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+
+        try {
+            AuthFanOutResult result = new AuthHandlerFanOut(Arrays.asList(blocking, handlerAnswering(null)),
+                    50, TimeUnit.MILLISECONDS, oneThread).auth("token", null, null);
+
+            assertThat(result.isSkipped(0)).isTrue();
+            assertThat(result.getFailure(1)).isInstanceOf(RejectedExecutionException.class);
+        } finally {
+            release.countDown();
+            oneThread.shutdown();
+        }
+    }
+
+    private static AuthRequestHandler handlerAnswering(AuthHandlerResult answer) {
+        AuthRequestHandler handler = mock(AuthRequestHandler.class);
+        when(handler.auth(anyString(), any(), any())).thenReturn(answer);
+        return handler;
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.types.v3.auth.AuthHandlerResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingAuthRequestHandlerTest {
+
+    private AuthRequestHandler backEnd;
+    private CachingAuthRequestHandler handler;
+
+    @Before
+    public void setUp() {
+        backEnd = mock(AuthRequestHandler.class);
+        handler = new TestCachingHandler(backEnd);
+    }
+
+    @Test
+    public void repeatLoginIsServedFromTheCache() {
+        AuthHandlerResult result = mock(AuthHandlerResult.class);
+        when(backEnd.auth(anyString(), anyString(), any(), any())).thenReturn(result);
+
+        assertThat(handler.auth("bob", "secret", null, null)).isSameAs(result);
+        assertThat(handler.auth("bob", "secret", null, null)).isSameAs(result);
+
+        verify(backEnd, times(1)).auth("bob", "secret", null, null);
+    }
+
+    @Test
+    public void differentPasswordIsNotServedFromTheCache() {
+        when(backEnd.auth(anyString(), anyString(), any(), any())).thenReturn(mock(AuthHandlerResult.class));
+
+        handler.auth("bob", "secret", null, null);
+        handler.auth("bob", "guess", null, null);
+
+        verify(backEnd, times(1)).auth("bob", "guess", null, null);
+    }
+
+    @Test
+    public void skippedLoginIsNotCached() {
+        handler.auth("bob", "secret", null, null);
+        handler.auth("bob", "secret", null, null);
+
+        verify(backEnd, times(2)).auth("bob", "secret", null, null);
+    }
+
+    @Test
+    public void failedLoginIsNotCached() {
+        when(backEnd.auth(anyString(), anyString(), any(), any()))
+                .thenThrow(new IllegalStateException("back-end down"))
+                .thenReturn(mock(AuthHandlerResult.class));
+
+        try {
+            handler.auth("bob", "secret", null, null);
+        } catch (IllegalStateException expected) {
+            // the back-end failure
+        }
+
+        assertThat(handler.auth("bob", "secret", null, null)).isNotNull();
+        verify(backEnd, times(2)).auth("bob", "secret", null, null);
+    }
+
+    @Test
+    public void invalidateUserForgetsOnlyThatUser() {
+        when(backEnd.auth(anyString(), anyString(), any(), any())).thenReturn(mock(AuthHandlerResult.class));
+        handler.auth("bob", "secret", null, null);
+        handler.auth("alice", "secret", null, null);
+
+        handler.invalidateUser("bob");
+        handler.auth("bob", "secret", null, null);
+        handler.auth("alice", "secret", null, null);
+
+        verify(backEnd, times(2)).auth("bob", "secret", null, null);
+        verify(backEnd, times(1)).auth("alice", "secret", null, null);
+    }
+
+    @Test
+    public void tokenRevokedDuringItsLoginIsNotCached() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch revoked = new CountDownLatch(1);
+        when(backEnd.auth(anyString(), any(), any())).thenAnswer(invocation -> {
+            inFlight.countDown();
+            revoked.await(5, TimeUnit.SECONDS);
+            return mock(AuthHandlerResult.class);
+        });
+
+        CompletableFuture<AuthHandlerResult> login =
+                CompletableFuture.supplyAsync(() -> handler.auth("token", null, null));
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+        handler.invalidateToken("token");
+        revoked.countDown();
+        assertThat(login.get(5, TimeUnit.SECONDS)).isNotNull();
+
+        // the revocation came after the back-end was asked, its answer must not be reused
+        handler.auth("token", null, null);
+        verify(backEnd, times(2)).auth("token", null, null);
+    }
+
+    private static class TestCachingHandler extends CachingAuthRequestHandler {
+
+        TestCachingHandler(AuthRequestHandler delegate) {
+            super(delegate, 60000, 100);
+        }
+    }
+
+}
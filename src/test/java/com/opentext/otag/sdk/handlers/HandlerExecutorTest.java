@@ -0,0 +1,176 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class HandlerExecutorTest {
+
+    private HandlerExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null)
+            executor.close();
+    }
+
+    @Test
+    public void tasksWithTheSameKeyRunInOrder() throws Exception {
+        executor = new HandlerExecutor(4, 100);
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 50; i++) {
+            int task = i;
+            last = executor.submit("same.key", "test", () -> ran.add(task));
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 50; i++)
+            assertThat(ran.get(i)).isEqualTo(i);
+    }
+
+    @Test
+    public void failedTaskFailsItsFutureAndIsRecorded() throws Exception {
+        executor = new HandlerExecutor(1, 10);
+
+        CompletableFuture<Void> result = executor.submit("key", "broken", () -> {
+            throw new IllegalStateException("handler is broken");
+        });
+
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("expected the task to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(executor.snapshot()).containsKey("broken");
+    }
+
+    @Test
+    public void handlerSubmittingToItsOwnFullLaneDoesNotDeadlock() throws Exception {
+        executor = new HandlerExecutor(1, 1);
+        CountDownLatch nestedRan = new CountDownLatch(2);
+
+        CompletableFuture<Void> outer = executor.submit("key", "outer", () -> {
+            // the first fills the lane, the second finds it full
+            executor.submit("key", "nested", nestedRan::countDown);
+            executor.submit("key", "nested", nestedRan::countDown);
+        });
+
+        outer.get(5, TimeUnit.SECONDS);
+        assertThat(nestedRan.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void tasksQueuedPastAFullLaneStillRunInOrder() throws Exception {
+        executor = new HandlerExecutor(1, 1);
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch outerRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> outer = executor.submit("key", "outer", () -> {
+            outerRunning.countDown();
+            await(release);
+            // the lane is full, these go past its capacity
+            executor.submit("key", "nested", () -> ran.add("nested-1"));
+            executor.submit("key", "nested", () -> ran.add("nested-2"));
+            ran.add("outer");
+        });
+        assertThat(outerRunning.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> queued = executor.submit("key", "queued", () -> ran.add("queued"));
+        CompletableFuture<CompletableFuture<Void>> waiting = CompletableFuture.supplyAsync(
+                () -> executor.submit("key", "waiting", () -> ran.add("waiting")));
+        release.countDown();
+
+        outer.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        waiting.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        assertThat(ran).containsExactly("outer", "queued", "nested-1", "nested-2", "waiting");
+    }
+
+    @Test
+    public void closeRunsTheTasksAlreadyQueued() throws Exception {
+        executor = new HandlerExecutor(2, 10);
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            results.add(executor.submit("key-" + i, "slow", () -> sleep(20)));
+
+        executor.close();
+
+        for (CompletableFuture<Void> result : results)
+            assertThat(result.isDone() && !result.isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    public void submitAfterCloseIsRejected() {
+        executor = new HandlerExecutor(1, 10);
+        executor.close();
+
+        try {
+            executor.submit("key", "late", () -> { });
+            fail("expected a RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+            assertThat(executor.getQueueDepth()).isZero();
+        }
+    }
+
+    @Test
+    public void dispatcherHandsPlatformMessagesToTheExecutor() throws Exception {
+        executor = new HandlerExecutor(2, 10);
+        OtagMessageDispatcher dispatcher = new OtagMessageDispatcher();
+        dispatcher.setHandlerExecutor(executor);
+
+        CountDownLatch handled = new CountDownLatch(1);
+        List<Thread> handledOn = new ArrayList<>();
+        dispatcher.register(new AbstractSettingChangeHandler() {
+            @Override
+            public String getSettingKey() {
+                return "first.key";
+            }
+
+            @Override
+            public void onSettingChanged(SettingsChangeMessage message) {
+                handledOn.add(Thread.currentThread());
+                handled.countDown();
+            }
+        });
+
+        dispatcher.handle(OtagMessageDispatcherTest.settingChanged("first.key"));
+
+        assertThat(handled.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(handledOn.get(0)).isNotSameAs(Thread.currentThread());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
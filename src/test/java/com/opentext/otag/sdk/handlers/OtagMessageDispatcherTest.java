@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.types.v3.OtagServiceEvent;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OtagMessageDispatcherTest {
+
+    private OtagMessageDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        dispatcher = new OtagMessageDispatcher();
+    }
+
+    @Test
+    public void settingChangeReachesOnlyTheHandlersForItsKey() {
+        RecordingHandler first = new RecordingHandler("first.key");
+        RecordingHandler second = new RecordingHandler("second.key");
+        dispatcher.register(first);
+        dispatcher.register(second);
+
+        int delivered = dispatcher.dispatch(settingChanged("first.key"));
+
+        assertThat(delivered).isEqualTo(1);
+        assertThat(first.received).hasSize(1);
+        assertThat(second.received).isEmpty();
+    }
+
+    @Test
+    public void platformDeliveryGoesThroughTheIndex() {
+        RecordingHandler handler = new RecordingHandler("first.key");
+        dispatcher.register(handler);
+
+        assertThat(dispatcher.handles(OtagServiceEvent.SETTING_CHANGED)).isTrue();
+        dispatcher.handle(settingChanged("first.key"));
+
+        assertThat(handler.received).hasSize(1);
+    }
+
+    @Test
+    public void dispatcherOnlyHandlesEventsItHasHandlersFor() {
+        assertThat(dispatcher.handles(OtagServiceEvent.SETTING_CHANGED)).isFalse();
+
+        RecordingHandler handler = new RecordingHandler("first.key");
+        dispatcher.register(handler);
+        assertThat(dispatcher.handles(OtagServiceEvent.SETTING_CHANGED)).isTrue();
+        assertThat(dispatcher.handles(OtagServiceEvent.AUTH_REQUEST)).isFalse();
+
+        dispatcher.unregister(handler);
+        assertThat(dispatcher.handles(OtagServiceEvent.SETTING_CHANGED)).isFalse();
+    }
+
+    @Test
+    public void registeringTwiceDeliversOnce() {
+        RecordingHandler handler = new RecordingHandler("first.key");
+        dispatcher.register(handler);
+        dispatcher.register(handler);
+
+        dispatcher.dispatch(settingChanged("first.key"));
+
+        assertThat(handler.received).hasSize(1);
+        assertThat(dispatcher.getHandlerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void failingHandlerDoesNotStopDelivery() {
+        dispatcher.register(new AbstractSettingChangeHandler() {
+            @Override
+            public String getSettingKey() {
+                return "first.key";
+            }
+
+            @Override
+            public void onSettingChanged(SettingsChangeMessage message) {
+                throw new IllegalStateException("handler is broken");
+            }
+        });
+        RecordingHandler handler = new RecordingHandler("first.key");
+        dispatcher.register(handler);
+
+        assertThat(dispatcher.dispatch(settingChanged("first.key"))).isEqualTo(2);
+        assertThat(handler.received).hasSize(1);
+    }
+
+    @Test
+    public void dispatcherCannotBeRegisteredWithItself() {
+        try {
+            dispatcher.register(dispatcher);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertThat(dispatcher.getHandlerCount()).isZero();
+        }
+    }
+
+    static SettingsChangeMessage settingChanged(String key) {
+        SettingsChangeMessage message = mock(SettingsChangeMessage.class);
+        when(message.getEvent()).thenReturn(OtagServiceEvent.SETTING_CHANGED);
+        when(message.getKey()).thenReturn(key);
+        return message;
+    }
+
+    static class RecordingHandler extends AbstractSettingChangeHandler {
+
+        private final String settingKey;
+        final List<SettingsChangeMessage> received = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingHandler(String settingKey) {
+            this.settingKey = settingKey;
+        }
+
+        @Override
+        public String getSettingKey() {
+            return settingKey;
+        }
+
+        @Override
+        public void onSettingChanged(SettingsChangeMessage message) {
+            received.add(message);
+        }
+    }
+
+}
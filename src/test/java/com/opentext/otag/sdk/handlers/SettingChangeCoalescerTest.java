@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.handlers;
+
+import com.opentext.otag.sdk.handlers.OtagMessageDispatcherTest.RecordingHandler;
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.opentext.otag.sdk.handlers.OtagMessageDispatcherTest.settingChanged;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SettingChangeCoalescerTest {
+
+    private static final long WINDOW_MILLIS = 100;
+
+    private SettingChangeCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        coalescer = new SettingChangeCoalescer(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        coalescer.close();
+    }
+
+    @Test
+    public void burstIsDeliveredAsItsLatestChange() throws Exception {
+        RecordingHandler handler = new RecordingHandler("pool.size");
+        handler.setCoalescer(coalescer);
+
+        SettingsChangeMessage latest = null;
+        for (int i = 0; i < 5; i++) {
+            latest = settingChanged("pool.size");
+            handler.handle(latest);
+        }
+        assertThat(handler.received).isEmpty();
+
+        Thread.sleep(WINDOW_MILLIS * 3);
+        assertThat(handler.received).containsExactly(latest);
+    }
+
+    @Test
+    public void handlerWithoutACoalescerSeesEveryChange() {
+        RecordingHandler handler = new RecordingHandler("pool.size");
+
+        handler.handle(settingChanged("pool.size"));
+        handler.handle(settingChanged("pool.size"));
+
+        assertThat(handler.received).hasSize(2);
+    }
+
+    @Test
+    public void closeStillDeliversPendingChanges() throws Exception {
+        RecordingHandler handler = new RecordingHandler("pool.size");
+        handler.setCoalescer(coalescer);
+        SettingsChangeMessage change = settingChanged("pool.size");
+        handler.handle(change);
+
+        coalescer.close();
+
+        Thread.sleep(WINDOW_MILLIS * 3);
+        assertThat(handler.received).containsExactly(change);
+    }
+
+    @Test
+    public void changesAfterCloseAreDeliveredDirectly() {
+        RecordingHandler handler = new RecordingHandler("pool.size");
+        handler.setCoalescer(coalescer);
+        coalescer.close();
+
+        handler.handle(settingChanged("pool.size"));
+        handler.handle(settingChanged("pool.size"));
+
+        assertThat(handler.received).hasSize(2);
+    }
+
+    @Test
+    public void multiSettingHandlerCoalescesEachKey() throws Exception {
+        List<String> changed = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(2);
+        AbstractMultiSettingChangeHandler handler = new AbstractMultiSettingChangeHandler() {
+            @Override
+            public Set<String> getSettingKeys() {
+                return handlers.keySet();
+            }
+        };
+        handler.addHandler("first.key", message -> {
+            changed.add(message.getKey());
+            delivered.countDown();
+        });
+        handler.addHandler("second.key", message -> {
+            changed.add(message.getKey());
+            delivered.countDown();
+        });
+        handler.setCoalescer(coalescer);
+
+        for (int i = 0; i < 3; i++) {
+            handler.handle(settingChanged("first.key"));
+            handler.handle(settingChanged("second.key"));
+        }
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(WINDOW_MILLIS * 2);
+        assertThat(changed).containsOnly("first.key", "second.key");
+        assertThat(changed).hasSize(2);
+    }
+
+    @Test
+    public void groupReceivesTheLatestChangeToEachKey() throws Exception {
+        List<Map<String, SettingsChangeMessage>> groups = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        MultiSettingChangeHandler handler = coalescer.group(
+                new HashSet<>(Arrays.asList("first.key", "second.key")), changes -> {
+                    groups.add(changes);
+                    delivered.countDown();
+                });
+
+        handler.handle(settingChanged("first.key"));
+        SettingsChangeMessage latestFirst = settingChanged("first.key");
+        handler.handle(latestFirst);
+        SettingsChangeMessage second = settingChanged("second.key");
+        handler.handle(second);
+        handler.handle(settingChanged("unrelated.key"));
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(groups).hasSize(1);
+        assertThat(groups.get(0).get("first.key")).isSameAs(latestFirst);
+        assertThat(groups.get(0).get("second.key")).isSameAs(second);
+        assertThat(groups.get(0)).hasSize(2);
+    }
+
+}
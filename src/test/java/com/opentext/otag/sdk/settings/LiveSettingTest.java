@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2016 Open Text.  All Rights Reserved.
+ */
+package com.opentext.otag.sdk.settings;
+
+import com.opentext.otag.sdk.types.v3.message.SettingsChangeMessage;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LiveSettingTest {
+
+    private static final String KEY = "test.setting";
+
+    @Test
+    public void intSettingParsesTrimmedValues() {
+        IntSetting setting = new IntSetting(KEY, 5);
+        assertThat(setting.getAsInt()).isEqualTo(5);
+
+        setting.update(" 42 ");
+
+        assertThat(setting.getAsInt()).isEqualTo(42);
+        assertThat(setting.getRawValue()).isEqualTo(" 42 ");
+    }
+
+    @Test
+    public void invalidValueKeepsThePreviousValue() {
+        IntSetting setting = new IntSetting(KEY, 5);
+        setting.update("7");
+
+        setting.update("seven");
+
+        assertThat(setting.getAsInt()).isEqualTo(7);
+        assertThat(setting.getRawValue()).isEqualTo("7");
+    }
+
+    @Test
+    public void removedSettingFallsBackToTheDefault() {
+        LongSetting setting = new LongSetting(KEY, 10L);
+        setting.update("9000000000");
+        assertThat(setting.getAsLong()).isEqualTo(9000000000L);
+
+        setting.update(null);
+
+        assertThat(setting.getAsLong()).isEqualTo(10L);
+        assertThat(setting.getRawValue()).isNull();
+    }
+
+    @Test
+    public void boolSettingOnlyAcceptsTrueOrFalse() {
+        BoolSetting setting = new BoolSetting(KEY, false);
+
+        setting.update("TRUE");
+        assertThat(setting.getAsBoolean()).isTrue();
+
+        setting.update("yes");
+        assertThat(setting.getAsBoolean()).isTrue();
+
+        setting.update("false");
+        assertThat(setting.getAsBoolean()).isFalse();
+    }
+
+    @Test
+    public void durationSettingAcceptsMillisOrIso8601() {
+        DurationSetting setting = new DurationSetting(KEY, Duration.ofSeconds(1));
+
+        setting.update("2500");
+        assertThat(setting.getAsMillis()).isEqualTo(2500L);
+
+        setting.update("PT30S");
+        assertThat(setting.getAsDuration()).isEqualTo(Duration.ofSeconds(30));
+
+        setting.update("thirty seconds");
+        assertThat(setting.getAsDuration()).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void changesForOtherKeysAreIgnored() {
+        IntSetting setting = new IntSetting(KEY, 5);
+
+        setting.handle(change("other.setting", "6"));
+        assertThat(setting.getAsInt()).isEqualTo(5);
+
+        setting.handle(change(KEY, "6"));
+        assertThat(setting.getAsInt()).isEqualTo(6);
+    }
+
+    @Test
+    public void staleValueIsNotAppliedOverANewerChange() {
+        IntSetting setting = new IntSetting(KEY, 5);
+        long seen = setting.getChangeCount();
+
+        // a change arrives while the current value is being fetched
+        setting.handle(change(KEY, "7"));
+
+        assertThat(setting.updateIfUnchanged("6", seen)).isFalse();
+        assertThat(setting.getAsInt()).isEqualTo(7);
+    }
+
+    @Test
+    public void fetchedValueIsAppliedWhenNothingChanged() {
+        IntSetting setting = new IntSetting(KEY, 5);
+
+        assertThat(setting.updateIfUnchanged("6", setting.getChangeCount())).isTrue();
+        assertThat(setting.getAsInt()).isEqualTo(6);
+    }
+
+    private static SettingsChangeMessage change(String key, String newValue) {
+        SettingsChangeMessage message = mock(SettingsChangeMessage.class);
+        when(message.getKey()).thenReturn(key);
+        when(message.getNewValue()).thenReturn(newValue);
+        return message;
+    }
+
+}